@@ -0,0 +1,24 @@
+package benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+final class Archivos {
+
+    private Archivos() {
+    }
+
+    static void borrarDirectorio(Path directorio) throws IOException {
+        if (directorio == null || !Files.exists(directorio)) {
+            return;
+        }
+        try (Stream<Path> rutas = Files.walk(directorio)) {
+            for (Path ruta : (Iterable<Path>) rutas.sorted(Comparator.reverseOrder())::iterator) {
+                Files.deleteIfExists(ruta);
+            }
+        }
+    }
+}
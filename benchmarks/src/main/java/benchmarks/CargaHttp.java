@@ -0,0 +1,169 @@
+package benchmarks;
+
+import controller.TareaController;
+import servidor.ServidorTareas;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Prueba de carga de la API HTTP contra localhost: varios clientes lanzan peticiones sin pausa durante un tiempo
+// y al final se muestran las peticiones por segundo, la latencia y cuántas listas se resolvieron con un 304.
+// No es un benchmark de JMH: lo que se mide es el servicio completo (red local, HTTP, JSON y controlador).
+//
+// Mezcla de peticiones: 60 % listas con If-None-Match, 20 % lecturas por id, 10 % ediciones y 10 % altas.
+//
+//   java -cp benchmarks/target/benchmarks.jar benchmarks.CargaHttp [url] [clientes] [segundos] [tareas]
+//
+// Sin url (o con "-") arranca un servidor propio en un puerto libre sobre un directorio temporal con las tareas
+// generadas por GeneradorTareas.
+public final class CargaHttp {
+    private static final int CLIENTES_POR_DEFECTO = 16;
+    private static final int SEGUNDOS_POR_DEFECTO = 20;
+    private static final int TAREAS_POR_DEFECTO = 10_000;
+
+    private CargaHttp() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        String url = args.length > 0 && !args[0].equals("-") ? args[0] : null;
+        int clientes = args.length > 1 ? Integer.parseInt(args[1]) : CLIENTES_POR_DEFECTO;
+        int segundos = args.length > 2 ? Integer.parseInt(args[2]) : SEGUNDOS_POR_DEFECTO;
+        int cantidad = args.length > 3 ? Integer.parseInt(args[3]) : TAREAS_POR_DEFECTO;
+
+        Path directorio = null;
+        ServidorTareas servidor = null;
+        if (url == null) {
+            directorio = Files.createTempDirectory("tareas-carga");
+            TareaController controller = new TareaController(directorio.resolve("tareas.json").toString());
+            controller.agregarTareas(GeneradorTareas.generar(cantidad));
+            servidor = new ServidorTareas(controller, "localhost", 0);
+            servidor.iniciar();
+            url = "http://localhost:" + servidor.getPuerto();
+        }
+        try {
+            ejecutar(url.replaceAll("/+$", ""), clientes, segundos, cantidad);
+        } finally {
+            if (servidor != null) {
+                servidor.detener();
+                Archivos.borrarDirectorio(directorio);
+            }
+        }
+    }
+
+    private static void ejecutar(String url, int clientes, int segundos, int cantidad) throws InterruptedException {
+        HttpClient cliente = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+        AtomicLong noModificadas = new AtomicLong();
+        AtomicLong listas = new AtomicLong();
+        AtomicLong errores = new AtomicLong();
+        List<long[]> latencias = new ArrayList<>();
+        int[] contadas = new int[clientes];
+        CountDownLatch fin = new CountDownLatch(clientes);
+
+        // Calentamiento corto para que el JIT y las conexiones no cuenten en la medida
+        long finCalentamiento = System.nanoTime() + Duration.ofSeconds(Math.min(5, Math.max(1, segundos / 4))).toNanos();
+        long finMedida = finCalentamiento + Duration.ofSeconds(segundos).toNanos();
+        for (int c = 0; c < clientes; c++) {
+            int numero = c;
+            long[] propias = new long[1 << 16];
+            latencias.add(propias);
+            Thread hilo = new Thread(() -> {
+                SplittableRandom aleatorio = new SplittableRandom(GeneradorTareas.SEMILLA + numero);
+                String etag = null;
+                long[] medidas = propias;
+                int n = 0;
+                try {
+                    while (true) {
+                        long inicio = System.nanoTime();
+                        if (inicio >= finMedida) {
+                            break;
+                        }
+                        int tipo = aleatorio.nextInt(100);
+                        HttpRequest.Builder peticion;
+                        if (tipo < 60) {
+                            peticion = HttpRequest.newBuilder(URI.create(url + "/tareas?orden=fecha&limit=50"));
+                            if (etag != null) {
+                                peticion.header("If-None-Match", etag);
+                            }
+                        } else if (tipo < 80) {
+                            peticion = HttpRequest.newBuilder(URI.create(url + "/tareas/" + (1 + aleatorio.nextInt(cantidad))));
+                        } else if (tipo < 90) {
+                            peticion = HttpRequest.newBuilder(URI.create(url + "/tareas/" + (1 + aleatorio.nextInt(cantidad))))
+                                    .PUT(HttpRequest.BodyPublishers.ofString("{\"descripcion\":\"Editada por el cliente " + numero + "\"}"));
+                        } else {
+                            peticion = HttpRequest.newBuilder(URI.create(url + "/tareas"))
+                                    .POST(HttpRequest.BodyPublishers.ofString("{\"titulo\":\"Carga " + numero + "\",\"descripcion\":\"\","
+                                            + "\"fechaLimite\":\"" + GeneradorTareas.FECHA_BASE + "\",\"prioridad\":\"Media\"}"));
+                        }
+                        HttpResponse<byte[]> respuesta;
+                        try {
+                            respuesta = cliente.send(peticion.build(), HttpResponse.BodyHandlers.ofByteArray());
+                        } catch (IOException e) {
+                            errores.incrementAndGet();
+                            continue;
+                        }
+                        long termino = System.nanoTime();
+                        if (respuesta.statusCode() >= 500) {
+                            errores.incrementAndGet();
+                        }
+                        if (tipo < 60) {
+                            etag = respuesta.headers().firstValue("ETag").orElse(etag);
+                        }
+                        if (inicio < finCalentamiento) {
+                            continue;
+                        }
+                        if (tipo < 60) {
+                            listas.incrementAndGet();
+                            if (respuesta.statusCode() == 304) {
+                                noModificadas.incrementAndGet();
+                            }
+                        }
+                        if (n == medidas.length) {
+                            medidas = Arrays.copyOf(medidas, n * 2);
+                            latencias.set(numero, medidas);
+                        }
+                        medidas[n++] = termino - inicio;
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    contadas[numero] = n;
+                    fin.countDown();
+                }
+            }, "carga-" + c);
+            hilo.start();
+        }
+        fin.await();
+
+        int total = Arrays.stream(contadas).sum();
+        long[] todas = new long[total];
+        int posicion = 0;
+        for (int c = 0; c < clientes; c++) {
+            System.arraycopy(latencias.get(c), 0, todas, posicion, contadas[c]);
+            posicion += contadas[c];
+        }
+        Arrays.sort(todas);
+        System.out.printf("%s: %d clientes, %d s%n", url, clientes, segundos);
+        System.out.printf("  %d peticiones, %.0f peticiones/s, %d errores%n", total, total / (double) segundos, errores.get());
+        if (total > 0) {
+            System.out.printf("  latencia p50 %.2f ms, p99 %.2f ms, máxima %.2f ms%n",
+                    percentil(todas, 0.50) / 1e6, percentil(todas, 0.99) / 1e6, todas[total - 1] / 1e6);
+        }
+        System.out.printf("  listas respondidas con 304: %d de %d%n", noModificadas.get(), listas.get());
+    }
+
+    private static long percentil(long[] ordenadas, double p) {
+        return ordenadas[(int) Math.min(ordenadas.length - 1, Math.floor(p * ordenadas.length))];
+    }
+}
@@ -0,0 +1,71 @@
+package benchmarks;
+
+import controller.TareaController;
+import exceptions.FilePersistenceException;
+import model.Prioridad;
+import model.Tarea;
+import org.openjdk.jmh.annotations.*;
+import util.FileManager;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Rendimiento de los filtros del controlador sobre conjuntos de distintos tamaños
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class FiltrosBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    int tamano;
+
+    private Path directorio;
+    private TareaController controller;
+
+    @Setup(Level.Trial)
+    public void preparar() throws IOException, FilePersistenceException {
+        directorio = Files.createTempDirectory("tareas-bench");
+        String ruta = directorio.resolve("tareas.json").toString();
+        FileManager fileManager = new FileManager(ruta);
+        fileManager.guardarTareas(GeneradorTareas.generar(tamano));
+        fileManager.cerrar();
+        controller = new TareaController(ruta);
+    }
+
+    @TearDown(Level.Trial)
+    public void limpiar() throws IOException, FilePersistenceException {
+        controller.cerrar();
+        Archivos.borrarDirectorio(directorio);
+    }
+
+    @Benchmark
+    public List<Tarea> porPrioridad() {
+        return controller.filtrarPorPrioridad(Prioridad.ALTA);
+    }
+
+    @Benchmark
+    public List<Tarea> porEstado() {
+        return controller.filtrarPorEstado(false);
+    }
+
+    @Benchmark
+    public List<Tarea> porFechaLimite() {
+        return controller.filtrarPorFechaLimite(GeneradorTareas.FECHA_BASE);
+    }
+
+    @Benchmark
+    public List<Tarea> porRangoDeUnaSemana() {
+        return controller.filtrarPorRangoFechas(GeneradorTareas.FECHA_BASE, GeneradorTareas.FECHA_BASE.plusDays(6));
+    }
+
+    @Benchmark
+    public List<Tarea> vencidas() {
+        return controller.filtrarVencidas();
+    }
+}
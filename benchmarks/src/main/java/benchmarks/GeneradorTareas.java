@@ -0,0 +1,45 @@
+package benchmarks;
+
+import model.Prioridad;
+import model.Tarea;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+// Genera conjuntos de tareas sintéticos y reproducibles: la misma semilla produce siempre las mismas tareas
+public final class GeneradorTareas {
+    public static final long SEMILLA = 20241017L;
+    // Fechas límite repartidas en dos años alrededor de esta fecha fija (no de hoy, para que los datos no cambien)
+    public static final LocalDate FECHA_BASE = LocalDate.of(2025, 1, 1);
+    public static final int DIAS_DE_MARGEN = 365;
+
+    private static final String[] VERBOS = {"Revisar", "Preparar", "Enviar", "Llamar", "Actualizar", "Comprar", "Organizar", "Terminar"};
+    private static final String[] OBJETOS = {"informe", "presupuesto", "reunión", "factura", "documentación", "pedido", "copia de seguridad", "presentación"};
+
+    private GeneradorTareas() {
+    }
+
+    public static List<Tarea> generar(int cantidad) {
+        return generar(cantidad, SEMILLA);
+    }
+
+    public static List<Tarea> generar(int cantidad, long semilla) {
+        SplittableRandom aleatorio = new SplittableRandom(semilla);
+        List<Tarea> tareas = new ArrayList<>(cantidad);
+        for (int i = 0; i < cantidad; i++) {
+            tareas.add(generarUna(aleatorio, i + 1));
+        }
+        return tareas;
+    }
+
+    static Tarea generarUna(SplittableRandom aleatorio, long id) {
+        String titulo = VERBOS[aleatorio.nextInt(VERBOS.length)] + " " + OBJETOS[aleatorio.nextInt(OBJETOS.length)] + " " + id;
+        String descripcion = "Tarea sintética número " + id + " para pruebas de rendimiento";
+        int fecha = (int) FECHA_BASE.toEpochDay() + aleatorio.nextInt(-DIAS_DE_MARGEN, DIAS_DE_MARGEN + 1);
+        Prioridad prioridad = Prioridad.desdeCodigo(aleatorio.nextInt(3));
+        boolean completada = aleatorio.nextInt(4) == 0; // Una de cada cuatro, como en los datos de ejemplo
+        return Tarea.restaurar(id, titulo, descripcion, fecha, prioridad, completada);
+    }
+}
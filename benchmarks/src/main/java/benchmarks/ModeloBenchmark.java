@@ -0,0 +1,55 @@
+package benchmarks;
+
+import model.Prioridad;
+import model.Tarea;
+import model.TareaStore;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Recorridos y ordenaciones masivas: lista de objetos Tarea frente al almacén por columnas
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ModeloBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    int tamano;
+
+    private List<Tarea> tareas;
+    private TareaStore store;
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        tareas = GeneradorTareas.generar(tamano);
+        store = TareaStore.desde(tareas);
+    }
+
+    @Benchmark
+    public List<Tarea> ordenarListaPorFecha() {
+        List<Tarea> copia = new ArrayList<>(tareas);
+        copia.sort(Comparator.comparingInt(Tarea::getFechaLimiteEpochDay));
+        return copia;
+    }
+
+    @Benchmark
+    public int[] ordenarStorePorFecha() {
+        return store.ordenarPorFecha();
+    }
+
+    @Benchmark
+    public long contarListaPorPrioridad() {
+        return tareas.stream().filter(t -> t.getPrioridad() == Prioridad.ALTA).count();
+    }
+
+    @Benchmark
+    public int contarStorePorPrioridad() {
+        return store.contarPorPrioridad(Prioridad.ALTA);
+    }
+}
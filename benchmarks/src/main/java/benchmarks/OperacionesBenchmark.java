@@ -0,0 +1,72 @@
+package benchmarks;
+
+import controller.TareaController;
+import exceptions.FilePersistenceException;
+import model.Prioridad;
+import model.Tarea;
+import org.openjdk.jmh.annotations.*;
+import util.FileManager;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+// Latencia de alta, edición y baja de una tarea en el controlador (incluye encolar la escritura)
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class OperacionesBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    int tamano;
+
+    private Path directorio;
+    private TareaController controller;
+    private final SplittableRandom aleatorio = new SplittableRandom(GeneradorTareas.SEMILLA);
+    private long siguienteId;
+
+    @Setup(Level.Trial)
+    public void preparar() throws IOException, FilePersistenceException {
+        directorio = Files.createTempDirectory("tareas-bench");
+        String ruta = directorio.resolve("tareas.json").toString();
+        FileManager fileManager = new FileManager(ruta);
+        fileManager.guardarTareas(GeneradorTareas.generar(tamano));
+        fileManager.cerrar();
+        controller = new TareaController(ruta);
+        siguienteId = tamano + 1L;
+    }
+
+    @TearDown(Level.Trial)
+    public void limpiar() throws IOException, FilePersistenceException {
+        controller.cerrar();
+        Archivos.borrarDirectorio(directorio);
+    }
+
+    @Benchmark
+    public Tarea agregar() {
+        Tarea tarea = GeneradorTareas.generarUna(aleatorio, siguienteId++).conId(0); // El controlador asigna el id
+        return controller.agregarTarea(tarea);
+    }
+
+    @Benchmark
+    public void editar() {
+        long id = 1 + aleatorio.nextInt(tamano);
+        controller.editarTarea(id, "Título editado " + id, null, LocalDate.of(2025, 6, 1), Prioridad.MEDIA);
+    }
+
+    // Se reinserta la misma tarea para que el tamaño del conjunto no cambie durante la medición
+    @Benchmark
+    public void eliminarYReinsertar() {
+        Tarea tarea = controller.buscarPorId(1 + aleatorio.nextInt(tamano));
+        if (tarea != null && !tarea.isCompletada()) {
+            controller.eliminarTarea(tarea.getId());
+            controller.agregarTarea(tarea);
+        }
+    }
+}
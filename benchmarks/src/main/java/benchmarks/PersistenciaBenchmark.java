@@ -0,0 +1,64 @@
+package benchmarks;
+
+import exceptions.FilePersistenceException;
+import model.Tarea;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import util.CodecBinario;
+import util.FileManager;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Carga y guardado completos de la instantánea con FileManager, en JSON y en binario
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class PersistenciaBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    int tamano;
+
+    @Param({"json", "binario"})
+    String formato;
+
+    private Path directorio;
+    private FileManager fileManager;
+    private List<Tarea> tareas;
+
+    @Setup(Level.Trial)
+    public void preparar() throws IOException, FilePersistenceException {
+        tareas = GeneradorTareas.generar(tamano);
+        directorio = Files.createTempDirectory("tareas-bench");
+        fileManager = new FileManager(directorio.resolve("binario".equals(formato) ? "tareas" + CodecBinario.EXTENSION : "tareas.json").toString());
+        fileManager.guardarTareas(tareas);
+    }
+
+    @TearDown(Level.Trial)
+    public void limpiar() throws IOException, FilePersistenceException {
+        fileManager.cerrar();
+        Archivos.borrarDirectorio(directorio);
+    }
+
+    @Benchmark
+    public List<Tarea> cargar() throws FilePersistenceException {
+        return fileManager.cargarTareas();
+    }
+
+    // Incluye el fsync de la instantánea, como cualquier compactación real
+    @Benchmark
+    public void guardar() throws FilePersistenceException {
+        fileManager.guardarTareas(tareas);
+    }
+
+    @Benchmark
+    public void recorrer(Blackhole blackhole) throws FilePersistenceException {
+        fileManager.recorrerTareas(blackhole::consume);
+    }
+}
@@ -0,0 +1,95 @@
+package controller;
+
+import model.Prioridad;
+
+import java.time.LocalDate;
+
+// Criterios combinados para TareaController.consultar: todos los indicados deben cumplirse a la vez.
+// Se construye encadenando llamadas, por ejemplo:
+//   new ConsultaTareas().prioridad(Prioridad.ALTA).vencidas().ordenarPor(Orden.FECHA_LIMITE).pagina(0, 50)
+public class ConsultaTareas {
+
+    public enum Orden {
+        FECHA_LIMITE, // Fecha más próxima primero; las tareas sin fecha al final
+        PRIORIDAD,    // Alta, Media, Baja; dentro de cada prioridad por fecha
+        RELEVANCIA    // Según la búsqueda de texto; sin texto, por orden de creación
+    }
+
+    public static final int LIMITE_POR_DEFECTO = 50;
+
+    private Prioridad prioridad;
+    private Boolean completada; // null: cualquier estado
+    private LocalDate desde;
+    private LocalDate hasta;
+    private String texto;
+    private Orden orden = Orden.FECHA_LIMITE;
+    private int desplazamiento;
+    private int limite = LIMITE_POR_DEFECTO;
+
+    public ConsultaTareas prioridad(Prioridad prioridad) {
+        this.prioridad = prioridad;
+        return this;
+    }
+
+    public ConsultaTareas completada(Boolean completada) {
+        this.completada = completada;
+        return this;
+    }
+
+    // Fecha límite entre desde y hasta, ambas incluidas; cualquiera de las dos puede ser null
+    public ConsultaTareas entreFechas(LocalDate desde, LocalDate hasta) {
+        this.desde = desde;
+        this.hasta = hasta;
+        return this;
+    }
+
+    // Pendientes con la fecha límite ya pasada (se combina con un rango de fechas anterior si lo hay)
+    public ConsultaTareas vencidas() {
+        LocalDate ayer = LocalDate.now().minusDays(1);
+        this.hasta = hasta == null || hasta.isAfter(ayer) ? ayer : hasta;
+        this.completada = false;
+        return this;
+    }
+
+    public ConsultaTareas texto(String texto) {
+        this.texto = texto;
+        return this;
+    }
+
+    public ConsultaTareas ordenarPor(Orden orden) {
+        this.orden = orden;
+        return this;
+    }
+
+    public ConsultaTareas pagina(int desplazamiento, int limite) {
+        if (desplazamiento < 0 || limite <= 0) {
+            throw new IllegalArgumentException("El desplazamiento no puede ser negativo y el límite debe ser positivo.");
+        }
+        this.desplazamiento = desplazamiento;
+        this.limite = limite;
+        return this;
+    }
+
+    // La misma consulta avanzada una página
+    public ConsultaTareas siguientePagina() {
+        ConsultaTareas siguiente = new ConsultaTareas();
+        siguiente.prioridad = prioridad;
+        siguiente.completada = completada;
+        siguiente.desde = desde;
+        siguiente.hasta = hasta;
+        siguiente.texto = texto;
+        siguiente.orden = orden;
+        siguiente.desplazamiento = desplazamiento + limite;
+        siguiente.limite = limite;
+        return siguiente;
+    }
+
+    public Prioridad getPrioridad() { return prioridad; }
+    public Boolean getCompletada() { return completada; }
+    public LocalDate getDesde() { return desde; }
+    public LocalDate getHasta() { return hasta; }
+    public String getTexto() { return texto; }
+    public Orden getOrden() { return orden; }
+    public int getDesplazamiento() { return desplazamiento; }
+    public int getLimite() { return limite; }
+}
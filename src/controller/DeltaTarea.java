@@ -0,0 +1,55 @@
+package controller;
+
+import model.Prioridad;
+import model.Tarea;
+
+import java.util.Objects;
+
+// Un cambio replicable sobre una tarea: solo lleva los campos que cambiaron, con la marca del reloj híbrido
+// del nodo que lo hizo. Un alta (o una tarea que vuelve tras deshacer su baja) lleva todos los campos.
+// Se guarda como una línea JSON en el archivo de cambios del nodo.
+class DeltaTarea {
+    long marca;
+    long id;
+    boolean alta;
+    boolean borrada;
+    String titulo;
+    String descripcion;
+    Integer fechaLimite; // Día epoch, como en Tarea
+    Prioridad prioridad;
+    Boolean completada;
+
+    // Devuelve null si no cambió nada que se replique
+    static DeltaTarea entre(long marca, long id, Tarea anterior, Tarea nueva) {
+        DeltaTarea delta = new DeltaTarea();
+        delta.marca = marca;
+        delta.id = id;
+        if (nueva == null) {
+            delta.borrada = true;
+            return delta;
+        }
+        delta.alta = anterior == null;
+        boolean cambios = delta.alta;
+        if (delta.alta || !Objects.equals(nueva.getTitulo(), anterior.getTitulo())) {
+            delta.titulo = nueva.getTitulo();
+            cambios = true;
+        }
+        if (delta.alta || !Objects.equals(nueva.getDescripcion(), anterior.getDescripcion())) {
+            delta.descripcion = nueva.getDescripcion();
+            cambios = true;
+        }
+        if (delta.alta || nueva.getFechaLimiteEpochDay() != anterior.getFechaLimiteEpochDay()) {
+            delta.fechaLimite = nueva.getFechaLimiteEpochDay();
+            cambios = true;
+        }
+        if (delta.alta || nueva.getPrioridad() != anterior.getPrioridad()) {
+            delta.prioridad = nueva.getPrioridad();
+            cambios = true;
+        }
+        if (delta.alta || nueva.isCompletada() != anterior.isCompletada()) {
+            delta.completada = nueva.isCompletada();
+            cambios = true;
+        }
+        return cambios ? delta : null;
+    }
+}
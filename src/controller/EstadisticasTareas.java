@@ -0,0 +1,200 @@
+package controller;
+
+import model.Prioridad;
+import model.Tarea;
+
+import java.util.Arrays;
+import java.util.TreeMap;
+
+// Contadores agregados de las tareas, mantenidos por el controlador en cada mutación con coste O(1):
+// pendientes y completadas (en total y por prioridad), vencidas y un histograma de las pendientes por día de
+// fecha límite (ver CuentaPorDia). Las vencidas se cuentan respecto al día en curso; al cambiar de día se suman las del día que
+// acaba de pasar, así que leer el contador no recorre el histograma.
+// Las completadas del día se cuentan aparte: el modelo no guarda cuándo se completó una tarea, así que solo
+// se conocen las completadas (menos las reabiertas) desde que arrancó la aplicación.
+// Los métodos están sincronizados: las métricas leen los contadores sin el cerrojo del controlador y el cambio
+// de día modifica el contador de vencidas al leerlo.
+class EstadisticasTareas {
+    private static final Prioridad[] PRIORIDADES = Prioridad.values();
+
+    private int pendientes;
+    private int completadas;
+    private final int[] pendientesPorPrioridad = new int[PRIORIDADES.length];
+    private final int[] completadasPorPrioridad = new int[PRIORIDADES.length];
+    private int pendientesSinFecha;
+    private int vencidas; // Pendientes con fecha límite anterior a hoy
+    private long hoy;
+    private final CuentaPorDia pendientesPorDia; // Por día de fecha límite
+    private final CuentaPorDia completadasPorDia; // Por día en que se completaron
+
+    EstadisticasTareas(long hoy) {
+        this.hoy = hoy;
+        pendientesPorDia = new CuentaPorDia(hoy);
+        completadasPorDia = new CuentaPorDia(hoy);
+    }
+
+    public synchronized void reconstruir(Iterable<Tarea> tareas) {
+        pendientes = 0;
+        completadas = 0;
+        Arrays.fill(pendientesPorPrioridad, 0);
+        Arrays.fill(completadasPorPrioridad, 0);
+        pendientesSinFecha = 0;
+        vencidas = 0;
+        pendientesPorDia.vaciar();
+        tareas.forEach(this::sumar);
+    }
+
+    public synchronized void sumar(Tarea tarea) {
+        contar(tarea, 1);
+    }
+
+    public synchronized void restar(Tarea tarea) {
+        contar(tarea, -1);
+    }
+
+    // Método para sustituir una tarea por su versión editada
+    public synchronized void reemplazar(Tarea anterior, Tarea nueva) {
+        restar(anterior);
+        sumar(nueva);
+    }
+
+    // +1 al completar una tarea ese día, -1 al reabrirla (deshacer)
+    public synchronized void completadaEl(long dia, int cambio) {
+        completadasPorDia.sumar(dia, cambio);
+    }
+
+    // finSemana está como mucho 6 días por delante de hoy: sumar esa semana cuesta lo mismo con cualquier cantidad de tareas
+    public synchronized ResumenTareas resumen(long hoy, long finSemana, int diasCompletadas) {
+        cambiarDia(hoy);
+        int[] porPrioridad = Arrays.copyOf(pendientesPorPrioridad, pendientesPorPrioridad.length);
+        int[] completadasPrioridad = Arrays.copyOf(completadasPorPrioridad, completadasPorPrioridad.length);
+        return new ResumenTareas(pendientes, completadas, porPrioridad, completadasPrioridad, pendientesSinFecha,
+                vencidas, pendientesPorDia.sumarRango(hoy, hoy), pendientesPorDia.sumarRango(hoy, finSemana),
+                completadasPorDia.copiarRango(hoy - diasCompletadas + 1, hoy));
+    }
+
+    // Contadores sueltos para las métricas
+
+    public synchronized int getPendientes() {
+        return pendientes;
+    }
+
+    public synchronized int getCompletadas() {
+        return completadas;
+    }
+
+    public synchronized int getPendientes(Prioridad prioridad) {
+        return pendientesPorPrioridad[prioridad.ordinal()];
+    }
+
+    public synchronized int getVencidas(long hoy) {
+        cambiarDia(hoy);
+        return vencidas;
+    }
+
+    // Pendientes por día de fecha límite entre desde y hasta, ambos incluidos
+    public synchronized int[] pendientesPorDia(long desde, long hasta) {
+        return pendientesPorDia.copiarRango(desde, hasta);
+    }
+
+    private void contar(Tarea tarea, int cambio) {
+        int prioridad = tarea.getPrioridad() == null ? -1 : tarea.getPrioridad().ordinal();
+        if (tarea.isCompletada()) {
+            completadas += cambio;
+            if (prioridad >= 0) {
+                completadasPorPrioridad[prioridad] += cambio;
+            }
+            return;
+        }
+        pendientes += cambio;
+        if (prioridad >= 0) {
+            pendientesPorPrioridad[prioridad] += cambio;
+        }
+        int fecha = tarea.getFechaLimiteEpochDay();
+        if (fecha == Tarea.SIN_FECHA) {
+            pendientesSinFecha += cambio;
+            return;
+        }
+        pendientesPorDia.sumar(fecha, cambio);
+        if (fecha < hoy) {
+            vencidas += cambio;
+        }
+    }
+
+    // Las pendientes de los días que han pasado desde la última vez pasan a vencidas (o al revés si el reloj retrocede)
+    private void cambiarDia(long nuevoHoy) {
+        if (nuevoHoy > hoy) {
+            vencidas += pendientesPorDia.sumarRango(hoy, nuevoHoy - 1);
+        } else if (nuevoHoy < hoy) {
+            vencidas -= pendientesPorDia.sumarRango(nuevoHoy, hoy - 1);
+        }
+        hoy = nuevoHoy;
+    }
+
+    // Cuenta por día epoch. Los días de una ventana fija alrededor del día en que se creó (donde caen casi todas
+    // las fechas) van en un int[]; los de fuera, en un mapa ordenado sin ceros. Así una fecha lejana (importada o
+    // replicada) no hace crecer el array, y borrar sus tareas libera lo que ocupaba.
+    private static final class CuentaPorDia {
+        private static final int DIAS_VENTANA = 1 << 12; // Unos 11 años
+        private static final int RANGO_MAXIMO = 1 << 16; // Días que se pueden copiar de una vez
+
+        private final int[] cuentas = new int[DIAS_VENTANA];
+        private final long primerDia;
+        private final TreeMap<Long, Integer> fuera = new TreeMap<>();
+
+        CuentaPorDia(long centro) {
+            primerDia = centro - DIAS_VENTANA / 4; // Más margen hacia delante: las fechas límite suelen ser futuras
+        }
+
+        void vaciar() {
+            Arrays.fill(cuentas, 0);
+            fuera.clear();
+        }
+
+        void sumar(long dia, int cambio) {
+            if (enVentana(dia)) {
+                cuentas[(int) (dia - primerDia)] += cambio;
+            } else {
+                fuera.merge(dia, cambio, (a, b) -> a + b == 0 ? null : a + b);
+            }
+        }
+
+        int sumarRango(long desde, long hasta) {
+            if (hasta < desde) {
+                return 0;
+            }
+            int total = 0;
+            long inicio = Math.max(desde, primerDia);
+            long fin = Math.min(hasta, primerDia + DIAS_VENTANA - 1);
+            for (long dia = inicio; dia <= fin; dia++) {
+                total += cuentas[(int) (dia - primerDia)];
+            }
+            for (int cuenta : fuera.subMap(desde, true, hasta, true).values()) {
+                total += cuenta;
+            }
+            return total;
+        }
+
+        // Una posición por día del rango; los días sin datos valen 0
+        int[] copiarRango(long desde, long hasta) {
+            if (hasta < desde) {
+                return new int[0];
+            }
+            if (hasta - desde >= RANGO_MAXIMO) {
+                throw new IllegalArgumentException("El rango de fechas no puede pasar de " + RANGO_MAXIMO + " días.");
+            }
+            int[] copia = new int[(int) (hasta - desde + 1)];
+            long inicio = Math.max(desde, primerDia);
+            long fin = Math.min(hasta, primerDia + DIAS_VENTANA - 1);
+            if (inicio <= fin) {
+                System.arraycopy(cuentas, (int) (inicio - primerDia), copia, (int) (inicio - desde), (int) (fin - inicio + 1));
+            }
+            fuera.subMap(desde, true, hasta, true).forEach((dia, cuenta) -> copia[(int) (dia - desde)] = cuenta);
+            return copia;
+        }
+
+        private boolean enVentana(long dia) {
+            return dia >= primerDia && dia < primerDia + DIAS_VENTANA;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package controller;
+
+import model.Tarea;
+import util.MapaPersistente;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+// Historial acotado de cambios para deshacer y rehacer. Cada cambio guarda la versión del mapa de tareas
+// de antes y de después; como el mapa es persistente, las dos versiones comparten todo lo que no tocó
+// el cambio y el historial ocupa lo que cambió, no una copia de las tareas por paso.
+// Se usa con el cerrojo de escritura del controlador tomado.
+class HistorialCambios {
+    public static final int TAMANO_POR_DEFECTO = 100;
+
+    // Un paso del historial: lo que describe el usuario y las dos versiones que lo delimitan
+    static final class Cambio {
+        final String descripcion;
+        final MapaPersistente<Tarea> antes;
+        final MapaPersistente<Tarea> despues;
+
+        Cambio(String descripcion, MapaPersistente<Tarea> antes, MapaPersistente<Tarea> despues) {
+            this.descripcion = descripcion;
+            this.antes = antes;
+            this.despues = despues;
+        }
+    }
+
+    private final int capacidad;
+    private final Deque<Cambio> deshacer = new ArrayDeque<>();
+    private final Deque<Cambio> rehacer = new ArrayDeque<>();
+
+    HistorialCambios(int capacidad) {
+        this.capacidad = Math.max(0, capacidad);
+    }
+
+    // Un cambio nuevo invalida lo deshecho: ya no se puede rehacer sobre un estado distinto
+    void registrar(String descripcion, MapaPersistente<Tarea> antes, MapaPersistente<Tarea> despues) {
+        if (antes == despues || capacidad == 0) {
+            return;
+        }
+        rehacer.clear();
+        deshacer.push(new Cambio(descripcion, antes, despues));
+        if (deshacer.size() > capacidad) {
+            deshacer.removeLast(); // Lo más antiguo se olvida y sus nodos quedan libres si nadie más los usa
+        }
+    }
+
+    Cambio sacarParaDeshacer() {
+        Cambio cambio = deshacer.poll();
+        if (cambio != null) {
+            rehacer.push(cambio);
+        }
+        return cambio;
+    }
+
+    Cambio sacarParaRehacer() {
+        Cambio cambio = rehacer.poll();
+        if (cambio != null) {
+            deshacer.push(cambio);
+        }
+        return cambio;
+    }
+
+    void vaciar() {
+        deshacer.clear();
+        rehacer.clear();
+    }
+
+    boolean puedeDeshacer() {
+        return !deshacer.isEmpty();
+    }
+
+    boolean puedeRehacer() {
+        return !rehacer.isEmpty();
+    }
+
+    String siguienteADeshacer() {
+        Cambio cambio = deshacer.peek();
+        return cambio == null ? null : cambio.descripcion;
+    }
+
+    String siguienteARehacer() {
+        Cambio cambio = rehacer.peek();
+        return cambio == null ? null : cambio.descripcion;
+    }
+
+    // Descripciones de los cambios que se pueden deshacer, del más reciente al más antiguo
+    List<String> descripciones() {
+        List<String> resultado = new ArrayList<>(deshacer.size());
+        deshacer.forEach(c -> resultado.add(c.descripcion));
+        return resultado;
+    }
+}
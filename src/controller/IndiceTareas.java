@@ -0,0 +1,253 @@
+package controller;
+
+import model.Prioridad;
+import model.Tarea;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+
+// Índices secundarios sobre las tareas pendientes, mantenidos de forma incremental por el controlador.
+// Cada tarea ocupa una ranura fija; prioridad y estado son conjuntos de bits sobre las ranuras
+// y la fecha límite es un árbol ordenado, así que los filtros cuestan lo que mide su resultado.
+class IndiceTareas {
+    private Tarea[] ranuras = new Tarea[16];
+    private Prioridad[] prioridadIndexada = new Prioridad[16];
+    private int[] fechaIndexada = new int[16];
+    private int siguienteRanura;
+    private int ocupadas;
+
+    private final Map<Tarea, Integer> ranuraPorTarea = new IdentityHashMap<>();
+    private final BitSet vivas = new BitSet();
+    private final BitSet completadas = new BitSet();
+    private final Map<Prioridad, BitSet> porPrioridad = new EnumMap<>(Prioridad.class);
+    private final TreeMap<Integer, Set<Tarea>> porFecha = new TreeMap<>(); // Clave: día epoch
+
+    public void reconstruir(List<Tarea> tareas) {
+        Arrays.fill(ranuras, 0, siguienteRanura, null);
+        Arrays.fill(prioridadIndexada, 0, siguienteRanura, null);
+        siguienteRanura = 0;
+        ocupadas = 0;
+        ranuraPorTarea.clear();
+        vivas.clear();
+        completadas.clear();
+        porPrioridad.clear();
+        porFecha.clear();
+        tareas.forEach(this::agregar);
+    }
+
+    public void agregar(Tarea tarea) {
+        if (ranuraPorTarea.containsKey(tarea)) {
+            actualizar(tarea);
+            return;
+        }
+        asegurarCapacidad(siguienteRanura + 1);
+        int ranura = siguienteRanura++;
+        ranuras[ranura] = tarea;
+        ranuraPorTarea.put(tarea, ranura);
+        vivas.set(ranura);
+        ocupadas++;
+        indexarCampos(ranura, tarea);
+    }
+
+    // Método para reindexar una tarea después de modificar sus campos
+    public void actualizar(Tarea tarea) {
+        Integer ranura = ranuraPorTarea.get(tarea);
+        if (ranura == null) {
+            return;
+        }
+        desindexarCampos(ranura, tarea);
+        indexarCampos(ranura, tarea);
+    }
+
+    // Sustituye una tarea por su versión editada conservando su ranura (y con ella el orden de inserción)
+    public void reemplazar(Tarea anterior, Tarea nueva) {
+        Integer ranura = ranuraPorTarea.remove(anterior);
+        if (ranura == null) {
+            agregar(nueva);
+            return;
+        }
+        desindexarCampos(ranura, anterior);
+        ranuras[ranura] = nueva;
+        ranuraPorTarea.put(nueva, ranura);
+        indexarCampos(ranura, nueva);
+    }
+
+    public void eliminar(Tarea tarea) {
+        Integer ranura = ranuraPorTarea.remove(tarea);
+        if (ranura == null) {
+            return;
+        }
+        desindexarCampos(ranura, tarea);
+        vivas.clear(ranura);
+        ranuras[ranura] = null;
+        ocupadas--;
+        // Las ranuras no se reutilizan para conservar el orden de inserción; se compactan cuando sobran muchas
+        if (siguienteRanura > 64 && ocupadas < siguienteRanura / 2) {
+            compactar();
+        }
+    }
+
+    // Métodos usados por el planificador de consultas para estimar y recorrer candidatos
+
+    public int tamano() {
+        return ocupadas;
+    }
+
+    public List<Tarea> todas() {
+        return recoger(vivas);
+    }
+
+    public int contarPorPrioridad(Prioridad prioridad) {
+        BitSet bits = prioridad == null ? null : porPrioridad.get(prioridad);
+        return bits == null ? 0 : bits.cardinality();
+    }
+
+    public int contarCompletadas() {
+        return completadas.cardinality();
+    }
+
+    public void recorrerPorPrioridad(Prioridad prioridad, Consumer<Tarea> accion) {
+        BitSet bits = porPrioridad.get(prioridad);
+        if (bits == null) {
+            return;
+        }
+        for (int i = bits.nextSetBit(0); i >= 0; i = bits.nextSetBit(i + 1)) {
+            accion.accept(ranuras[i]);
+        }
+    }
+
+    // Días (epoch) entre desde y hasta, ambos incluidos, con sus tareas en orden de fecha
+    public NavigableMap<Integer, Set<Tarea>> diasEnRango(int desde, int hasta) {
+        if (desde > hasta) {
+            return Collections.emptyNavigableMap();
+        }
+        return Collections.unmodifiableNavigableMap(porFecha.subMap(desde, true, hasta, true));
+    }
+
+    public int contarEnRango(int desde, int hasta) {
+        int total = 0;
+        for (Set<Tarea> tareas : diasEnRango(desde, hasta).values()) {
+            total += tareas.size();
+        }
+        return total;
+    }
+
+    public List<Tarea> porEstado(boolean completada) {
+        BitSet seleccion = (BitSet) vivas.clone();
+        if (completada) {
+            seleccion.and(completadas);
+        } else {
+            seleccion.andNot(completadas);
+        }
+        return recoger(seleccion);
+    }
+
+    public List<Tarea> porPrioridad(Prioridad prioridad) {
+        BitSet bits = prioridad == null ? null : porPrioridad.get(prioridad);
+        return bits == null ? List.of() : recoger(bits);
+    }
+
+    public List<Tarea> porFecha(LocalDate fechaLimite) {
+        long dia = fechaLimite.toEpochDay();
+        Set<Tarea> tareas = dia == Tarea.diaEpochAcotado(fechaLimite) ? porFecha.get((int) dia) : null;
+        return tareas == null ? List.of() : Collections.unmodifiableList(new ArrayList<>(tareas));
+    }
+
+    // Tareas con fecha límite entre desde y hasta, ambos incluidos, ordenadas por fecha
+    public List<Tarea> porRangoFechas(LocalDate desde, LocalDate hasta) {
+        if (desde.isAfter(hasta)) {
+            return List.of();
+        }
+        return aplanar(porFecha.subMap(Tarea.diaEpochAcotado(desde), true, Tarea.diaEpochAcotado(hasta), true), false);
+    }
+
+    // Tareas pendientes cuya fecha límite es anterior a hoy, ordenadas por fecha
+    public List<Tarea> vencidas(LocalDate hoy) {
+        return aplanar(porFecha.headMap(Tarea.diaEpochAcotado(hoy), false), true);
+    }
+
+    private List<Tarea> aplanar(NavigableMap<Integer, Set<Tarea>> fechas, boolean soloPendientes) {
+        List<Tarea> resultado = new ArrayList<>();
+        for (Set<Tarea> tareas : fechas.values()) {
+            for (Tarea tarea : tareas) {
+                if (!soloPendientes || !tarea.isCompletada()) {
+                    resultado.add(tarea);
+                }
+            }
+        }
+        return Collections.unmodifiableList(resultado);
+    }
+
+    private List<Tarea> recoger(BitSet bits) {
+        List<Tarea> resultado = new ArrayList<>(bits.cardinality());
+        for (int i = bits.nextSetBit(0); i >= 0; i = bits.nextSetBit(i + 1)) {
+            resultado.add(ranuras[i]);
+        }
+        return Collections.unmodifiableList(resultado);
+    }
+
+    private void indexarCampos(int ranura, Tarea tarea) {
+        Prioridad prioridad = tarea.getPrioridad();
+        prioridadIndexada[ranura] = prioridad;
+        if (prioridad != null) {
+            porPrioridad.computeIfAbsent(prioridad, p -> new BitSet()).set(ranura);
+        }
+
+        int fecha = tarea.getFechaLimiteEpochDay();
+        fechaIndexada[ranura] = fecha;
+        if (fecha != Tarea.SIN_FECHA) {
+            porFecha.computeIfAbsent(fecha, f -> new LinkedHashSet<>()).add(tarea);
+        }
+
+        completadas.set(ranura, tarea.isCompletada());
+    }
+
+    private void desindexarCampos(int ranura, Tarea tarea) {
+        BitSet bits = prioridadIndexada[ranura] == null ? null : porPrioridad.get(prioridadIndexada[ranura]);
+        if (bits != null) {
+            bits.clear(ranura);
+        }
+        int fecha = fechaIndexada[ranura];
+        if (fecha != Tarea.SIN_FECHA) {
+            Set<Tarea> tareas = porFecha.get(fecha);
+            if (tareas != null) {
+                tareas.remove(tarea);
+                if (tareas.isEmpty()) {
+                    porFecha.remove(fecha);
+                }
+            }
+        }
+        completadas.clear(ranura);
+        prioridadIndexada[ranura] = null;
+        fechaIndexada[ranura] = Tarea.SIN_FECHA;
+    }
+
+    private void compactar() {
+        List<Tarea> tareas = new ArrayList<>(ocupadas);
+        for (int i = vivas.nextSetBit(0); i >= 0; i = vivas.nextSetBit(i + 1)) {
+            tareas.add(ranuras[i]);
+        }
+        reconstruir(tareas);
+    }
+
+    private void asegurarCapacidad(int capacidad) {
+        if (capacidad > ranuras.length) {
+            int nueva = Math.max(capacidad, ranuras.length * 2);
+            ranuras = Arrays.copyOf(ranuras, nueva);
+            prioridadIndexada = Arrays.copyOf(prioridadIndexada, nueva);
+            fechaIndexada = Arrays.copyOf(fechaIndexada, nueva);
+        }
+    }
+}
@@ -0,0 +1,234 @@
+package controller;
+
+import model.Tarea;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+
+// Índice invertido sobre el título y la descripción de las tareas, mantenido de forma incremental por el controlador.
+// Los términos se guardan sin tildes y en minúsculas ("Reunión" -> "reunion"), así que la búsqueda no distingue
+// mayúsculas ni acentos. El diccionario está ordenado para resolver prefijos con un subárbol.
+class IndiceTexto {
+    private static final int PESO_TITULO = 3;
+    private static final int PESO_DESCRIPCION = 1;
+    private static final int LONGITUD_MINIMA_PREFIJO = 2;
+
+    // Palabras tan frecuentes en español que no sirven para distinguir tareas
+    private static final Set<String> PALABRAS_VACIAS = Set.of(
+            "a", "al", "con", "de", "del", "e", "el", "en", "la", "las", "lo", "los",
+            "o", "para", "por", "que", "se", "su", "sus", "u", "un", "una", "y");
+
+    // Término -> (id de tarea -> peso del término en esa tarea)
+    private final TreeMap<String, Map<Long, Integer>> terminos = new TreeMap<>();
+    // Id -> términos indexados, para poder quitarlos al editar o eliminar
+    private final Map<Long, String[]> terminosPorTarea = new HashMap<>();
+
+    public void reconstruir(Iterable<Tarea> tareas) {
+        terminos.clear();
+        terminosPorTarea.clear();
+        tareas.forEach(this::agregar);
+    }
+
+    // Agregar una tarea ya indexada equivale a actualizarla
+    public void agregar(Tarea tarea) {
+        agregar(tarea, pesos(tarea));
+    }
+
+    // Términos de la tarea con su peso. No toca el índice, así que en cargas masivas se calcula en paralelo
+    // y fuera del cerrojo, y después se inserta con agregar(tarea, pesos).
+    static Map<String, Integer> pesos(Tarea tarea) {
+        Map<String, Integer> pesos = new LinkedHashMap<>();
+        for (String termino : tokenizar(tarea.getTitulo())) {
+            pesos.merge(termino, PESO_TITULO, Integer::sum);
+        }
+        for (String termino : tokenizar(tarea.getDescripcion())) {
+            pesos.merge(termino, PESO_DESCRIPCION, Integer::sum);
+        }
+        return pesos;
+    }
+
+    public void agregar(Tarea tarea, Map<String, Integer> pesos) {
+        eliminar(tarea.getId());
+        if (pesos.isEmpty()) {
+            return;
+        }
+        pesos.forEach((termino, peso) -> terminos.computeIfAbsent(termino, t -> new HashMap<>()).put(tarea.getId(), peso));
+        terminosPorTarea.put(tarea.getId(), pesos.keySet().toArray(new String[0]));
+    }
+
+    public void actualizar(Tarea tarea) {
+        agregar(tarea);
+    }
+
+    public void eliminar(long id) {
+        String[] anteriores = terminosPorTarea.remove(id);
+        if (anteriores == null) {
+            return;
+        }
+        for (String termino : anteriores) {
+            Map<Long, Integer> tareas = terminos.get(termino);
+            if (tareas != null) {
+                tareas.remove(id);
+                if (tareas.isEmpty()) {
+                    terminos.remove(termino);
+                }
+            }
+        }
+    }
+
+    // Devuelve los ids de las tareas que contienen todos los términos de la consulta, de mayor a menor relevancia.
+    // Cada término de la consulta también encaja como prefijo ("reu" encuentra "reunión").
+    // La relevancia suma, por término, el peso en la tarea (el título cuenta más) por la rareza del término.
+    public List<Long> buscar(String consulta, int limite) {
+        List<String> consultas = tokenizar(consulta);
+        if (consultas.isEmpty() || limite <= 0) {
+            return List.of();
+        }
+        List<Expansion> expansiones = new ArrayList<>(consultas.size());
+        for (String termino : consultas) {
+            Expansion expansion = expandir(termino);
+            if (expansion.tamano == 0) {
+                return List.of();
+            }
+            expansiones.add(expansion);
+        }
+        // Se parte del término más selectivo y los demás solo se comprueban sobre sus candidatos
+        expansiones.sort(Comparator.comparingInt(e -> e.tamano));
+        Map<Long, Double> candidatos = expansiones.get(0).puntuarTodas();
+        for (int i = 1; i < expansiones.size() && !candidatos.isEmpty(); i++) {
+            Expansion expansion = expansiones.get(i);
+            candidatos.entrySet().removeIf(candidato -> {
+                double puntuacion = expansion.puntuar(candidato.getKey());
+                candidato.setValue(candidato.getValue() + puntuacion);
+                return puntuacion == 0;
+            });
+        }
+        return mejores(candidatos, limite);
+    }
+
+    // Selección de los k mejores con un montículo acotado, sin ordenar todos los candidatos
+    private static List<Long> mejores(Map<Long, Double> candidatos, int limite) {
+        Comparator<Map.Entry<Long, Double>> orden = Map.Entry.<Long, Double>comparingByValue(Comparator.reverseOrder())
+                .thenComparing(Map.Entry.comparingByKey());
+        PriorityQueue<Map.Entry<Long, Double>> monticulo = new PriorityQueue<>(orden.reversed()); // El peor arriba
+        for (Map.Entry<Long, Double> candidato : candidatos.entrySet()) {
+            if (monticulo.size() < limite) {
+                monticulo.add(candidato);
+            } else if (orden.compare(candidato, monticulo.peek()) < 0) {
+                monticulo.poll();
+                monticulo.add(candidato);
+            }
+        }
+        List<Map.Entry<Long, Double>> ordenadas = new ArrayList<>(monticulo);
+        ordenadas.sort(orden);
+        List<Long> ids = new ArrayList<>(ordenadas.size());
+        ordenadas.forEach(e -> ids.add(e.getKey()));
+        return ids;
+    }
+
+    // Un término de la consulta con todas las palabras del diccionario que encajan con él
+    private Expansion expandir(String termino) {
+        Expansion expansion = new Expansion();
+        Map<Long, Integer> exactas = terminos.get(termino);
+        if (exactas != null) {
+            expansion.agregar(exactas, 1.0);
+        }
+        if (termino.length() >= LONGITUD_MINIMA_PREFIJO) {
+            // Las coincidencias por prefijo valen la mitad que la palabra exacta
+            for (Map<Long, Integer> tareas : terminos.subMap(termino, false, termino + Character.MAX_VALUE, false).values()) {
+                expansion.agregar(tareas, 0.5);
+            }
+        }
+        return expansion;
+    }
+
+    private final class Expansion {
+        private final List<Map<Long, Integer>> listas = new ArrayList<>();
+        private final List<Double> factores = new ArrayList<>(); // Rareza del término por el factor de coincidencia
+        private int tamano; // Cota superior de tareas que encajan
+
+        void agregar(Map<Long, Integer> tareas, double factor) {
+            listas.add(tareas);
+            factores.add(factor * Math.log(1.0 + (double) terminosPorTarea.size() / tareas.size()));
+            tamano += tareas.size();
+        }
+
+        // Para cada tarea se queda con la mejor forma del término (exacta o alguna de sus extensiones)
+        Map<Long, Double> puntuarTodas() {
+            Map<Long, Double> resultado = new HashMap<>(Math.max(16, tamano * 4 / 3 + 1));
+            for (int i = 0; i < listas.size(); i++) {
+                double factor = factores.get(i);
+                listas.get(i).forEach((id, peso) -> resultado.merge(id, peso * factor, Math::max));
+            }
+            return resultado;
+        }
+
+        double puntuar(long id) {
+            double mejor = 0;
+            for (int i = 0; i < listas.size(); i++) {
+                Integer peso = listas.get(i).get(id);
+                if (peso != null) {
+                    mejor = Math.max(mejor, peso * factores.get(i));
+                }
+            }
+            return mejor;
+        }
+    }
+
+    // true si la consulta tiene algún término que buscar (no está vacía ni son solo palabras vacías)
+    static boolean tieneTerminos(String consulta) {
+        return !tokenizar(consulta).isEmpty();
+    }
+
+    // Método para partir un texto en términos normalizados: sin tildes, en minúsculas y sin palabras vacías
+    static List<String> tokenizar(String texto) {
+        if (texto == null || texto.isEmpty()) {
+            return List.of();
+        }
+        String plano = esAscii(texto) ? texto : Normalizer.normalize(texto, Normalizer.Form.NFD);
+        List<String> tokens = new ArrayList<>();
+        StringBuilder actual = new StringBuilder();
+        for (int i = 0; i < plano.length(); i++) {
+            char c = plano.charAt(i);
+            if (Character.getType(c) == Character.NON_SPACING_MARK) {
+                continue; // Tilde, diéresis o virgulilla separada de su letra por la normalización
+            }
+            if (Character.isLetterOrDigit(c)) {
+                actual.append(c);
+            } else {
+                cerrarToken(actual, tokens);
+            }
+        }
+        cerrarToken(actual, tokens);
+        return tokens;
+    }
+
+    private static boolean esAscii(String texto) {
+        for (int i = 0; i < texto.length(); i++) {
+            if (texto.charAt(i) >= 0x80) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void cerrarToken(StringBuilder actual, List<String> tokens) {
+        if (actual.length() == 0) {
+            return;
+        }
+        String token = actual.toString().toLowerCase(Locale.ROOT);
+        actual.setLength(0);
+        if (!PALABRAS_VACIAS.contains(token)) {
+            tokens.add(token);
+        }
+    }
+}
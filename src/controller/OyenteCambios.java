@@ -0,0 +1,12 @@
+package controller;
+
+import java.util.Set;
+
+// Recibe los cambios en las tareas que no se han hecho desde esta instancia: el archivo modificado por otro
+// proceso o los cambios llegados de otros nodos. Se llama fuera del cerrojo del controlador y desde un hilo
+// propio, así que una vista debe pasar el aviso a su hilo antes de tocar nada.
+public interface OyenteCambios {
+
+    // Ids de las tareas añadidas, modificadas o eliminadas; buscarPorId devuelve su estado actual (null si ya no existe)
+    void tareasCambiadas(Set<Long> ids);
+}
@@ -0,0 +1,15 @@
+package controller;
+
+import model.Tarea;
+
+import java.util.List;
+
+// Recibe los avisos de fecha límite de las tareas pendientes. Se llama desde el hilo de avisos,
+// así que quien toque la interfaz debe pasar al hilo de Swing.
+public interface OyenteVencimientos {
+    // Tareas a las que les quedan diasAviso días o menos para su fecha límite
+    void proximasAVencer(List<Tarea> tareas);
+
+    // Tareas cuya fecha límite ya ha pasado
+    void vencidas(List<Tarea> tareas);
+}
@@ -0,0 +1,26 @@
+package controller;
+
+import model.Tarea;
+
+import java.util.List;
+
+// Una página del resultado de TareaController.consultar
+public class PaginaTareas {
+    private final List<Tarea> tareas;
+    private final ConsultaTareas consulta;
+    private final boolean haySiguiente;
+
+    PaginaTareas(List<Tarea> tareas, ConsultaTareas consulta, boolean haySiguiente) {
+        this.tareas = tareas;
+        this.consulta = consulta;
+        this.haySiguiente = haySiguiente;
+    }
+
+    public List<Tarea> getTareas() { return tareas; }
+    public boolean haySiguiente() { return haySiguiente; }
+
+    // Consulta que devuelve la página siguiente, o null si esta es la última
+    public ConsultaTareas siguiente() {
+        return haySiguiente ? consulta.siguientePagina() : null;
+    }
+}
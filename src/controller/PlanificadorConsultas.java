@@ -0,0 +1,282 @@
+package controller;
+
+import model.Prioridad;
+import model.Tarea;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.function.LongFunction;
+
+// Resuelve una ConsultaTareas sobre los índices del controlador. Se llama con el cerrojo de lectura tomado.
+// El plan parte del índice más selectivo (texto, prioridad o rango de fechas) y comprueba el resto de criterios
+// directamente sobre cada candidata. Las páginas ordenadas se sacan con un montículo acotado al tamaño de la página;
+// si se ordena por fecha y hay rango de fechas, el árbol de fechas ya da el orden y se para al llenar la página;
+// si se ordena por prioridad, se recorre prioridad a prioridad y se para igual.
+class PlanificadorConsultas {
+    private final IndiceTareas indice;
+    private final IndiceTexto indiceTexto;
+    private final LongFunction<Tarea> tareasPorId;
+
+    PlanificadorConsultas(IndiceTareas indice, IndiceTexto indiceTexto, LongFunction<Tarea> tareasPorId) {
+        this.indice = indice;
+        this.indiceTexto = indiceTexto;
+        this.tareasPorId = tareasPorId;
+    }
+
+    private enum Acceso { TEXTO, PRIORIDAD, FECHAS, TODAS }
+
+    // archivadas: completadas que no están en los índices (vacía si la consulta solo pide pendientes)
+    PaginaTareas ejecutar(ConsultaTareas consulta, Collection<Tarea> archivadas) {
+        Criterios criterios = new Criterios(consulta);
+        if (criterios.texto != null) {
+            List<Long> ids = indiceTexto.buscar(criterios.texto, Integer.MAX_VALUE);
+            criterios.rango = new HashMap<>(Math.max(16, ids.size() * 4 / 3 + 1));
+            for (int i = 0; i < ids.size(); i++) {
+                criterios.rango.put(ids.get(i), i);
+            }
+        }
+        // Una más que la página para saber si hay siguiente
+        int necesarias = (int) Math.min((long) consulta.getDesplazamiento() + consulta.getLimite() + 1, Integer.MAX_VALUE - 8);
+
+        // Estimación de candidatas por cada índice aplicable
+        int total = Math.max(1, indice.tamano());
+        Acceso mejor = Acceso.TODAS;
+        int estimacionMejor = total;
+        int estimacionFechas = -1;
+        double selectividadResto = 1.0; // Fracción de candidatas de fechas que superan los demás filtros
+        if (criterios.rango != null) {
+            estimacionMejor = criterios.rango.size();
+            mejor = Acceso.TEXTO;
+            selectividadResto *= (double) criterios.rango.size() / total;
+        }
+        if (criterios.prioridad != null) {
+            int estimacion = indice.contarPorPrioridad(criterios.prioridad);
+            selectividadResto *= (double) estimacion / total;
+            if (estimacion < estimacionMejor) {
+                estimacionMejor = estimacion;
+                mejor = Acceso.PRIORIDAD;
+            }
+        }
+        if (criterios.conFechas) {
+            estimacionFechas = indice.contarEnRango(criterios.desde, criterios.hasta);
+            if (estimacionFechas < estimacionMejor) {
+                estimacionMejor = estimacionFechas;
+                mejor = Acceso.FECHAS;
+            }
+        }
+
+        Comparator<Tarea> orden = comparador(consulta.getOrden(), criterios.rango);
+        // Recorrido en orden de fecha con parada temprana: se estima cuántas tareas habría que mirar para llenar la página
+        if (consulta.getOrden() == ConsultaTareas.Orden.FECHA_LIMITE && criterios.conFechas && archivadas.isEmpty()
+                && mejor != Acceso.TEXTO) {
+            double recorridoEstimado = Math.min(estimacionFechas, necesarias / Math.max(selectividadResto, 1e-9));
+            if (recorridoEstimado <= estimacionMejor) {
+                return porFechasEnOrden(consulta, criterios, necesarias);
+            }
+        }
+
+        // Orden por prioridad sin un índice más selectivo: se recorren las prioridades de mayor a menor
+        // y se para en cuanto una de ellas completa la página
+        if (consulta.getOrden() == ConsultaTareas.Orden.PRIORIDAD && archivadas.isEmpty()
+                && (mejor == Acceso.TODAS || mejor == Acceso.PRIORIDAD)) {
+            return porPrioridadEnOrden(consulta, criterios, necesarias, orden);
+        }
+
+        Collection<Tarea> candidatas;
+        switch (mejor) {
+            case TEXTO:
+                // Incluye las completadas ya cargadas, así que no hace falta recorrer las archivadas aparte
+                candidatas = new ArrayList<>(criterios.rango.size());
+                criterios.rango.keySet().forEach(id -> {
+                    Tarea tarea = tareasPorId.apply(id);
+                    if (tarea != null) {
+                        candidatas.add(tarea);
+                    }
+                });
+                archivadas = List.of();
+                break;
+            case PRIORIDAD:
+                candidatas = indice.porPrioridad(criterios.prioridad);
+                break;
+            case FECHAS:
+                candidatas = new ArrayList<>(estimacionFechas);
+                for (Set<Tarea> dia : indice.diasEnRango(criterios.desde, criterios.hasta).values()) {
+                    candidatas.addAll(dia);
+                }
+                break;
+            default:
+                candidatas = indice.todas();
+        }
+
+        MejoresTareas mejores = new MejoresTareas(necesarias, orden);
+        for (Tarea tarea : candidatas) {
+            if (criterios.cumple(tarea)) {
+                mejores.ofrecer(tarea);
+            }
+        }
+        for (Tarea tarea : archivadas) {
+            if (criterios.cumple(tarea)) {
+                mejores.ofrecer(tarea);
+            }
+        }
+        return pagina(mejores.ordenadas(), consulta);
+    }
+
+    // Los días salen ordenados del árbol; dentro de cada día se ordena por id para que el resultado
+    // coincida con el del montículo
+    private PaginaTareas porFechasEnOrden(ConsultaTareas consulta, Criterios criterios, int necesarias) {
+        List<Tarea> resultado = new ArrayList<>(necesarias);
+        List<Tarea> delDia = new ArrayList<>();
+        for (Set<Tarea> dia : indice.diasEnRango(criterios.desde, criterios.hasta).values()) {
+            delDia.clear();
+            for (Tarea tarea : dia) {
+                if (criterios.cumple(tarea)) {
+                    delDia.add(tarea);
+                }
+            }
+            delDia.sort(Comparator.comparingLong(Tarea::getId));
+            for (Tarea tarea : delDia) {
+                resultado.add(tarea);
+                if (resultado.size() == necesarias) {
+                    return pagina(resultado, consulta);
+                }
+            }
+        }
+        return pagina(resultado, consulta);
+    }
+
+    private PaginaTareas porPrioridadEnOrden(ConsultaTareas consulta, Criterios criterios, int necesarias, Comparator<Tarea> orden) {
+        List<Tarea> resultado = new ArrayList<>();
+        for (Prioridad prioridad : Prioridad.values()) {
+            if (criterios.prioridad != null && criterios.prioridad != prioridad) {
+                continue;
+            }
+            MejoresTareas mejores = new MejoresTareas(necesarias - resultado.size(), orden);
+            indice.recorrerPorPrioridad(prioridad, tarea -> {
+                if (criterios.cumple(tarea)) {
+                    mejores.ofrecer(tarea);
+                }
+            });
+            resultado.addAll(mejores.ordenadas());
+            if (resultado.size() == necesarias) {
+                return pagina(resultado, consulta);
+            }
+        }
+        if (criterios.prioridad == null) {
+            // Tareas sin prioridad (solo en datos antiguos): van al final
+            MejoresTareas mejores = new MejoresTareas(necesarias - resultado.size(), orden);
+            for (Tarea tarea : indice.todas()) {
+                if (tarea.getPrioridad() == null && criterios.cumple(tarea)) {
+                    mejores.ofrecer(tarea);
+                }
+            }
+            resultado.addAll(mejores.ordenadas());
+        }
+        return pagina(resultado, consulta);
+    }
+
+    private static PaginaTareas pagina(List<Tarea> ordenadas, ConsultaTareas consulta) {
+        int desde = Math.min(consulta.getDesplazamiento(), ordenadas.size());
+        int hasta = Math.min(desde + consulta.getLimite(), ordenadas.size());
+        boolean haySiguiente = ordenadas.size() > (long) consulta.getDesplazamiento() + consulta.getLimite();
+        return new PaginaTareas(List.copyOf(ordenadas.subList(desde, hasta)), consulta, haySiguiente);
+    }
+
+    private static Comparator<Tarea> comparador(ConsultaTareas.Orden orden, Map<Long, Integer> rango) {
+        Comparator<Tarea> porFecha = Comparator.comparingInt(PlanificadorConsultas::claveFecha);
+        Comparator<Tarea> porId = Comparator.comparingLong(Tarea::getId);
+        switch (orden) {
+            case PRIORIDAD:
+                return Comparator.comparingInt(PlanificadorConsultas::clavePrioridad).thenComparing(porFecha).thenComparing(porId);
+            case RELEVANCIA:
+                if (rango != null) {
+                    return Comparator.<Tarea>comparingInt(t -> rango.getOrDefault(t.getId(), Integer.MAX_VALUE)).thenComparing(porId);
+                }
+                return porId;
+            default:
+                return porFecha.thenComparing(porId);
+        }
+    }
+
+    // Las tareas sin fecha van después de todas las fechadas
+    private static int claveFecha(Tarea tarea) {
+        int fecha = tarea.getFechaLimiteEpochDay();
+        return fecha == Tarea.SIN_FECHA ? Integer.MAX_VALUE : fecha;
+    }
+
+    private static int clavePrioridad(Tarea tarea) {
+        return tarea.getPrioridad() == null ? Integer.MAX_VALUE : tarea.getPrioridad().ordinal();
+    }
+
+    // Criterios de la consulta en forma directamente comprobable sobre una tarea
+    private static final class Criterios {
+        final Prioridad prioridad;
+        final Boolean completada;
+        final boolean conFechas;
+        final int desde;
+        final int hasta;
+        final String texto;
+        Map<Long, Integer> rango; // Posición de cada id en el resultado de la búsqueda de texto
+
+        Criterios(ConsultaTareas consulta) {
+            prioridad = consulta.getPrioridad();
+            completada = consulta.getCompletada();
+            conFechas = consulta.getDesde() != null || consulta.getHasta() != null;
+            // SIN_FECHA es Integer.MIN_VALUE, así que el rango abierto por abajo empieza justo después
+            desde = consulta.getDesde() == null ? Tarea.SIN_FECHA + 1 : Tarea.diaEpochAcotado(consulta.getDesde());
+            hasta = consulta.getHasta() == null ? Integer.MAX_VALUE : Tarea.diaEpochAcotado(consulta.getHasta());
+            texto = consulta.getTexto() != null && IndiceTexto.tieneTerminos(consulta.getTexto()) ? consulta.getTexto() : null;
+        }
+
+        boolean cumple(Tarea tarea) {
+            if (prioridad != null && tarea.getPrioridad() != prioridad) {
+                return false;
+            }
+            if (completada != null && tarea.isCompletada() != completada) {
+                return false;
+            }
+            if (conFechas) {
+                int fecha = tarea.getFechaLimiteEpochDay();
+                if (fecha == Tarea.SIN_FECHA || fecha < desde || fecha > hasta) {
+                    return false;
+                }
+            }
+            return rango == null || rango.containsKey(tarea.getId());
+        }
+    }
+
+    // Las k primeras según el orden, con un montículo cuyo tope es la peor de las guardadas
+    private static final class MejoresTareas {
+        private final int capacidad;
+        private final Comparator<Tarea> orden;
+        private final PriorityQueue<Tarea> monticulo;
+
+        MejoresTareas(int capacidad, Comparator<Tarea> orden) {
+            this.capacidad = capacidad;
+            this.orden = orden;
+            this.monticulo = new PriorityQueue<>(Math.min(capacidad, 1024), orden.reversed());
+        }
+
+        void ofrecer(Tarea tarea) {
+            if (monticulo.size() < capacidad) {
+                monticulo.add(tarea);
+            } else if (orden.compare(tarea, monticulo.peek()) < 0) {
+                monticulo.poll();
+                monticulo.add(tarea);
+            }
+        }
+
+        List<Tarea> ordenadas() {
+            List<Tarea> resultado = new ArrayList<>(monticulo);
+            resultado.sort(orden);
+            return Collections.unmodifiableList(resultado);
+        }
+    }
+}
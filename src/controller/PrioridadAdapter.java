@@ -0,0 +1,30 @@
+package controller;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import model.Prioridad;
+
+import java.io.IOException;
+
+public class PrioridadAdapter extends TypeAdapter<Prioridad> {
+
+    @Override
+    public void write(JsonWriter jsonWriter, Prioridad prioridad) throws IOException {
+        if (prioridad == null) {
+            jsonWriter.nullValue();
+            return;
+        }
+        jsonWriter.value(prioridad.toString());
+    }
+
+    @Override
+    public Prioridad read(JsonReader jsonReader) throws IOException {
+        if (jsonReader.peek() == JsonToken.NULL) {
+            jsonReader.nextNull();
+            return null;
+        }
+        return Prioridad.buscar(jsonReader.nextString());
+    }
+}
@@ -0,0 +1,42 @@
+package controller;
+
+import java.time.Clock;
+import java.time.Instant;
+
+// Reloj lógico híbrido para ordenar los cambios de varios nodos sin depender de que sus relojes coincidan.
+// Cada marca empaqueta en un long: milisegundos desde EPOCA (41 bits), un contador para los cambios del mismo
+// milisegundo (12 bits) y el número de nodo (10 bits). Las marcas de un nodo siempre crecen, nunca quedan por
+// detrás de una marca ya recibida de otro nodo y dos nodos distintos nunca generan la misma.
+class RelojHibrido {
+    static final int BITS_NODO = 10;
+    static final int NODOS = 1 << BITS_NODO;
+    private static final int BITS_CONTADOR = 12;
+    private static final long EPOCA = Instant.parse("2024-01-01T00:00:00Z").toEpochMilli();
+
+    private final Clock reloj;
+    private final int nodo;
+    private long logico; // Última marca generada o vista, sin los bits de nodo
+
+    RelojHibrido(int nodo, Clock reloj) {
+        if (nodo < 0 || nodo >= NODOS) {
+            throw new IllegalArgumentException("El nodo debe estar entre 0 y " + (NODOS - 1) + ".");
+        }
+        this.nodo = nodo;
+        this.reloj = reloj;
+    }
+
+    synchronized long siguiente() {
+        long fisico = (reloj.millis() - EPOCA) << BITS_CONTADOR;
+        logico = Math.max(fisico, logico + 1); // Si el contador se desborda avanza al milisegundo siguiente
+        return (logico << BITS_NODO) | nodo;
+    }
+
+    // Método para que las marcas propias posteriores queden por delante de una recibida
+    synchronized void recibir(long marca) {
+        logico = Math.max(logico, marca >>> BITS_NODO);
+    }
+
+    static int nodoDe(long marca) {
+        return (int) (marca & (NODOS - 1));
+    }
+}
@@ -0,0 +1,629 @@
+package controller;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import exceptions.FilePersistenceException;
+import model.Prioridad;
+import model.Tarea;
+import util.Histograma;
+import util.MapaPersistente;
+import util.Metricas;
+
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Replicación entre varias instancias de TareaController que comparten un directorio.
+//
+// Cada nodo anexa sus cambios (DeltaTarea, una línea JSON) a su propio archivo cambios-<nodo>.jsonl y lee
+// periódicamente los de los demás desde donde se quedó. Los cambios se fusionan campo a campo: en cada campo
+// gana el de marca mayor (reloj híbrido), y una baja gana a las altas anteriores a ella. Como cada campo es un
+// máximo, el resultado no depende del orden en que lleguen los cambios ni de si llegan repetidos, así que todos
+// los nodos acaban con las mismas tareas.
+//
+// De vez en cuando cada nodo escribe instantanea-<nodo>.json con su estado de fusión y hasta dónde ha leído cada
+// archivo de cambios. Al arrancar parte de la suya y, si es un nodo nuevo, de la más reciente de otro: solo
+// hace falta leer los cambios posteriores.
+//
+// Los desplazamientos son lógicos: cuando el archivo propio crece demasiado, el nodo sigue escribiendo en
+// cambios-<nodo>-<desplazamiento>.jsonl, que empieza donde acababa el anterior, y borra los anteriores en cuanto
+// las instantáneas de todos los demás nodos muestran que ya los han leído enteros. Así los archivos de cambios no
+// crecen sin límite; un nodo que deja de funcionar sin borrar su instantánea impide borrar los de los demás.
+//
+// Lo protegido por el monitor (estado y cambios pendientes) también se toca bajo el cerrojo de escritura del
+// controlador; el orden es siempre primero el cerrojo y después el monitor.
+class Replicador {
+    public static final long INTERVALO_POR_DEFECTO_MS = 200;
+    public static final int CAMBIOS_POR_INSTANTANEA = 1000;
+
+    public static final long BYTES_POR_ARCHIVO = 4L << 20; // Tamaño a partir del cual se intenta rotar el archivo propio
+
+    private static final int TAMANO_BLOQUE = 64 * 1024; // Bytes leídos de cada vez de un archivo de cambios
+    private static final Pattern ARCHIVO_CAMBIOS = Pattern.compile("cambios-(\\d+)(?:-(\\d+))?\\.jsonl");
+    private static final Pattern ARCHIVO_INSTANTANEA = Pattern.compile("instantanea-(\\d+)\\.json");
+
+    private static final Histograma TIEMPO_RONDA = Metricas.histograma("replica.ronda.ns");
+    private static final Metricas.Contador ENVIADOS = Metricas.contador("replica.cambios.enviados");
+    private static final Metricas.Contador RECIBIDOS = Metricas.contador("replica.cambios.recibidos");
+    private static final Metricas.Contador ERRORES = Metricas.contador("replica.errores");
+
+    // Estado de fusión de una tarea: el último valor y su marca por campo, y las marcas de alta y baja.
+    // Es inmutable; fusionar devuelve otro registro (o el mismo si el cambio no aporta nada).
+    static final class Registro {
+        static final int TITULO = 0, DESCRIPCION = 1, FECHA = 2, PRIORIDAD = 3, COMPLETADA = 4;
+
+        final long id;
+        final String titulo;
+        final String descripcion;
+        final int fechaLimite;
+        final Prioridad prioridad;
+        final boolean completada;
+        final long[] marcas;
+        final long creada;
+        final long borrada;
+
+        private Registro(long id, String titulo, String descripcion, int fechaLimite, Prioridad prioridad,
+                         boolean completada, long[] marcas, long creada, long borrada) {
+            this.id = id;
+            this.titulo = titulo;
+            this.descripcion = descripcion;
+            this.fechaLimite = fechaLimite;
+            this.prioridad = prioridad;
+            this.completada = completada;
+            this.marcas = marcas;
+            this.creada = creada;
+            this.borrada = borrada;
+        }
+
+        static Registro vacio(long id) {
+            return new Registro(id, null, null, Tarea.SIN_FECHA, null, false, new long[5], 0, 0);
+        }
+
+        Registro fusionar(DeltaTarea delta) {
+            long m = delta.marca;
+            if (delta.borrada) {
+                return m > borrada ? new Registro(id, titulo, descripcion, fechaLimite, prioridad, completada, marcas, creada, m) : this;
+            }
+            long[] nuevas = marcas.clone();
+            boolean cambia = delta.alta && m > creada;
+            String t = titulo, d = descripcion;
+            int f = fechaLimite;
+            Prioridad p = prioridad;
+            boolean c = completada;
+            if (delta.titulo != null && m > nuevas[TITULO]) {
+                t = delta.titulo;
+                nuevas[TITULO] = m;
+                cambia = true;
+            }
+            if (delta.descripcion != null && m > nuevas[DESCRIPCION]) {
+                d = delta.descripcion;
+                nuevas[DESCRIPCION] = m;
+                cambia = true;
+            }
+            if (delta.fechaLimite != null && m > nuevas[FECHA]) {
+                f = delta.fechaLimite;
+                nuevas[FECHA] = m;
+                cambia = true;
+            }
+            if (delta.prioridad != null && m > nuevas[PRIORIDAD]) {
+                p = delta.prioridad;
+                nuevas[PRIORIDAD] = m;
+                cambia = true;
+            }
+            if (delta.completada != null && m > nuevas[COMPLETADA]) {
+                c = delta.completada;
+                nuevas[COMPLETADA] = m;
+                cambia = true;
+            }
+            return cambia ? new Registro(id, t, d, f, p, c, nuevas, delta.alta ? Math.max(creada, m) : creada, borrada) : this;
+        }
+
+        // La tarea tal como debe verse, o null si no existe (nunca se dio de alta o la baja es posterior al alta)
+        Tarea visible() {
+            if (creada == 0 || borrada > creada) {
+                return null;
+            }
+            return Tarea.restaurar(id, titulo, descripcion, fechaLimite, prioridad, completada);
+        }
+    }
+
+    // Formato de instantanea-<nodo>.json
+    private static final class Instantanea {
+        int nodo;
+        Map<Integer, Long> desplazamientos;
+        List<Registro> registros;
+    }
+
+    private final TareaController controller;
+    private final Path directorio;
+    private final int nodo;
+    private final RelojHibrido reloj;
+    private final long intervaloMs;
+    private final int cambiosPorInstantanea;
+    private final long bytesPorArchivo;
+    private final Gson gson = new Gson();
+    private final ScheduledExecutorService hilo;
+    private final AtomicBoolean cerrado = new AtomicBoolean();
+
+    // Protegidos por el monitor
+    private MapaPersistente<Registro> estado = MapaPersistente.vacio();
+    private List<DeltaTarea> pendientes = new ArrayList<>(); // Cambios locales aún sin escribir
+    private int cambiosDesdeInstantanea;
+
+    // Solo los usa el hilo de replicación (o iniciar, antes de arrancarlo)
+    private final Map<Integer, Long> desplazamientos = new HashMap<>(); // Bytes ya leídos de cada archivo de cambios
+    private FileChannel cambiosPropios;
+    private long basePropia; // Desplazamiento lógico en el que empieza el archivo propio
+
+    Replicador(TareaController controller, String directorio, int nodo) {
+        this.controller = controller;
+        this.directorio = Path.of(directorio);
+        this.nodo = nodo;
+        this.reloj = new RelojHibrido(nodo, Clock.systemUTC());
+        this.intervaloMs = Long.getLong("tareas.replica.intervaloMs", INTERVALO_POR_DEFECTO_MS);
+        this.cambiosPorInstantanea = Integer.getInteger("tareas.replica.cambiosPorInstantanea", CAMBIOS_POR_INSTANTANEA);
+        this.bytesPorArchivo = Long.getLong("tareas.replica.bytesPorArchivo", BYTES_POR_ARCHIVO);
+        this.hilo = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "replica-tareas");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    int getNodo() {
+        return nodo;
+    }
+
+    // Método para ponerse al día y empezar a replicar. Las tareas locales que el resto no conoce se publican
+    // como altas; las que sí conoce quedan como dice la fusión.
+    void iniciar() throws FilePersistenceException {
+        controller.getTareasCompletadas(); // Todas las tareas tienen que estar en memoria para compararlas
+        try {
+            Files.createDirectories(directorio);
+            boolean nodoNuevo = !Files.exists(directorio.resolve("instantanea-" + nodo + ".json"));
+            Instantanea base = leerInstantanea();
+            if (base != null) {
+                synchronized (this) {
+                    estado = MapaPersistente.desde(base.registros, r -> r.id);
+                }
+                desplazamientos.putAll(base.desplazamientos);
+            }
+            List<DeltaTarea> cambios = leerCambios(true);
+            // Se sigue escribiendo en el archivo propio más reciente; los anteriores se borran cuando los demás los leen
+            TreeMap<Long, Path> propios = archivosDeCambios().getOrDefault(nodo, new TreeMap<>());
+            basePropia = propios.isEmpty() ? 0 : propios.lastKey();
+            cambiosPropios = FileChannel.open(archivoCambios(basePropia), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            // Una línea propia a medias (corte durante una escritura) se descarta para no pegarle la siguiente
+            long leido = Math.max(desplazamientos.getOrDefault(nodo, 0L), basePropia);
+            if (cambiosPropios.size() > leido - basePropia) {
+                cambiosPropios.truncate(leido - basePropia);
+            }
+            cambiosPropios.position(leido - basePropia);
+            desplazamientos.put(nodo, leido);
+            controller.aplicarRemotos(tareas -> {
+                synchronized (this) {
+                    Map<Long, Tarea> objetivos = fusionar(cambios);
+                    estado.recorrer((id, registro) -> objetivos.put(id, registro.visible()));
+                    long[] ultimoId = {0};
+                    estado.recorrer((id, registro) -> ultimoId[0] = Math.max(ultimoId[0], id));
+                    tareas.recorrer((id, tarea) -> ultimoId[0] = Math.max(ultimoId[0], id));
+                    tareas.recorrer((id, tarea) -> {
+                        Registro registro = estado.obtener(id);
+                        if (registro == null) {
+                            cambioLocal(id, null, tarea); // Creada aquí sin replicar: se envía como alta
+                        } else if (nodoNuevo && !mismoContenido(registro.visible(), tarea)) {
+                            // Un nodo nuevo puede traer tareas propias con ids que el resto ya usa para otras:
+                            // la del resto se queda con el id y la local pasa a uno nuevo de este nodo
+                            ultimoId[0] = (((ultimoId[0] >> RelojHibrido.BITS_NODO) + 1) << RelojHibrido.BITS_NODO) | nodo;
+                            Tarea copia = tarea.conId(ultimoId[0]);
+                            objetivos.put(copia.getId(), copia);
+                            cambioLocal(copia.getId(), null, copia);
+                        }
+                    });
+                    return objetivos;
+                }
+            });
+        } catch (IOException e) {
+            throw new FilePersistenceException("Error al iniciar la replicación en " + directorio + ".", e);
+        }
+        escribirInstantanea();
+        hilo.scheduleWithFixedDelay(this::ronda, intervaloMs, intervaloMs, TimeUnit.MILLISECONDS);
+    }
+
+    // Se llama con el cerrojo de escritura del controlador tomado, después de aplicar el cambio
+    synchronized void cambioLocal(long id, Tarea anterior, Tarea nueva) {
+        DeltaTarea delta = DeltaTarea.entre(reloj.siguiente(), id, anterior, nueva);
+        if (delta == null) {
+            return;
+        }
+        Registro registro = estado.obtener(id);
+        estado = estado.con(id, (registro == null ? Registro.vacio(id) : registro).fusionar(delta));
+        pendientes.add(delta);
+        cambiosDesdeInstantanea++;
+    }
+
+    static boolean mismoContenido(Tarea a, Tarea b) {
+        if (a == null || b == null) {
+            return a == b;
+        }
+        return DeltaTarea.entre(0, a.getId(), a, b) == null;
+    }
+
+    // Método para escribir lo pendiente, dejar una instantánea y parar el hilo
+    void cerrar() throws FilePersistenceException {
+        if (!cerrado.compareAndSet(false, true)) {
+            return; // Ya cerrado (por ejemplo, a mano y después desde el gancho de apagado)
+        }
+        hilo.shutdown();
+        try {
+            hilo.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        escribirInstantanea();
+        try {
+            cambiosPropios.close();
+        } catch (IOException e) {
+            throw new FilePersistenceException("Error al cerrar el archivo de cambios.", e);
+        }
+    }
+
+    private void ronda() {
+        long inicio = Metricas.inicio();
+        try {
+            escribir(sacarPendientes());
+            List<DeltaTarea> cambios = leerCambios(false);
+            if (!cambios.isEmpty()) {
+                controller.aplicarRemotos(tareas -> fusionar(cambios));
+            }
+            boolean toca;
+            synchronized (this) {
+                toca = cambiosDesdeInstantanea >= cambiosPorInstantanea;
+            }
+            if (toca) {
+                escribirInstantanea();
+                rotarSiHaceFalta();
+            }
+        } catch (IOException | FilePersistenceException | RuntimeException e) {
+            ERRORES.incrementar();
+            System.out.println("Error en la replicación de tareas: " + e.getMessage());
+        } finally {
+            TIEMPO_RONDA.registrarDesde(inicio);
+        }
+    }
+
+    // Se llama con el cerrojo de escritura del controlador tomado. Devuelve cómo deben quedar las tareas que cambiaron.
+    private synchronized Map<Long, Tarea> fusionar(List<DeltaTarea> cambios) {
+        Map<Long, Tarea> objetivos = new LinkedHashMap<>();
+        MapaPersistente<Registro> fusionado = estado;
+        for (DeltaTarea delta : cambios) {
+            reloj.recibir(delta.marca);
+            Registro registro = fusionado.obtener(delta.id);
+            if (registro == null) {
+                registro = Registro.vacio(delta.id);
+            }
+            Registro nuevo = registro.fusionar(delta);
+            if (nuevo != registro) {
+                fusionado = fusionado.con(delta.id, nuevo);
+                objetivos.put(delta.id, nuevo.visible());
+            }
+        }
+        estado = fusionado;
+        cambiosDesdeInstantanea += cambios.size();
+        RECIBIDOS.sumar(cambios.size());
+        return objetivos;
+    }
+
+    private synchronized List<DeltaTarea> sacarPendientes() {
+        List<DeltaTarea> lote = pendientes;
+        pendientes = new ArrayList<>();
+        return lote;
+    }
+
+    // Anexa los cambios locales al archivo propio. Si falla, vuelven a la cola en su orden para el siguiente intento.
+    private void escribir(List<DeltaTarea> lote) throws IOException {
+        if (lote.isEmpty()) {
+            return;
+        }
+        StringBuilder lineas = new StringBuilder();
+        for (DeltaTarea delta : lote) {
+            lineas.append(gson.toJson(delta)).append('\n');
+        }
+        ByteBuffer bytes = ByteBuffer.wrap(lineas.toString().getBytes(StandardCharsets.UTF_8));
+        long leido = desplazamientos.get(nodo);
+        try {
+            cambiosPropios.position(leido - basePropia);
+            while (bytes.hasRemaining()) {
+                cambiosPropios.write(bytes);
+            }
+            cambiosPropios.force(false);
+        } catch (IOException e) {
+            cambiosPropios.truncate(leido - basePropia);
+            synchronized (this) {
+                lote.addAll(pendientes);
+                pendientes = lote;
+            }
+            throw e;
+        }
+        desplazamientos.put(nodo, leido + bytes.limit());
+        ENVIADOS.sumar(lote.size());
+    }
+
+    // Lee lo nuevo de los archivos de cambios de los demás nodos (y del propio, al arrancar)
+    private List<DeltaTarea> leerCambios(boolean incluirPropio) throws IOException {
+        List<DeltaTarea> cambios = new ArrayList<>();
+        for (Map.Entry<Integer, TreeMap<Long, Path>> archivos : archivosDeCambios().entrySet()) {
+            int otro = archivos.getKey();
+            if (otro == nodo && !incluirPropio) {
+                continue;
+            }
+            long leido = desplazamientos.getOrDefault(otro, 0L);
+            for (Map.Entry<Long, Path> archivo : archivos.getValue().entrySet()) {
+                Long siguiente = archivos.getValue().higherKey(archivo.getKey());
+                if (siguiente != null && leido >= siguiente) {
+                    continue; // Ya leído entero; el nodo lo borrará en cuanto lo vea
+                }
+                // Cada archivo acaba justo donde empieza el siguiente y solo se borra cuando todos lo han leído,
+                // así que esto no salta nada salvo una línea a medias que nunca se completó
+                leido = Math.max(leido, archivo.getKey());
+                try {
+                    leido = leerDesde(archivo.getValue(), archivo.getKey(), leido, cambios);
+                } catch (NoSuchFileException e) {
+                    // Lo ha borrado su nodo al rotar mientras tanto: se sigue con el siguiente
+                }
+            }
+            desplazamientos.put(otro, leido);
+        }
+        return cambios;
+    }
+
+    // Archivos de cambios por nodo, ordenados por el desplazamiento lógico en el que empieza cada uno
+    private Map<Integer, TreeMap<Long, Path>> archivosDeCambios() throws IOException {
+        Map<Integer, TreeMap<Long, Path>> porNodo = new HashMap<>();
+        try (DirectoryStream<Path> archivos = Files.newDirectoryStream(directorio, "cambios-*.jsonl")) {
+            for (Path archivo : archivos) {
+                Matcher m = ARCHIVO_CAMBIOS.matcher(archivo.getFileName().toString());
+                if (m.matches()) {
+                    long base = m.group(2) == null ? 0 : Long.parseLong(m.group(2));
+                    porNodo.computeIfAbsent(Integer.parseInt(m.group(1)), n -> new TreeMap<>()).put(base, archivo);
+                }
+            }
+        }
+        return porNodo;
+    }
+
+    private Path archivoCambios(long base) {
+        return directorio.resolve(base == 0 ? "cambios-" + nodo + ".jsonl" : "cambios-" + nodo + "-" + base + ".jsonl");
+    }
+
+    // Lee por bloques de tamaño fijo desde el desplazamiento lógico desde (el archivo empieza en base) y devuelve
+    // hasta dónde ha leído. Una línea partida entre dos bloques se completa con el siguiente; solo se leen líneas
+    // completas, así que una que el otro nodo está escribiendo se leerá en la ronda siguiente.
+    private long leerDesde(Path archivo, long base, long desde, List<DeltaTarea> cambios) throws IOException {
+        try (FileChannel canal = FileChannel.open(archivo, StandardOpenOption.READ)) {
+            long tamano = canal.size(); // Lo que se anexe mientras tanto queda para la ronda siguiente
+            long finLinea = desde - base; // Posición tras la última línea completa
+            long posicion = finLinea;
+            ByteBuffer bloque = ByteBuffer.allocate(TAMANO_BLOQUE);
+            ByteArrayOutputStream partida = new ByteArrayOutputStream();
+            while (posicion < tamano) {
+                bloque.clear();
+                bloque.limit((int) Math.min(TAMANO_BLOQUE, tamano - posicion));
+                int leidos = canal.read(bloque, posicion);
+                if (leidos < 0) {
+                    break;
+                }
+                byte[] bytes = bloque.array();
+                int inicioLinea = 0;
+                for (int i = 0; i < leidos; i++) {
+                    if (bytes[i] != '\n') {
+                        continue;
+                    }
+                    String linea;
+                    if (partida.size() > 0) {
+                        partida.write(bytes, inicioLinea, i - inicioLinea);
+                        linea = partida.toString(StandardCharsets.UTF_8);
+                        partida.reset();
+                    } else {
+                        linea = new String(bytes, inicioLinea, i - inicioLinea, StandardCharsets.UTF_8);
+                    }
+                    inicioLinea = i + 1;
+                    finLinea = posicion + inicioLinea;
+                    interpretar(archivo, linea, cambios);
+                }
+                partida.write(bytes, inicioLinea, leidos - inicioLinea);
+                posicion += leidos;
+            }
+            return base + finLinea;
+        }
+    }
+
+    private void interpretar(Path archivo, String linea, List<DeltaTarea> cambios) {
+        try {
+            DeltaTarea delta = gson.fromJson(linea, DeltaTarea.class);
+            if (delta != null) {
+                cambios.add(delta);
+            }
+        } catch (JsonParseException e) {
+            ERRORES.incrementar();
+            System.out.println("Cambio ilegible en " + archivo.getFileName() + ": " + e.getMessage());
+        }
+    }
+
+    // Se llama justo después de escribir la instantánea propia, que ya anota el desplazamiento actual. Si el archivo
+    // propio es grande se empieza otro en ese desplazamiento; los anteriores se borran cuando la instantánea de cada
+    // uno de los demás nodos dice que los ha leído enteros.
+    private void rotarSiHaceFalta() throws IOException {
+        long fin = desplazamientos.get(nodo);
+        if (fin - basePropia >= bytesPorArchivo) {
+            FileChannel nuevo = FileChannel.open(archivoCambios(fin), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            cambiosPropios.close();
+            cambiosPropios = nuevo;
+            basePropia = fin;
+        }
+        TreeMap<Long, Path> propios = archivosDeCambios().getOrDefault(nodo, new TreeMap<>());
+        if (propios.size() < 2) {
+            return;
+        }
+        long leidoPorTodos = leidoPorTodos();
+        for (Map.Entry<Long, Path> archivo : propios.headMap(basePropia).entrySet()) {
+            if (propios.higherKey(archivo.getKey()) <= leidoPorTodos) { // Donde empieza el siguiente acaba este
+                Files.deleteIfExists(archivo.getValue());
+            }
+        }
+    }
+
+    // Lo mínimo que han leído de los cambios propios los demás nodos según sus instantáneas
+    private long leidoPorTodos() throws IOException {
+        Set<Integer> otros = new HashSet<>(archivosDeCambios().keySet());
+        Map<Integer, Path> instantaneas = new HashMap<>();
+        try (DirectoryStream<Path> archivos = Files.newDirectoryStream(directorio, "instantanea-*.json")) {
+            for (Path archivo : archivos) {
+                Matcher m = ARCHIVO_INSTANTANEA.matcher(archivo.getFileName().toString());
+                if (m.matches()) {
+                    instantaneas.put(Integer.parseInt(m.group(1)), archivo);
+                }
+            }
+        }
+        otros.addAll(instantaneas.keySet());
+        otros.remove(nodo);
+        long minimo = Long.MAX_VALUE;
+        for (int otro : otros) {
+            Path instantanea = instantaneas.get(otro);
+            // Un nodo con cambios pero sin instantánea no ha dicho todavía hasta dónde ha leído
+            minimo = Math.min(minimo, instantanea == null ? 0 : leidoPor(instantanea));
+        }
+        return minimo;
+    }
+
+    // Hasta dónde dice una instantánea ajena que ha leído los cambios de este nodo. Solo se leen los campos del
+    // principio: los registros, que van detrás, no hacen falta.
+    private long leidoPor(Path instantanea) throws IOException {
+        try (JsonReader json = new JsonReader(Files.newBufferedReader(instantanea, StandardCharsets.UTF_8))) {
+            json.beginObject();
+            while (json.hasNext()) {
+                if (!json.nextName().equals("desplazamientos")) {
+                    json.skipValue();
+                    continue;
+                }
+                long leido = 0;
+                json.beginObject();
+                while (json.hasNext()) {
+                    if (Integer.parseInt(json.nextName()) == nodo) {
+                        leido = json.nextLong();
+                    } else {
+                        json.skipValue();
+                    }
+                }
+                return leido;
+            }
+            return 0;
+        } catch (NoSuchFileException e) {
+            return Long.MAX_VALUE; // Se borró: ese nodo ya no participa
+        } catch (IllegalStateException | NumberFormatException e) {
+            throw new IOException("Instantánea ilegible: " + instantanea.getFileName(), e);
+        }
+    }
+
+    // La propia si existe; si no (nodo nuevo), la más reciente de otro nodo; null si no hay ninguna
+    private Instantanea leerInstantanea() throws IOException {
+        Path elegida = directorio.resolve("instantanea-" + nodo + ".json");
+        if (!Files.exists(elegida)) {
+            elegida = null;
+            try (DirectoryStream<Path> archivos = Files.newDirectoryStream(directorio, "instantanea-*.json")) {
+                for (Path archivo : archivos) {
+                    if (ARCHIVO_INSTANTANEA.matcher(archivo.getFileName().toString()).matches() && (elegida == null
+                            || Files.getLastModifiedTime(archivo).compareTo(Files.getLastModifiedTime(elegida)) > 0)) {
+                        elegida = archivo;
+                    }
+                }
+            }
+        }
+        if (elegida == null) {
+            return null;
+        }
+        try (Reader lector = Files.newBufferedReader(elegida, StandardCharsets.UTF_8)) {
+            Instantanea instantanea = gson.fromJson(lector, Instantanea.class);
+            if (instantanea.desplazamientos == null) {
+                instantanea.desplazamientos = new HashMap<>();
+            }
+            if (instantanea.registros == null) {
+                instantanea.registros = new ArrayList<>();
+            }
+            long maxima = 0;
+            for (Registro registro : instantanea.registros) {
+                maxima = Math.max(maxima, Math.max(registro.creada, registro.borrada));
+            }
+            reloj.recibir(maxima);
+            return instantanea;
+        } catch (JsonParseException e) {
+            throw new IOException("Instantánea ilegible: " + elegida.getFileName(), e);
+        }
+    }
+
+    // El estado y los cambios pendientes se toman a la vez, así que la instantánea incluye justo lo que hay en el
+    // archivo propio hasta el desplazamiento que anota. Se escribe en un temporal y se renombra.
+    private void escribirInstantanea() throws FilePersistenceException {
+        MapaPersistente<Registro> copia;
+        List<DeltaTarea> lote;
+        synchronized (this) {
+            copia = estado;
+            lote = pendientes;
+            pendientes = new ArrayList<>();
+            cambiosDesdeInstantanea = 0;
+        }
+        Path destino = directorio.resolve("instantanea-" + nodo + ".json");
+        Path temporal = directorio.resolve("instantanea-" + nodo + ".json.tmp");
+        try {
+            escribir(lote);
+            try (FileChannel canal = FileChannel.open(temporal,
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                Writer salida = new BufferedWriter(Channels.newWriter(canal, StandardCharsets.UTF_8));
+                JsonWriter json = new JsonWriter(salida);
+                json.beginObject();
+                json.name("nodo").value(nodo);
+                json.name("desplazamientos");
+                gson.toJson(desplazamientos, Map.class, json);
+                json.name("registros").beginArray();
+                copia.recorrer((id, registro) -> gson.toJson(registro, Registro.class, json));
+                json.endArray();
+                json.endObject();
+                json.flush();
+                canal.force(true);
+            }
+            Files.move(temporal, destino, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            ERRORES.incrementar();
+            throw new FilePersistenceException("Error al guardar la instantánea de replicación.", e);
+        }
+    }
+}
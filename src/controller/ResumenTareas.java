@@ -0,0 +1,54 @@
+package controller;
+
+import model.Prioridad;
+
+// Cifras agregadas de las tareas en un momento dado, para paneles y la API: se obtienen de los contadores
+// que el controlador mantiene en cada cambio, sin recorrer las tareas
+public class ResumenTareas {
+    private final int pendientes;
+    private final int completadas;
+    private final int[] pendientesPorPrioridad;
+    private final int[] completadasPorPrioridad;
+    private final int sinFecha;
+    private final int vencidas;
+    private final int vencenHoy;
+    private final int vencenEstaSemana;
+    private final int[] completadasPorDia;
+
+    ResumenTareas(int pendientes, int completadas, int[] pendientesPorPrioridad, int[] completadasPorPrioridad,
+                  int sinFecha, int vencidas, int vencenHoy, int vencenEstaSemana, int[] completadasPorDia) {
+        this.pendientes = pendientes;
+        this.completadas = completadas;
+        this.pendientesPorPrioridad = pendientesPorPrioridad;
+        this.completadasPorPrioridad = completadasPorPrioridad;
+        this.sinFecha = sinFecha;
+        this.vencidas = vencidas;
+        this.vencenHoy = vencenHoy;
+        this.vencenEstaSemana = vencenEstaSemana;
+        this.completadasPorDia = completadasPorDia;
+    }
+
+    public int getPendientes() { return pendientes; }
+    public int getCompletadas() { return completadas; }
+    public int getTotal() { return pendientes + completadas; }
+    public int getPendientes(Prioridad prioridad) { return pendientesPorPrioridad[prioridad.ordinal()]; }
+    public int getCompletadas(Prioridad prioridad) { return completadasPorPrioridad[prioridad.ordinal()]; }
+    public int getSinFecha() { return sinFecha; }
+
+    // Pendientes con fecha límite anterior a hoy
+    public int getVencidas() { return vencidas; }
+    public int getVencenHoy() { return vencenHoy; }
+
+    // Pendientes que vencen desde hoy hasta el domingo, ambos incluidos
+    public int getVencenEstaSemana() { return vencenEstaSemana; }
+
+    // Fracción de las tareas que están completadas (0 si no hay ninguna)
+    public double getTasaCompletado() {
+        int total = getTotal();
+        return total == 0 ? 0 : completadas / (double) total;
+    }
+
+    // Tareas completadas cada día (menos las reabiertas), de la más antigua a hoy. Solo se cuentan
+    // las completadas desde que arrancó la aplicación: el modelo no guarda cuándo se completó cada una.
+    public int[] getCompletadasPorDia() { return completadasPorDia.clone(); }
+}
@@ -0,0 +1,187 @@
+package controller;
+
+import model.Tarea;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+// Avisos de fecha límite para las tareas pendientes. Cada tarea con fecha tiene dos eventos en una cola ordenada
+// por día: "próxima a vencer" (diasAviso días antes) y "vencida" (el día siguiente a su fecha límite).
+// El controlador la mantiene al día en cada alta, edición, completado y baja (O(log n) por cambio); un único hilo
+// duerme hasta el primer evento de la cola, así que nunca se recorren todas las tareas para ver cuáles vencen.
+class ServicioVencimientos {
+    public static final int DIAS_AVISO_POR_DEFECTO = 1;
+    // Tope de cada espera: si el reloj del sistema cambia o el equipo se suspende, la cola se vuelve a mirar pronto
+    private static final long ESPERA_MAXIMA_MS = TimeUnit.HOURS.toMillis(1);
+
+    private enum Tipo { PROXIMA, VENCIDA }
+
+    private static final class Evento {
+        final long dia; // Día epoch en que se dispara
+        final Tipo tipo;
+        final Tarea tarea;
+
+        Evento(long dia, Tipo tipo, Tarea tarea) {
+            this.dia = dia;
+            this.tipo = tipo;
+            this.tarea = tarea;
+        }
+    }
+
+    // Un árbol en lugar de un montículo: quitar los eventos de una tarea editada o eliminada también es O(log n)
+    private final TreeSet<Evento> cola = new TreeSet<>(Comparator.<Evento>comparingLong(e -> e.dia)
+            .thenComparing(e -> e.tipo)
+            .thenComparingLong(e -> e.tarea.getId()));
+    private final Map<Long, Evento[]> eventosPorTarea = new HashMap<>();
+    private final List<OyenteVencimientos> oyentes = new CopyOnWriteArrayList<>();
+    private final Clock reloj;
+    private final int diasAviso;
+    private ScheduledExecutorService hilo; // Se crea con el primer oyente: sin nadie escuchando no hay nada que avisar
+    private ScheduledFuture<?> siguiente;
+    private long diaProgramado = Long.MAX_VALUE;
+    private boolean cerrado;
+
+    ServicioVencimientos(int diasAviso) {
+        this(diasAviso, Clock.systemDefaultZone());
+    }
+
+    ServicioVencimientos(int diasAviso, Clock reloj) {
+        this.diasAviso = Math.max(0, diasAviso);
+        this.reloj = reloj;
+    }
+
+    public int getDiasAviso() {
+        return diasAviso;
+    }
+
+    // Los avisos que ya tocaban (tareas vencidas al arrancar, por ejemplo) le llegan al primer oyente nada más registrarse
+    public synchronized void agregarOyente(OyenteVencimientos oyente) {
+        oyentes.add(oyente);
+        if (hilo == null && !cerrado) {
+            hilo = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "avisos-vencimiento");
+                t.setDaemon(true);
+                return t;
+            });
+            diaProgramado = Long.MAX_VALUE;
+            reprogramar();
+        }
+    }
+
+    public void quitarOyente(OyenteVencimientos oyente) {
+        oyentes.remove(oyente);
+    }
+
+    // Método para (re)programar los avisos de una tarea pendiente; sustituye a los que tuviera
+    public synchronized void programar(Tarea tarea) {
+        quitarEventos(tarea.getId());
+        int fecha = tarea.getFechaLimiteEpochDay();
+        if (fecha == Tarea.SIN_FECHA || tarea.isCompletada()) {
+            reprogramar();
+            return;
+        }
+        Evento[] eventos = {
+                new Evento((long) fecha - diasAviso, Tipo.PROXIMA, tarea),
+                new Evento((long) fecha + 1, Tipo.VENCIDA, tarea)
+        };
+        for (Evento evento : eventos) {
+            cola.add(evento);
+        }
+        eventosPorTarea.put(tarea.getId(), eventos);
+        reprogramar();
+    }
+
+    // Método para dejar de avisar de una tarea (completada o eliminada)
+    public synchronized void cancelar(long id) {
+        if (quitarEventos(id)) {
+            reprogramar();
+        }
+    }
+
+    public synchronized void cerrar() {
+        cerrado = true;
+        if (hilo != null) {
+            hilo.shutdownNow();
+        }
+    }
+
+    private boolean quitarEventos(long id) {
+        Evento[] anteriores = eventosPorTarea.remove(id);
+        if (anteriores == null) {
+            return false;
+        }
+        for (Evento evento : anteriores) {
+            cola.remove(evento);
+        }
+        return true;
+    }
+
+    // Se llama con el monitor tomado. Solo cambia la espera si el primer evento de la cola ya no es el programado.
+    private void reprogramar() {
+        if (hilo == null || cerrado) {
+            return;
+        }
+        long primero = cola.isEmpty() ? Long.MAX_VALUE : cola.first().dia;
+        if (primero == diaProgramado && siguiente != null && !siguiente.isDone()) {
+            return;
+        }
+        if (siguiente != null) {
+            siguiente.cancel(false);
+        }
+        diaProgramado = primero;
+        long espera = ESPERA_MAXIMA_MS;
+        if (primero != Long.MAX_VALUE) {
+            long inicioDelDia = LocalDate.ofEpochDay(primero).atStartOfDay(reloj.getZone()).toInstant().toEpochMilli();
+            espera = Math.min(ESPERA_MAXIMA_MS, Math.max(0, inicioDelDia - reloj.millis()));
+        }
+        siguiente = hilo.schedule(this::disparar, espera, TimeUnit.MILLISECONDS);
+    }
+
+    // Se ejecuta en el hilo de avisos: saca los eventos que ya tocan y avisa fuera del monitor
+    private void disparar() {
+        Map<Long, Tarea> proximas = new LinkedHashMap<>();
+        Map<Long, Tarea> vencidas = new LinkedHashMap<>();
+        synchronized (this) {
+            long hoy = LocalDate.now(reloj).toEpochDay();
+            while (!cola.isEmpty() && cola.first().dia <= hoy) {
+                Evento evento = cola.pollFirst();
+                long id = evento.tarea.getId();
+                if (evento.tipo == Tipo.VENCIDA) {
+                    eventosPorTarea.remove(id); // Ya no le queda ningún evento
+                    proximas.remove(id); // Si ya está vencida, el aviso previo sobra
+                    vencidas.put(id, evento.tarea);
+                } else {
+                    proximas.put(id, evento.tarea);
+                }
+            }
+            diaProgramado = Long.MIN_VALUE; // Obliga a programar la siguiente espera
+            reprogramar();
+        }
+        List<Tarea> listaProximas = List.copyOf(proximas.values());
+        List<Tarea> listaVencidas = List.copyOf(vencidas.values());
+        for (OyenteVencimientos oyente : oyentes) {
+            try {
+                if (!listaProximas.isEmpty()) {
+                    oyente.proximasAVencer(listaProximas);
+                }
+                if (!listaVencidas.isEmpty()) {
+                    oyente.vencidas(listaVencidas);
+                }
+            } catch (RuntimeException e) {
+                System.out.println("Error en un aviso de vencimiento: " + e.getMessage());
+            }
+        }
+    }
+}
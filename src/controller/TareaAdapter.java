@@ -0,0 +1,93 @@
+package controller;
+
+import com.google.gson.JsonParseException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import exceptions.InvalidDataException;
+import model.Prioridad;
+import model.Tarea;
+
+import java.io.IOException;
+import java.time.LocalDate;
+
+// Serializa Tarea campo a campo, manteniendo el formato JSON original (fecha ISO y prioridad como texto)
+public class TareaAdapter extends TypeAdapter<Tarea> {
+    private final LocalDateAdapter fechaAdapter = new LocalDateAdapter();
+    private final PrioridadAdapter prioridadAdapter = new PrioridadAdapter();
+
+    @Override
+    public void write(JsonWriter jsonWriter, Tarea tarea) throws IOException {
+        if (tarea == null) {
+            jsonWriter.nullValue();
+            return;
+        }
+        jsonWriter.beginObject();
+        jsonWriter.name("id").value(tarea.getId());
+        jsonWriter.name("titulo").value(tarea.getTitulo());
+        jsonWriter.name("descripcion").value(tarea.getDescripcion());
+        jsonWriter.name("fechaLimite");
+        LocalDate fechaLimite = tarea.getFechaLimite();
+        if (fechaLimite == null) {
+            jsonWriter.nullValue();
+        } else {
+            fechaAdapter.write(jsonWriter, fechaLimite);
+        }
+        jsonWriter.name("prioridad");
+        prioridadAdapter.write(jsonWriter, tarea.getPrioridad());
+        jsonWriter.name("completada").value(tarea.isCompletada());
+        jsonWriter.endObject();
+    }
+
+    @Override
+    public Tarea read(JsonReader jsonReader) throws IOException {
+        if (jsonReader.peek() == JsonToken.NULL) {
+            jsonReader.nextNull();
+            return null;
+        }
+        long id = 0; // Los archivos anteriores a los ids no traen este campo
+        String titulo = null;
+        String descripcion = null;
+        int fechaLimite = Tarea.SIN_FECHA;
+        Prioridad prioridad = null;
+        boolean completada = false;
+
+        jsonReader.beginObject();
+        while (jsonReader.hasNext()) {
+            String campo = jsonReader.nextName();
+            if (jsonReader.peek() == JsonToken.NULL) {
+                jsonReader.nextNull();
+                continue;
+            }
+            switch (campo) {
+                case "id":
+                    id = jsonReader.nextLong();
+                    break;
+                case "titulo":
+                    titulo = jsonReader.nextString();
+                    break;
+                case "descripcion":
+                    descripcion = jsonReader.nextString();
+                    break;
+                case "fechaLimite":
+                    try {
+                        fechaLimite = Tarea.diaEpoch(fechaAdapter.read(jsonReader));
+                    } catch (InvalidDataException e) {
+                        throw new JsonParseException(e.getMessage(), e);
+                    }
+                    break;
+                case "prioridad":
+                    prioridad = prioridadAdapter.read(jsonReader);
+                    break;
+                case "completada":
+                    completada = jsonReader.nextBoolean();
+                    break;
+                default:
+                    jsonReader.skipValue(); // Campos desconocidos se ignoran, como hacía Gson por reflexión
+            }
+        }
+        jsonReader.endObject();
+        return Tarea.restaurar(id, titulo, descripcion, fechaLimite, prioridad, completada);
+    }
+}
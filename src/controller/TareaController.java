@@ -1,106 +1,928 @@
 package controller;
 
+import model.Prioridad;
 import model.Tarea;
+import util.EscritorAsincrono;
+import util.ExportadorTareas;
 import util.FileManager;
+import util.Histograma;
+import util.MapaPersistente;
+import util.Metricas;
+import util.ImportadorTareas;
+import util.CambiosInstantanea;
+import util.RegistroDiario;
+import util.ResultadoImportacion;
 import exceptions.FilePersistenceException;
 import exceptions.InvalidDataException;
 
+import java.time.DayOfWeek;
 import java.time.LocalDate;
-import java.util.List;
+import java.time.temporal.TemporalAdjusters;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
+// El controlador puede usarse desde varios hilos: las lecturas (filtros, instantáneas) comparten el cerrojo
+// de lectura y se ejecutan en paralelo; cada mutación toma el cerrojo de escritura y actualiza listas,
+// índices y diario como una única operación atómica.
+// Las tareas guardadas no se modifican nunca: editar o completar sustituye la tarea por una copia cambiada.
+// Así cada versión del mapa persistente de tareas es una instantánea real y el historial puede deshacer y rehacer.
 public class TareaController {
     
-    private List<Tarea> tareas;
-    private List<Tarea> tareasCompletadas; // Lista para tareas completadas
+    // Tareas por id en orden de inserción: buscar, editar y eliminar cuestan O(1)
+    private final Map<Long, Tarea> tareas = new LinkedHashMap<>();
+    private volatile Map<Long, Tarea> tareasCompletadas; // Tareas completadas; se cargan del archivo la primera vez que se piden
     private FileManager fileManager;
+    private final EscritorAsincrono escritor; // Escribe el diario en segundo plano
+    private final Map<Long, Tarea> cambiosCompletadasSinCargar = new LinkedHashMap<>(); // Completadas tocadas antes de cargar su archivo
+    private final IndiceTareas indice = new IndiceTareas(); // Índices para los filtros
+    private final IndiceTexto indiceTexto = new IndiceTexto(); // Búsqueda por palabras en título y descripción
+    private final EstadisticasTareas estadisticas = new EstadisticasTareas(LocalDate.now().toEpochDay()); // Contadores para el panel de estadísticas
+    // Todas las tareas conocidas por id, en un mapa persistente: se lee sin cerrojo y cada mutación publica una versión nueva
+    private volatile MapaPersistente<Tarea> tareasPorId = MapaPersistente.vacio();
+    private final HistorialCambios historial = new HistorialCambios(
+            Integer.getInteger("tareas.historial", HistorialCambios.TAMANO_POR_DEFECTO)); // Cambios que se pueden deshacer
+    private final PlanificadorConsultas planificador = new PlanificadorConsultas(indice, indiceTexto, this::buscarPorId);
+    private final ServicioVencimientos vencimientos = new ServicioVencimientos(
+            Integer.getInteger("tareas.diasAviso", ServicioVencimientos.DIAS_AVISO_POR_DEFECTO)); // Avisos de fecha límite
+    private final AtomicLong secuenciaIds = new AtomicLong();
+    private final ReadWriteLock cerrojo = new ReentrantReadWriteLock();
+    private volatile Replicador replicador; // Solo si se comparten las tareas con otras instancias
+    private boolean aplicandoRemotos; // Los cambios de otros nodos no se vuelven a publicar
+    private final List<OyenteCambios> oyentesCambios = new CopyOnWriteArrayList<>();
+
+    // Instantáneas inmutables que se reconstruyen solo tras una mutación
+    private volatile List<Tarea> instantaneaPendientes;
+    private volatile List<Tarea> instantaneaCompletadas;
+    private volatile long version; // Aumenta con cada cambio; sirve de ETag a la API HTTP
 
+    public static final String RUTA_POR_DEFECTO = "src/model/persistence/tareas.json";
+    public static final int DIAS_RESUMEN = 14; // Días de completadas que trae el resumen de estadísticas
+
+    // Métricas (solo miden si están activadas; ver util.Metricas)
+    private static final Histograma TIEMPO_AGREGAR = Metricas.histograma("controller.agregar.ns");
+    private static final Histograma TIEMPO_AGREGAR_LOTE = Metricas.histograma("controller.agregarLote.ns");
+    private static final Histograma TAMANO_LOTE = Metricas.histograma("controller.agregarLote.tareas");
+    private static final Histograma TIEMPO_EDITAR = Metricas.histograma("controller.editar.ns");
+    private static final Histograma TIEMPO_ELIMINAR = Metricas.histograma("controller.eliminar.ns");
+    private static final Histograma TIEMPO_COMPLETAR = Metricas.histograma("controller.completar.ns");
+    private static final Histograma TIEMPO_CARGAR_COMPLETADAS = Metricas.histograma("controller.cargarCompletadas.ns");
+    private static final Histograma TIEMPO_IMPORTAR = Metricas.histograma("controller.importar.ns");
+    private static final Histograma TIEMPO_EXPORTAR = Metricas.histograma("controller.exportar.ns");
+    private static final Histograma TIEMPO_RESUMEN = Metricas.histograma("controller.resumen.ns");
+    private static final Metricas.Contador ERRORES = Metricas.contador("controller.errores");
+    private static final Medida FILTRO_ESTADO = new Medida("filtrarPorEstado");
+    private static final Medida FILTRO_PRIORIDAD = new Medida("filtrarPorPrioridad");
+    private static final Medida FILTRO_FECHA = new Medida("filtrarPorFechaLimite");
+    private static final Medida FILTRO_RANGO = new Medida("filtrarPorRangoFechas");
+    private static final Medida FILTRO_VENCIDAS = new Medida("filtrarVencidas");
+    private static final Medida BUSQUEDA_TEXTO = new Medida("buscarTexto");
+    private static final Medida CONSULTA = new Medida("consultar");
+
+    // La ruta de los datos se puede cambiar con -Dtareas.ruta=...
     public TareaController() {
-        fileManager = new FileManager("src/model/persistence/tareas.json");
+        this(System.getProperty("tareas.ruta", RUTA_POR_DEFECTO));
+    }
+
+    public TareaController(String rutaDatos) {
+        fileManager = new FileManager(rutaDatos);
         try {
-            tareas = fileManager.cargarTareas();
-            tareasCompletadas = new ArrayList<>(); // Inicializamos la lista de tareas completadas
+            List<Tarea> cargadas = fileManager.cargarTareas();
+            secuenciaIds.set(fileManager.leerUltimoIdReservado());
+            cargadas.forEach(t -> secuenciaIds.accumulateAndGet(t.getId(), Math::max));
+            boolean idsNuevos = false;
+            Set<Long> idsVistos = new HashSet<>();
+            for (Tarea tarea : cargadas) {
+                // Los archivos antiguos no traen id (o lo repiten): se asigna uno nuevo
+                if (tarea.getId() == 0 || !idsVistos.add(tarea.getId())) {
+                    tarea = tarea.conId(secuenciaIds.incrementAndGet());
+                    idsVistos.add(tarea.getId());
+                    idsNuevos = true;
+                }
+                tareas.put(tarea.getId(), tarea);
+            }
+            fileManager.reservarId(secuenciaIds.get());
+            if (idsNuevos) {
+                fileManager.guardarTareas(tareas.values()); // Los ids asignados quedan guardados antes de usarlos en el diario
+            }
         } catch (FilePersistenceException e) {
+            ERRORES.incrementar();
             System.out.println("Error al cargar las tareas: " + e.getMessage());
-            tareas = new ArrayList<>();
-            tareasCompletadas = new ArrayList<>();
+        }
+        tareasPorId = MapaPersistente.desde(tareas.values(), Tarea::getId);
+        indice.reconstruir(List.copyOf(tareas.values()));
+        estadisticas.reconstruir(tareas.values());
+        indiceTexto.reconstruir(tareas.values());
+        tareas.values().forEach(vencimientos::programar);
+        escritor = new EscritorAsincrono(fileManager, Long.getLong("tareas.ventanaEscrituraMs", EscritorAsincrono.VENTANA_POR_DEFECTO_MS),
+                this::copiarPendientes, cerrojo.readLock());
+        Runtime.getRuntime().addShutdownHook(new Thread(this::cerrarAlSalir, "cierre-tareas"));
+        registrarIndicadores();
+        if (Boolean.getBoolean("tareas.vigilar")) {
+            try {
+                vigilarArchivo();
+            } catch (FilePersistenceException e) {
+                ERRORES.incrementar();
+                System.out.println("Error al vigilar el archivo de tareas: " + e.getMessage());
+            }
+        }
+        String directorioReplica = System.getProperty("tareas.replica.dir");
+        if (directorioReplica != null) {
+            try {
+                replicar(directorioReplica, Integer.getInteger("tareas.nodo", 0));
+            } catch (FilePersistenceException e) {
+                ERRORES.incrementar();
+                System.out.println("Error al iniciar la replicación: " + e.getMessage());
+            }
+        }
+    }
+
+    // Método para recargar las tareas cuando otro proceso (o una herramienta de sincronización) cambia el archivo:
+    // solo se decodifican y aplican las tareas que cambiaron, y se avisa a los OyenteCambios
+    public void vigilarArchivo() throws FilePersistenceException {
+        fileManager.vigilar(this::aplicarCambiosExternos);
+    }
+
+    public void agregarOyenteCambios(OyenteCambios oyente) {
+        oyentesCambios.add(oyente);
+    }
+
+    public void quitarOyenteCambios(OyenteCambios oyente) {
+        oyentesCambios.remove(oyente);
+    }
+
+    // Lo que cambió en disco manda sobre lo que hay en memoria (es lo último que se escribió). La instantánea solo
+    // tiene las pendientes, así que una tarea que desaparece de ella solo se elimina si sigue pendiente aquí.
+    private void aplicarCambiosExternos(CambiosInstantanea cambios) {
+        Set<Long> afectadas = new LinkedHashSet<>();
+        cerrojo.writeLock().lock();
+        try {
+            boolean idsNuevos = false;
+            for (Tarea tarea : cambios.getModificadas()) {
+                if (tarea.getId() == 0) {
+                    tarea = tarea.conId(siguienteId()); // Añadida a mano sin id
+                    idsNuevos = true;
+                } else if (Replicador.mismoContenido(tareasPorId.obtener(tarea.getId()), tarea)) {
+                    continue;
+                } else {
+                    secuenciaIds.accumulateAndGet(tarea.getId(), Math::max);
+                }
+                aplicarEstado(tarea.getId(), tarea);
+                afectadas.add(tarea.getId());
+            }
+            for (long id : cambios.getEliminadas()) {
+                if (tareas.containsKey(id)) {
+                    aplicarEstado(id, null);
+                    afectadas.add(id);
+                }
+            }
+            if (!afectadas.isEmpty()) {
+                invalidarInstantaneas();
+                fileManager.reservarId(secuenciaIds.get());
+            }
+            if (idsNuevos) {
+                escritor.guardarInstantanea(); // Los ids asignados tienen que llegar al archivo antes que al diario
+            }
+        } catch (FilePersistenceException e) {
+            ERRORES.incrementar();
+            System.out.println("Error al guardar los cambios del archivo: " + e.getMessage());
+        } finally {
+            cerrojo.writeLock().unlock();
+        }
+        notificarCambios(afectadas);
+    }
+
+    private void notificarCambios(Set<Long> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        Set<Long> soloLectura = Collections.unmodifiableSet(ids);
+        for (OyenteCambios oyente : oyentesCambios) {
+            oyente.tareasCambiadas(soloLectura);
+        }
+    }
+
+    // Método para compartir las tareas con otras instancias a través de un directorio común (local o de red).
+    // Cada instancia necesita un número de nodo distinto, entre 0 y 1023. Al empezar se pone al día con lo que
+    // hayan cambiado las demás; las tareas locales que no conocen se les envían como nuevas.
+    public void replicar(String directorio, int nodo) throws FilePersistenceException {
+        if (replicador != null) {
+            throw new IllegalStateException("La replicación ya está iniciada.");
+        }
+        // Con el cerrojo tomado durante la puesta al día no se pierde ningún cambio local hecho mientras tanto
+        cerrojo.writeLock().lock();
+        try {
+            Replicador nuevo = new Replicador(this, directorio, nodo);
+            nuevo.iniciar();
+            replicador = nuevo;
+            historial.vaciar(); // La puesta al día puede cambiar tareas de las que dependen los pasos anteriores
+        } finally {
+            cerrojo.writeLock().unlock();
+        }
+    }
+
+    // Número de tareas por estado y prioridad: se leen de los contadores de EstadisticasTareas, sin recorrer las tareas
+    private void registrarIndicadores() {
+        Metricas.indicador("tareas.pendientes", () -> (long) estadisticas.getPendientes());
+        // Las completadas archivadas no se cuentan hasta que se carga su archivo: mientras tanto vale -1
+        Metricas.indicador("tareas.completadas", () -> tareasCompletadas == null ? -1L
+                : (long) estadisticas.getCompletadas());
+        Metricas.indicador("tareas.vencidas", () -> (long) estadisticas.getVencidas(LocalDate.now().toEpochDay()));
+        for (Prioridad prioridad : Prioridad.values()) {
+            Metricas.indicador("tareas.prioridad." + prioridad.name().toLowerCase(),
+                    () -> (long) estadisticas.getPendientes(prioridad));
         }
     }
 
-    public void agregarTarea(Tarea tarea) {
+    // Devuelve la tarea guardada, con su id (una copia si hubo que asignárselo), o null si no se pudo guardar
+    public Tarea agregarTarea(Tarea nueva) {
+        long inicio = Metricas.inicio();
+        Tarea tarea = null;
+        cerrojo.writeLock().lock();
         try {
-            tareas.add(tarea);
-            fileManager.guardarTareas(tareas);
+            MapaPersistente<Tarea> antes = tareasPorId;
+            tarea = registrarId(nueva);
+            tareas.put(tarea.getId(), tarea);
+            indice.agregar(tarea);
+            estadisticas.sumar(tarea);
+            indiceTexto.agregar(tarea);
+            vencimientos.programar(tarea);
+            invalidarInstantaneas();
+            escritor.registrarCambio(RegistroDiario.agregar(tarea));
+            publicar(tarea.getId(), null, tarea);
+            historial.registrar("Agregar \"" + tarea.getTitulo() + "\"", antes, tareasPorId);
         } catch (FilePersistenceException e) {
+            ERRORES.incrementar();
             System.out.println("Error al guardar la tarea: " + e.getMessage());
+            tarea = null;
+        } finally {
+            cerrojo.writeLock().unlock();
+            TIEMPO_AGREGAR.registrarDesde(inicio);
         }
+        return tarea;
     }
 
-    public void editarTarea(Tarea tarea, String nuevoTitulo, String nuevaDescripcion, LocalDate nuevaFechaLimite, String nuevaPrioridad) {
+    // Alta de muchas tareas en un único paso: se indexan todas bajo el mismo cerrojo y se guardan de una vez
+    // (una instantánea completa si el lote es grande, en lugar de un registro de diario por tarea).
+    // Devuelve las tareas guardadas, en el mismo orden y con sus ids.
+    public List<Tarea> agregarTareas(Collection<Tarea> nuevas) {
+        if (nuevas.isEmpty()) {
+            return List.of();
+        }
+        List<Tarea> guardadas = new ArrayList<>(nuevas.size());
+        long inicio = Metricas.inicio();
+        // Lo más caro de indexar (partir y normalizar el texto) no depende del estado: se hace antes y en paralelo
+        List<Map<String, Integer>> terminos = nuevas.parallelStream().map(IndiceTexto::pesos).toList();
+        cerrojo.writeLock().lock();
         try {
-            if (nuevoTitulo != null && !nuevoTitulo.isEmpty()) {
-                tarea.setTitulo(nuevoTitulo);
+            MapaPersistente<Tarea> antes = tareasPorId;
+            int i = 0;
+            for (Tarea nueva : nuevas) {
+                Tarea tarea = asignarId(nueva);
+                guardadas.add(tarea);
+                indiceTexto.agregar(tarea, terminos.get(i++));
+                if (tarea.isCompletada()) {
+                    anotarCompletada(tarea.getId(), tarea);
+                    escritor.archivarCompletada(tarea);
+                } else {
+                    tareas.put(tarea.getId(), tarea);
+                    indice.agregar(tarea);
+                    estadisticas.sumar(tarea);
+                    vencimientos.programar(tarea);
+                }
+                publicar(tarea.getId(), null, tarea);
             }
-            if (nuevaDescripcion != null) {
-                tarea.setDescripcion(nuevaDescripcion);
+            invalidarInstantaneas();
+            fileManager.reservarId(secuenciaIds.get()); // Una sola reserva para todo el lote
+            if (nuevas.size() >= FileManager.UMBRAL_COMPACTACION) {
+                escritor.guardarInstantanea();
+            } else {
+                for (Tarea tarea : guardadas) {
+                    if (!tarea.isCompletada()) {
+                        escritor.registrarCambio(RegistroDiario.agregar(tarea));
+                    }
+                }
             }
-            if (nuevaFechaLimite != null) {
-                tarea.setFechaLimite(nuevaFechaLimite);
+            historial.registrar("Agregar " + nuevas.size() + " tareas", antes, tareasPorId);
+        } catch (FilePersistenceException e) {
+            ERRORES.incrementar();
+            System.out.println("Error al guardar las tareas: " + e.getMessage());
+        } finally {
+            cerrojo.writeLock().unlock();
+            TIEMPO_AGREGAR_LOTE.registrarDesde(inicio);
+            TAMANO_LOTE.registrar(nuevas.size());
+        }
+        return Collections.unmodifiableList(guardadas);
+    }
+
+    // Método para importar un archivo CSV o JSON: las filas válidas se agregan todas juntas
+    // y las inválidas se devuelven con su error en el resultado
+    public ResultadoImportacion importarTareas(String ruta) throws FilePersistenceException {
+        long inicio = Metricas.inicio();
+        try {
+            ResultadoImportacion resultado = new ImportadorTareas().importar(ruta);
+            agregarTareas(resultado.getTareas());
+            return resultado;
+        } finally {
+            TIEMPO_IMPORTAR.registrarDesde(inicio);
+        }
+    }
+
+    // Método para exportar a CSV o JSON las tareas pendientes (y las completadas si se pide);
+    // se recorre una instantánea, así que no se bloquea a quien modifica las tareas mientras se escribe
+    public long exportarTareas(String ruta, boolean incluirCompletadas) throws FilePersistenceException {
+        long inicio = Metricas.inicio();
+        try {
+            List<Tarea> pendientes = getTareas();
+            List<Tarea> completadas = incluirCompletadas ? getTareasCompletadas() : List.of();
+            Iterable<Tarea> todas = () -> Stream.concat(pendientes.stream(), completadas.stream()).iterator();
+            return new ExportadorTareas().exportar(todas, ruta);
+        } finally {
+            TIEMPO_EXPORTAR.registrarDesde(inicio);
+        }
+    }
+
+    public void editarTarea(Tarea tarea, String nuevoTitulo, String nuevaDescripcion, LocalDate nuevaFechaLimite, Prioridad nuevaPrioridad) {
+        editarTarea(tarea.getId(), nuevoTitulo, nuevaDescripcion, nuevaFechaLimite, nuevaPrioridad);
+    }
+
+    public void editarTarea(long id, String nuevoTitulo, String nuevaDescripcion, LocalDate nuevaFechaLimite, Prioridad nuevaPrioridad) {
+        long inicio = Metricas.inicio();
+        cerrojo.writeLock().lock();
+        try {
+            Tarea actual = tareasPorId.obtener(id);
+            if (actual == null) {
+                throw new InvalidDataException("No existe ninguna tarea con id " + id + ".");
             }
-            if (nuevaPrioridad != null && (nuevaPrioridad.equalsIgnoreCase("Alta") || 
-                                            nuevaPrioridad.equalsIgnoreCase("Media") || 
-                                            nuevaPrioridad.equalsIgnoreCase("Baja"))) {
-                tarea.setPrioridad(nuevaPrioridad);
-            } else {
+            // Se valida antes de tocar nada: una edición inválida no deja cambios a medias
+            if (nuevaPrioridad == null) {
                 throw new InvalidDataException("La prioridad debe ser 'Alta', 'Media' o 'Baja'.");
             }
-            
-            // Guardar los cambios en el archivo
-            fileManager.guardarTareas(tareas);
-        } catch (FilePersistenceException | InvalidDataException e) {
+            Tarea tarea = actual.editada(nuevoTitulo == null || nuevoTitulo.isEmpty() ? null : nuevoTitulo,
+                    nuevaDescripcion, nuevaFechaLimite, nuevaPrioridad);
+            MapaPersistente<Tarea> antes = tareasPorId;
+            aplicarEstado(id, tarea);
+            invalidarInstantaneas();
+            historial.registrar("Editar \"" + tarea.getTitulo() + "\"", antes, tareasPorId);
+        } catch (InvalidDataException e) {
+            ERRORES.incrementar();
             System.out.println("Error al editar la tarea: " + e.getMessage());
+        } finally {
+            cerrojo.writeLock().unlock();
+            TIEMPO_EDITAR.registrarDesde(inicio);
         }
     }
 
     public void eliminarTarea(Tarea tarea) {
+        eliminarTarea(tarea.getId());
+    }
+
+    public void eliminarTarea(long id) {
+        long inicio = Metricas.inicio();
+        cerrojo.writeLock().lock();
         try {
-            tareas.remove(tarea);
-            tareasCompletadas.remove(tarea); // Aseguramos que se elimine de la lista completada también
-            fileManager.guardarTareas(tareas);
-        } catch (FilePersistenceException e) {
-            System.out.println("Error al eliminar la tarea: " + e.getMessage());
+            MapaPersistente<Tarea> antes = tareasPorId;
+            Tarea eliminada = antes.obtener(id);
+            if (eliminada == null && !tareas.containsKey(id)) {
+                // No está en memoria: puede ser una completada sin cargar, así que se anota la baja en su archivo
+                anotarCompletada(id, null);
+                escritor.eliminarDelArchivo(id);
+                invalidarInstantaneas();
+                publicar(id, null, null);
+                return;
+            }
+            aplicarEstado(id, null);
+            invalidarInstantaneas();
+            historial.registrar("Eliminar \"" + eliminada.getTitulo() + "\"", antes, tareasPorId);
+        } finally {
+            cerrojo.writeLock().unlock();
+            TIEMPO_ELIMINAR.registrarDesde(inicio);
         }
     }
 
     public void marcarComoCompletada(Tarea tarea) {
-        tarea.setCompletada(true); // Marcar la tarea como completada
-        tareasCompletadas.add(tarea); // Agregar a la lista de tareas completadas
-        tareas.remove(tarea); // Eliminar de la lista de tareas pendientes
+        marcarComoCompletada(tarea.getId());
+    }
+
+    // Completar y mover a la lista de completadas es atómico: ningún lector ve la tarea en ambas listas o en ninguna
+    public void marcarComoCompletada(long id) {
+        long inicio = Metricas.inicio();
+        cerrojo.writeLock().lock();
+        try {
+            Tarea pendiente = tareas.get(id);
+            if (pendiente == null) {
+                return; // Ya no está pendiente (completada o eliminada por otro hilo)
+            }
+            Tarea completada = pendiente.conEstado(true);
+            MapaPersistente<Tarea> antes = tareasPorId;
+            aplicarEstado(id, completada); // Sale de pendientes y pasa a las completadas
+            invalidarInstantaneas();
+            historial.registrar("Completar \"" + completada.getTitulo() + "\"", antes, tareasPorId);
+        } finally {
+            cerrojo.writeLock().unlock();
+            TIEMPO_COMPLETAR.registrarDesde(inicio);
+        }
+    }
+
+    // Método para deshacer el último cambio (alta, edición, completado o baja); devuelve su descripción,
+    // o null si no hay nada que deshacer. Se deshace exactamente lo que cambió, sin recorrer todas las tareas.
+    public String deshacer() {
+        cerrojo.writeLock().lock();
+        try {
+            HistorialCambios.Cambio cambio = historial.sacarParaDeshacer();
+            if (cambio == null) {
+                return null;
+            }
+            volverA(cambio.despues, cambio.antes);
+            return cambio.descripcion;
+        } finally {
+            cerrojo.writeLock().unlock();
+        }
+    }
+
+    // Método para volver a aplicar el último cambio deshecho; devuelve su descripción o null si no hay ninguno
+    public String rehacer() {
+        cerrojo.writeLock().lock();
         try {
-            fileManager.guardarTareas(tareas); // Guardar tareas pendientes
-            fileManager.guardarTareas(tareasCompletadas); // Guardar tareas completadas
+            HistorialCambios.Cambio cambio = historial.sacarParaRehacer();
+            if (cambio == null) {
+                return null;
+            }
+            volverA(cambio.antes, cambio.despues);
+            return cambio.descripcion;
+        } finally {
+            cerrojo.writeLock().unlock();
+        }
+    }
+
+    public boolean puedeDeshacer() {
+        return leer(historial::puedeDeshacer);
+    }
+
+    public boolean puedeRehacer() {
+        return leer(historial::puedeRehacer);
+    }
+
+    // Descripción de lo que desharía deshacer() (o rehacería rehacer()), o null si no hay nada
+    public String getSiguienteADeshacer() {
+        return leer(historial::siguienteADeshacer);
+    }
+
+    public String getSiguienteARehacer() {
+        return leer(historial::siguienteARehacer);
+    }
+
+    // Cambios que se pueden deshacer, del más reciente al más antiguo (como mucho tareas.historial)
+    public List<String> getHistorial() {
+        return leer(historial::descripciones);
+    }
+
+    // Se llama con el cerrojo de escritura tomado. Las tareas que difieren entre las dos versiones
+    // vuelven al estado de la versión destino; las compartidas ni se miran.
+    private void volverA(MapaPersistente<Tarea> desde, MapaPersistente<Tarea> hasta) {
+        MapaPersistente.diferencias(desde, hasta, (id, enOrigen, enDestino) -> aplicarEstado(id, enDestino));
+        invalidarInstantaneas();
+    }
+
+    // Se llama con el cerrojo de escritura tomado. Deja la tarea con ese id en el estado indicado
+    // (null = eliminada) y actualiza en consecuencia listas, índices, avisos, diario y archivo de completadas.
+    private void aplicarEstado(long id, Tarea objetivo) {
+        publicar(id, tareasPorId.obtener(id), objetivo);
+        Tarea pendiente = tareas.get(id);
+        boolean archivada = pendiente == null && tareasPorId.contiene(id);
+        if (objetivo == null) {
+            if (pendiente != null) {
+                tareas.remove(id);
+                indice.eliminar(pendiente);
+                estadisticas.restar(pendiente);
+                vencimientos.cancelar(id);
+                escritor.registrarCambio(RegistroDiario.eliminar(id));
+            } else {
+                anotarCompletada(id, null);
+                escritor.eliminarDelArchivo(id);
+            }
+            tareasPorId = tareasPorId.sin(id);
+            indiceTexto.eliminar(id);
+            return;
+        }
+        tareasPorId = tareasPorId.con(id, objetivo);
+        indiceTexto.actualizar(objetivo);
+        if (objetivo.isCompletada() && (pendiente == null || !pendiente.isCompletada())) {
+            // Primero se archiva y después sale de pendientes: si se corta entre ambas escrituras la tarea sigue pendiente
+            anotarCompletada(id, objetivo);
+            escritor.archivarCompletada(objetivo);
+            if (pendiente != null) {
+                tareas.remove(id);
+                indice.eliminar(pendiente);
+                estadisticas.restar(pendiente);
+                estadisticas.completadaEl(LocalDate.now().toEpochDay(), 1);
+                vencimientos.cancelar(id);
+                escritor.registrarCambio(RegistroDiario.eliminar(id));
+            }
+            return;
+        }
+        if (archivada) {
+            // Vuelve a pendientes desde el archivo de completadas (deshacer un completado). La baja del archivo
+            // se escribe después del diario: si se corta entre ambas, la tarea sigue pendiente, que es lo que manda al cargar
+            anotarCompletada(id, null);
+            estadisticas.completadaEl(LocalDate.now().toEpochDay(), -1);
+            escritor.reabrirCompletada(id);
+        }
+        if (pendiente != null) {
+            // Editada en su sitio: conserva la posición en la lista y en los índices
+            tareas.put(id, objetivo);
+            indice.reemplazar(pendiente, objetivo);
+            estadisticas.reemplazar(pendiente, objetivo);
+            escritor.registrarCambio(RegistroDiario.editar(objetivo));
+        } else {
+            tareas.put(id, objetivo);
+            indice.agregar(objetivo);
+            estadisticas.sumar(objetivo);
+            escritor.registrarCambio(RegistroDiario.agregar(objetivo));
+        }
+        vencimientos.programar(objetivo);
+    }
+
+    // Se llama con el cerrojo de escritura tomado: el cambio se envía a los demás nodos si hay replicación
+    private void publicar(long id, Tarea anterior, Tarea nueva) {
+        Replicador r = replicador;
+        if (r != null && !aplicandoRemotos) {
+            r.cambioLocal(id, anterior, nueva);
+        }
+    }
+
+    // Aplica lo que llega de otros nodos. La fusión se calcula bajo el cerrojo de escritura (recibe todas las
+    // tareas y devuelve cómo deben quedar las que cambian, null = eliminada) para que ningún cambio local se
+    // cuele entre la fusión y su aplicación. No pasa por el historial: deshacer solo deshace lo hecho aquí.
+    void aplicarRemotos(Function<MapaPersistente<Tarea>, Map<Long, Tarea>> fusion) {
+        Set<Long> afectadas = new LinkedHashSet<>();
+        cerrojo.writeLock().lock();
+        aplicandoRemotos = true;
+        try {
+            for (Map.Entry<Long, Tarea> objetivo : fusion.apply(tareasPorId).entrySet()) {
+                long id = objetivo.getKey();
+                if (!Replicador.mismoContenido(tareasPorId.obtener(id), objetivo.getValue())) {
+                    secuenciaIds.accumulateAndGet(id, Math::max);
+                    aplicarEstado(id, objetivo.getValue());
+                    afectadas.add(id);
+                }
+            }
+            if (!afectadas.isEmpty()) {
+                invalidarInstantaneas();
+                fileManager.reservarId(secuenciaIds.get());
+            }
         } catch (FilePersistenceException e) {
-            System.out.println("Error al guardar las tareas: " + e.getMessage());
+            ERRORES.incrementar();
+            System.out.println("Error al guardar los cambios recibidos: " + e.getMessage());
+        } finally {
+            aplicandoRemotos = false;
+            cerrojo.writeLock().unlock();
+        }
+        notificarCambios(afectadas);
+    }
+
+    // Método para esperar a que todos los cambios estén escritos y sincronizados con el disco
+    public void flush() throws FilePersistenceException {
+        escritor.flush();
+    }
+
+    // Método para escribir lo pendiente y liberar los archivos; el controlador no admite cambios después
+    public void cerrar() throws FilePersistenceException {
+        vencimientos.cerrar();
+        Replicador r = replicador;
+        if (r != null) {
+            r.cerrar();
+        }
+        escritor.cerrar();
+    }
+
+    // Método para recibir avisos cuando una tarea pendiente está a punto de vencer o ha vencido.
+    // Al registrar el primer oyente se avisa enseguida de lo que ya estaba próximo o vencido.
+    public void agregarOyenteVencimientos(OyenteVencimientos oyente) {
+        vencimientos.agregarOyente(oyente);
+    }
+
+    public void quitarOyenteVencimientos(OyenteVencimientos oyente) {
+        vencimientos.quitarOyente(oyente);
+    }
+
+    // Días de antelación con que se avisa de una fecha límite (propiedad tareas.diasAviso)
+    public int getDiasAviso() {
+        return vencimientos.getDiasAviso();
+    }
+
+    private void cerrarAlSalir() {
+        try {
+            cerrar();
+        } catch (FilePersistenceException e) {
+            ERRORES.incrementar();
+            System.out.println("Error al guardar las tareas al salir: " + e.getMessage());
+        }
+    }
+
+    // Versión de los datos: cambia siempre que cambia alguna tarea, así que dos lecturas con la misma versión
+    // devuelven lo mismo
+    public long getVersion() {
+        return version;
+    }
+
+    // La tarea devuelta es la guardada y no se debe modificar; para cambiarla, editarTarea
+    public Tarea buscarPorId(long id) {
+        return tareasPorId.obtener(id);
+    }
+
+    // Como buscarPorId, pero si no la encuentra carga antes las completadas archivadas (que solo se leen
+    // cuando alguien las pide). No se debe llamar con el cerrojo tomado.
+    public Tarea buscarPorIdConArchivadas(long id) {
+        Tarea tarea = tareasPorId.obtener(id);
+        if (tarea == null && tareasCompletadas == null) {
+            cargarCompletadasSiHaceFalta();
+            tarea = tareasPorId.obtener(id);
         }
+        return tarea;
     }
 
+    // Devuelve una instantánea inmutable; los cambios posteriores no la modifican
     public List<Tarea> getTareas() {
-        return tareas;
+        List<Tarea> instantanea = instantaneaPendientes;
+        if (instantanea != null) {
+            return instantanea;
+        }
+        // Se publica dentro del cerrojo de lectura para no pisar una invalidación posterior
+        return leer(() -> {
+            if (instantaneaPendientes == null) {
+                instantaneaPendientes = List.copyOf(tareas.values());
+            }
+            return instantaneaPendientes;
+        });
     }
 
     public List<Tarea> getTareasCompletadas() { // Método para obtener tareas completadas
-        return tareasCompletadas;
+        List<Tarea> instantanea = instantaneaCompletadas;
+        if (instantanea != null) {
+            return instantanea;
+        }
+        cargarCompletadasSiHaceFalta();
+        return leer(() -> {
+            if (instantaneaCompletadas == null) {
+                instantaneaCompletadas = List.copyOf(tareasCompletadas.values());
+            }
+            return instantaneaCompletadas;
+        });
+    }
+
+    // Método para obtener las cifras del panel de estadísticas. Salen de contadores que se actualizan en cada
+    // cambio, no de recorrer las tareas; la primera llamada carga las completadas para poder contarlas.
+    public ResumenTareas getResumen() {
+        cargarCompletadasSiHaceFalta();
+        long inicio = Metricas.inicio();
+        LocalDate hoy = LocalDate.now();
+        long domingo = hoy.with(TemporalAdjusters.nextOrSame(DayOfWeek.SUNDAY)).toEpochDay();
+        ResumenTareas resumen = estadisticas.resumen(hoy.toEpochDay(), domingo, DIAS_RESUMEN);
+        TIEMPO_RESUMEN.registrarDesde(inicio);
+        return resumen;
+    }
+
+    // Pendientes por día de fecha límite entre desde y hasta (ambos incluidos), una posición por día.
+    // Un rango de más de 65536 días lanza IllegalArgumentException.
+    public int[] contarPorFechaLimite(LocalDate desde, LocalDate hasta) {
+        return estadisticas.pendientesPorDia(desde.toEpochDay(), hasta.toEpochDay());
     }
 
+    // Las completadas incluyen las que siguen en el archivo principal (datos antiguos) y las del archivo de completadas
     public List<Tarea> filtrarPorEstado(boolean completada) {
-        return tareas.stream().filter(t -> t.isCompletada() == completada).toList();
+        long inicio = Metricas.inicio();
+        List<Tarea> resultado = leer(() -> indice.porEstado(completada));
+        if (!completada) {
+            return FILTRO_ESTADO.registrar(inicio, resultado);
+        }
+        List<Tarea> archivadas = getTareasCompletadas();
+        if (resultado.isEmpty()) {
+            return FILTRO_ESTADO.registrar(inicio, archivadas);
+        }
+        List<Tarea> todas = new ArrayList<>(resultado.size() + archivadas.size());
+        todas.addAll(resultado);
+        todas.addAll(archivadas);
+        return FILTRO_ESTADO.registrar(inicio, Collections.unmodifiableList(todas));
     }
 
-    public List<Tarea> filtrarPorPrioridad(String prioridad) {
-        return tareas.stream().filter(t -> t.getPrioridad().equalsIgnoreCase(prioridad)).toList();
+    public List<Tarea> filtrarPorPrioridad(Prioridad prioridad) {
+        long inicio = Metricas.inicio();
+        return FILTRO_PRIORIDAD.registrar(inicio, leer(() -> indice.porPrioridad(prioridad)));
     }
 
     public List<Tarea> filtrarPorFechaLimite(LocalDate fechaLimite) {
-        return tareas.stream().filter(t -> t.getFechaLimite().isEqual(fechaLimite)).toList();
+        long inicio = Metricas.inicio();
+        return FILTRO_FECHA.registrar(inicio, leer(() -> indice.porFecha(fechaLimite)));
+    }
+
+    public List<Tarea> filtrarPorRangoFechas(LocalDate desde, LocalDate hasta) {
+        long inicio = Metricas.inicio();
+        return FILTRO_RANGO.registrar(inicio, leer(() -> indice.porRangoFechas(desde, hasta)));
+    }
+
+    public List<Tarea> filtrarVencidas() {
+        long inicio = Metricas.inicio();
+        LocalDate hoy = LocalDate.now();
+        return FILTRO_VENCIDAS.registrar(inicio, leer(() -> indice.vencidas(hoy)));
+    }
+
+    // Búsqueda por palabras en título y descripción, sin distinguir mayúsculas ni tildes y admitiendo prefijos.
+    // Devuelve las tareas que contienen todas las palabras, de más a menos relevante.
+    public List<Tarea> buscarTexto(String consulta, boolean incluirCompletadas) {
+        return buscarTexto(consulta, incluirCompletadas, Integer.MAX_VALUE);
+    }
+
+    public List<Tarea> buscarTexto(String consulta, boolean incluirCompletadas, int limite) {
+        long inicio = Metricas.inicio();
+        if (incluirCompletadas) {
+            cargarCompletadasSiHaceFalta(); // Las completadas entran en el índice al cargar su archivo
+        }
+        return BUSQUEDA_TEXTO.registrar(inicio, leer(() -> {
+            // Las completadas siguen indexadas, así que se piden todas y se descartan después si hace falta
+            List<Long> ids = indiceTexto.buscar(consulta, incluirCompletadas ? limite : Integer.MAX_VALUE);
+            List<Tarea> resultado = new ArrayList<>(Math.min(ids.size(), limite));
+            MapaPersistente<Tarea> porId = tareasPorId;
+            for (Long id : ids) {
+                Tarea tarea = porId.obtener(id);
+                if (tarea != null && (incluirCompletadas || !tarea.isCompletada())) {
+                    resultado.add(tarea);
+                    if (resultado.size() == limite) {
+                        break;
+                    }
+                }
+            }
+            return Collections.unmodifiableList(resultado);
+        }));
+    }
+
+    // Consulta con varios criterios a la vez (prioridad, estado, fechas y texto), ordenada y paginada.
+    // Si no se limita el estado a pendientes, incluye también las completadas archivadas.
+    public PaginaTareas consultar(ConsultaTareas consulta) {
+        long inicio = Metricas.inicio();
+        boolean conArchivadas = !Boolean.FALSE.equals(consulta.getCompletada());
+        if (conArchivadas) {
+            cargarCompletadasSiHaceFalta();
+        }
+        PaginaTareas pagina = leer(() -> planificador.ejecutar(consulta, conArchivadas ? tareasCompletadas.values() : List.of()));
+        CONSULTA.registrar(inicio, pagina.getTareas());
+        return pagina;
+    }
+
+    private <T> T leer(Supplier<T> lectura) {
+        cerrojo.readLock().lock();
+        try {
+            return lectura.get();
+        } finally {
+            cerrojo.readLock().unlock();
+        }
+    }
+
+    private void cargarCompletadasSiHaceFalta() {
+        if (tareasCompletadas != null) {
+            return;
+        }
+        cerrojo.writeLock().lock();
+        try {
+            if (tareasCompletadas != null) {
+                return;
+            }
+            long inicio = Metricas.inicio();
+            Map<Long, Tarea> completadas = new LinkedHashMap<>();
+            try {
+                for (Tarea tarea : fileManager.cargarCompletadas()) {
+                    // Si sigue pendiente, el completado se cortó antes de sacarla de pendientes: manda pendientes
+                    if (!tareas.containsKey(tarea.getId())) {
+                        completadas.put(tarea.getId(), tarea);
+                        indiceTexto.agregar(tarea);
+                    }
+                }
+            } catch (FilePersistenceException e) {
+                ERRORES.incrementar();
+                System.out.println("Error al cargar las tareas completadas: " + e.getMessage());
+            }
+            // Los cambios hechos antes de la carga pueden no haber llegado todavía al archivo
+            cambiosCompletadasSinCargar.forEach((id, tarea) -> {
+                if (tarea == null) {
+                    completadas.remove(id);
+                    indiceTexto.eliminar(id);
+                } else {
+                    completadas.put(id, tarea);
+                    indiceTexto.agregar(tarea);
+                }
+            });
+            cambiosCompletadasSinCargar.clear();
+            // Las completadas cargadas entran en el mapa por id; el historial no cambia, porque cada uno
+            // de sus pasos solo compara sus propias versiones de antes y después
+            MapaPersistente<Tarea> porId = tareasPorId;
+            for (Tarea tarea : completadas.values()) {
+                if (!porId.contiene(tarea.getId())) {
+                    porId = porId.con(tarea.getId(), tarea);
+                }
+            }
+            tareasPorId = porId;
+            completadas.values().forEach(estadisticas::sumar); // Hasta ahora solo se contaban las completadas en pendientes
+            tareasCompletadas = completadas;
+            invalidarInstantaneas();
+            TIEMPO_CARGAR_COMPLETADAS.registrarDesde(inicio);
+        } finally {
+            cerrojo.writeLock().unlock();
+        }
+    }
+
+    // Se llama con el cerrojo de escritura tomado; tarea == null indica que se eliminó
+    private void anotarCompletada(long id, Tarea tarea) {
+        Map<Long, Tarea> completadas = tareasCompletadas;
+        if (completadas == null) {
+            cambiosCompletadasSinCargar.put(id, tarea);
+            return;
+        }
+        Tarea anterior = tarea == null ? completadas.remove(id) : completadas.put(id, tarea);
+        if (anterior != null) {
+            estadisticas.restar(anterior);
+        }
+        if (tarea != null) {
+            estadisticas.sumar(tarea);
+        }
+    }
+
+    // Lista de las pendientes para que el hilo escritor compacte sin ver cambios a medias.
+    // Las tareas guardadas no se modifican, así que basta con copiar las referencias.
+    private Collection<Tarea> copiarPendientes() {
+        cerrojo.readLock().lock();
+        try {
+            return new ArrayList<>(tareas.values());
+        } finally {
+            cerrojo.readLock().unlock();
+        }
+    }
+
+    private Tarea registrarId(Tarea nueva) throws FilePersistenceException {
+        Tarea tarea = asignarId(nueva);
+        fileManager.reservarId(tarea.getId());
+        return tarea;
+    }
+
+    // Asigna id sin reservarlo en disco; quien llama debe reservar después el mayor asignado.
+    // Devuelve la tarea que se guarda: la misma o una copia con el id nuevo.
+    private Tarea asignarId(Tarea nueva) {
+        Tarea tarea = nueva;
+        Tarea existente = tareasPorId.obtener(nueva.getId());
+        if (nueva.getId() == 0 || (existente != null && existente != nueva)) {
+            tarea = nueva.conId(siguienteId());
+        } else {
+            secuenciaIds.accumulateAndGet(nueva.getId(), Math::max);
+        }
+        tareasPorId = tareasPorId.con(tarea.getId(), tarea);
+        return tarea;
+    }
+
+    // Con replicación, los bits bajos del id son el número de nodo: dos instancias nunca dan el mismo id a tareas distintas
+    private long siguienteId() {
+        Replicador r = replicador;
+        if (r == null) {
+            return secuenciaIds.incrementAndGet();
+        }
+        int nodo = r.getNodo();
+        return secuenciaIds.updateAndGet(ultimo -> (((ultimo >> RelojHibrido.BITS_NODO) + 1) << RelojHibrido.BITS_NODO) | nodo);
+    }
+
+    // Se llama con el cerrojo de escritura tomado
+    private void invalidarInstantaneas() {
+        instantaneaPendientes = null;
+        instantaneaCompletadas = null;
+        version++;
+    }
+
+    // Latencia y número de resultados de un filtro o consulta
+    private static final class Medida {
+        private final Histograma tiempo;
+        private final Histograma resultados;
+
+        Medida(String operacion) {
+            tiempo = Metricas.histograma("controller." + operacion + ".ns");
+            resultados = Metricas.histograma("controller." + operacion + ".resultados");
+        }
+
+        List<Tarea> registrar(long inicio, List<Tarea> resultado) {
+            if (inicio != 0) {
+                tiempo.registrarDesde(inicio);
+                resultados.registrar(resultado.size());
+            }
+            return resultado;
+        }
     }
 }
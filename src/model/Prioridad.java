@@ -0,0 +1,54 @@
+package model;
+
+import exceptions.InvalidDataException;
+
+public enum Prioridad {
+    ALTA("Alta"),
+    MEDIA("Media"),
+    BAJA("Baja");
+
+    private static final Prioridad[] VALORES = values();
+
+    private final String etiqueta;
+
+    Prioridad(String etiqueta) {
+        this.etiqueta = etiqueta;
+    }
+
+    // Convierte el texto introducido o guardado ("alta", "Media", ...) sin distinguir mayúsculas
+    public static Prioridad desde(String texto) throws InvalidDataException {
+        Prioridad prioridad = buscar(texto);
+        if (prioridad == null) {
+            throw new InvalidDataException("La prioridad debe ser 'Alta', 'Media' o 'Baja'.");
+        }
+        return prioridad;
+    }
+
+    // Igual que desde(), pero devuelve null si el texto no es una prioridad válida
+    public static Prioridad buscar(String texto) {
+        if (texto == null) {
+            return null;
+        }
+        String limpio = texto.trim();
+        for (Prioridad prioridad : VALORES) {
+            if (prioridad.etiqueta.equalsIgnoreCase(limpio)) {
+                return prioridad;
+            }
+        }
+        return null;
+    }
+
+    public static Prioridad desdeCodigo(int codigo) {
+        return VALORES[codigo];
+    }
+
+    // Código compacto (0 = Alta, 1 = Media, 2 = Baja) usado en almacenamiento por columnas
+    public byte codigo() {
+        return (byte) ordinal();
+    }
+
+    @Override
+    public String toString() {
+        return etiqueta;
+    }
+}
@@ -3,14 +3,24 @@ package model;
 import java.time.LocalDate;
 import exceptions.InvalidDataException;
 
+// Las tareas no cambian una vez creadas: el controlador comparte la misma instancia entre las listas, los índices,
+// el historial y las estadísticas, así que editar, completar o asignar un id devuelve una copia cambiada.
 public class Tarea {
-    private String titulo;
-    private String descripcion;
-    private LocalDate fechaLimite;
-    private String prioridad;
-    private boolean completada;
+    // Valor de fechaLimite cuando la tarea no tiene fecha (solo posible en datos antiguos)
+    public static final int SIN_FECHA = Integer.MIN_VALUE;
+
+    private final long id; // Identificador estable asignado por el controlador (0 = sin asignar)
+    private final String titulo;
+    private final String descripcion;
+    private final int fechaLimite; // Fecha límite como día epoch (LocalDate.toEpochDay)
+    private final Prioridad prioridad;
+    private final boolean completada;
 
     public Tarea(String titulo, String descripcion, LocalDate fechaLimite, String prioridad) throws InvalidDataException {
+        this(titulo, descripcion, fechaLimite, Prioridad.desde(prioridad));
+    }
+
+    public Tarea(String titulo, String descripcion, LocalDate fechaLimite, Prioridad prioridad) throws InvalidDataException {
         if (titulo == null || titulo.trim().isEmpty()) {
             throw new InvalidDataException("El título no puede estar vacío o solo contener espacios en blanco.");
         }
@@ -20,36 +30,91 @@ public class Tarea {
         if (fechaLimite == null) {
             throw new InvalidDataException("La fecha límite no puede ser nula.");
         }
-        if (prioridad == null || !(prioridad.equalsIgnoreCase("Alta") || prioridad.equalsIgnoreCase("Media") || prioridad.equalsIgnoreCase("Baja"))) {
+        if (prioridad == null) {
             throw new InvalidDataException("La prioridad debe ser 'Alta', 'Media' o 'Baja'.");
         }
 
+        this.id = 0;
         this.titulo = titulo;
         this.descripcion = descripcion;
-        this.fechaLimite = fechaLimite;
+        this.fechaLimite = diaEpoch(fechaLimite);
         this.prioridad = prioridad;
         this.completada = false;
     }
 
-    // Getters y Setters
+    private Tarea(long id, String titulo, String descripcion, int fechaLimite, Prioridad prioridad, boolean completada) {
+        this.id = id;
+        this.titulo = titulo;
+        this.descripcion = descripcion;
+        this.fechaLimite = fechaLimite;
+        this.prioridad = prioridad;
+        this.completada = completada;
+    }
+
+    // Día epoch de una fecha límite. LocalDate admite fechas cuyo día no cabe en un int (o coincidiría con SIN_FECHA):
+    // esas se rechazan en lugar de truncarse a otra fecha
+    public static int diaEpoch(LocalDate fecha) throws InvalidDataException {
+        long dia = fecha.toEpochDay();
+        if (dia <= SIN_FECHA || dia > Integer.MAX_VALUE) {
+            throw new InvalidDataException("La fecha límite " + fecha + " está fuera del rango admitido.");
+        }
+        return (int) dia;
+    }
+
+    // Día epoch de un límite de consulta: fuera del rango de las fechas límite se ajusta al extremo más cercano
+    public static int diaEpochAcotado(LocalDate fecha) {
+        return (int) Math.max(SIN_FECHA + 1L, Math.min(Integer.MAX_VALUE, fecha.toEpochDay()));
+    }
+
+    // Reconstruye una tarea ya persistida sin volver a validarla (los archivos antiguos pueden traer datos incompletos)
+    public static Tarea restaurar(String titulo, String descripcion, int fechaLimite, Prioridad prioridad, boolean completada) {
+        return restaurar(0, titulo, descripcion, fechaLimite, prioridad, completada);
+    }
+
+    public static Tarea restaurar(long id, String titulo, String descripcion, int fechaLimite, Prioridad prioridad, boolean completada) {
+        return new Tarea(id, titulo, descripcion, fechaLimite, prioridad, completada);
+    }
+
+    // Copia con el mismo id y los mismos datos
+    public Tarea copia() {
+        return restaurar(id, titulo, descripcion, fechaLimite, prioridad, completada);
+    }
+
+    // Copia con otro id (el controlador asigna los ids al agregar)
+    public Tarea conId(long nuevoId) {
+        return restaurar(nuevoId, titulo, descripcion, fechaLimite, prioridad, completada);
+    }
+
+    // Copia marcada como completada o pendiente
+    public Tarea conEstado(boolean nuevaCompletada) {
+        return restaurar(id, titulo, descripcion, fechaLimite, prioridad, nuevaCompletada);
+    }
+
+    // Copia editada: titulo, descripcion y fechaLimite a null conservan el valor actual
+    public Tarea editada(String nuevoTitulo, String nuevaDescripcion, LocalDate nuevaFechaLimite, Prioridad nuevaPrioridad)
+            throws InvalidDataException {
+        return restaurar(id, nuevoTitulo != null ? nuevoTitulo : titulo, nuevaDescripcion != null ? nuevaDescripcion : descripcion,
+                nuevaFechaLimite != null ? diaEpoch(nuevaFechaLimite) : fechaLimite, nuevaPrioridad, completada);
+    }
+
+    // Getters
+    public long getId() { return id; }
+
     public String getTitulo() { return titulo; }
-    public void setTitulo(String titulo) { this.titulo = titulo; }
 
     public String getDescripcion() { return descripcion; }
-    public void setDescripcion(String descripcion) { this.descripcion = descripcion; }
 
-    public LocalDate getFechaLimite() { return fechaLimite; }
-    public void setFechaLimite(LocalDate fechaLimite) { this.fechaLimite = fechaLimite; }
+    public LocalDate getFechaLimite() { return fechaLimite == SIN_FECHA ? null : LocalDate.ofEpochDay(fechaLimite); }
+
+    public int getFechaLimiteEpochDay() { return fechaLimite; }
 
-    public String getPrioridad() { return prioridad; }
-    public void setPrioridad(String prioridad) { this.prioridad = prioridad; }
+    public Prioridad getPrioridad() { return prioridad; }
 
     public boolean isCompletada() { return completada; }
-    public void setCompletada(boolean completada) { this.completada = completada; }
 
     @Override
     public String toString() {
         return String.format("%s | %s | Fecha límite: %s | Prioridad: %s | Completada: %s", 
-                titulo, descripcion, fechaLimite, prioridad, completada ? "Sí" : "No");
+                titulo, descripcion, getFechaLimite(), prioridad, completada ? "Sí" : "No");
     }
 }
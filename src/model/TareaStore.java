@@ -0,0 +1,165 @@
+package model;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+// Almacén de tareas por columnas: cada campo vive en su propio arreglo primitivo.
+// Sirve para recorridos y ordenaciones masivas (estadísticas, exportaciones, pruebas de rendimiento)
+// sin seguir referencias a objetos Tarea ni crear objetos por elemento.
+public class TareaStore {
+    // Un cubo por prioridad más uno para las desconocidas
+    private static final int CUBOS = Prioridad.values().length + 1;
+
+    private String[] titulos;
+    private String[] descripciones;
+    private int[] fechasLimite;
+    private byte[] prioridades;
+    private boolean[] completadas;
+    private int tamano;
+
+    public TareaStore() {
+        this(16);
+    }
+
+    public TareaStore(int capacidad) {
+        int inicial = Math.max(capacidad, 1);
+        titulos = new String[inicial];
+        descripciones = new String[inicial];
+        fechasLimite = new int[inicial];
+        prioridades = new byte[inicial];
+        completadas = new boolean[inicial];
+    }
+
+    public static TareaStore desde(Collection<Tarea> tareas) {
+        TareaStore store = new TareaStore(tareas.size());
+        tareas.forEach(store::agregar);
+        return store;
+    }
+
+    // Método para añadir una tarea al final; devuelve su posición
+    public int agregar(Tarea tarea) {
+        if (tamano == titulos.length) {
+            crecer();
+        }
+        int posicion = tamano++;
+        titulos[posicion] = tarea.getTitulo();
+        descripciones[posicion] = tarea.getDescripcion();
+        fechasLimite[posicion] = tarea.getFechaLimiteEpochDay();
+        prioridades[posicion] = tarea.getPrioridad() == null ? -1 : tarea.getPrioridad().codigo();
+        completadas[posicion] = tarea.isCompletada();
+        return posicion;
+    }
+
+    // Método para reconstruir la tarea de una posición (crea un objeto nuevo)
+    public Tarea obtener(int posicion) {
+        comprobarPosicion(posicion);
+        return Tarea.restaurar(titulos[posicion], descripciones[posicion], fechasLimite[posicion],
+                getPrioridad(posicion), completadas[posicion]);
+    }
+
+    public int tamano() { return tamano; }
+
+    public String getTitulo(int posicion) { comprobarPosicion(posicion); return titulos[posicion]; }
+    public String getDescripcion(int posicion) { comprobarPosicion(posicion); return descripciones[posicion]; }
+    public int getFechaLimiteEpochDay(int posicion) { comprobarPosicion(posicion); return fechasLimite[posicion]; }
+    public boolean isCompletada(int posicion) { comprobarPosicion(posicion); return completadas[posicion]; }
+
+    public Prioridad getPrioridad(int posicion) {
+        comprobarPosicion(posicion);
+        return prioridades[posicion] < 0 ? null : Prioridad.desdeCodigo(prioridades[posicion]);
+    }
+
+    public void setCompletada(int posicion, boolean completada) {
+        comprobarPosicion(posicion);
+        completadas[posicion] = completada;
+    }
+
+    public int contarPorPrioridad(Prioridad prioridad) {
+        byte codigo = prioridad.codigo();
+        int total = 0;
+        for (int i = 0; i < tamano; i++) {
+            if (prioridades[i] == codigo) {
+                total++;
+            }
+        }
+        return total;
+    }
+
+    public int contarCompletadas() {
+        int total = 0;
+        for (int i = 0; i < tamano; i++) {
+            if (completadas[i]) {
+                total++;
+            }
+        }
+        return total;
+    }
+
+    // Tareas pendientes con fecha límite anterior al día epoch indicado
+    public int contarVencidas(int hoyEpochDay) {
+        int total = 0;
+        for (int i = 0; i < tamano; i++) {
+            if (!completadas[i] && fechasLimite[i] != Tarea.SIN_FECHA && fechasLimite[i] < hoyEpochDay) {
+                total++;
+            }
+        }
+        return total;
+    }
+
+    // Posiciones ordenadas por fecha límite (estable respecto al orden de inserción).
+    // Fecha y posición se empaquetan en un long para ordenar un único arreglo primitivo.
+    public int[] ordenarPorFecha() {
+        long[] claves = new long[tamano];
+        for (int i = 0; i < tamano; i++) {
+            claves[i] = ((long) fechasLimite[i] << 32) | i;
+        }
+        return desempaquetar(claves);
+    }
+
+    // Posiciones ordenadas por prioridad (Alta primero) y, dentro de cada prioridad, por fecha límite.
+    // Se ordena por fecha y después se reparte de forma estable en un cubo por prioridad (ordenación por conteo).
+    public int[] ordenarPorPrioridadYFecha() {
+        int[] porFecha = ordenarPorFecha();
+        int[] inicioCubo = new int[CUBOS + 1];
+        for (int i = 0; i < tamano; i++) {
+            inicioCubo[cubo(prioridades[i]) + 1]++;
+        }
+        for (int c = 1; c < inicioCubo.length; c++) {
+            inicioCubo[c] += inicioCubo[c - 1];
+        }
+        int[] posiciones = new int[tamano];
+        for (int posicion : porFecha) {
+            posiciones[inicioCubo[cubo(prioridades[posicion])]++] = posicion;
+        }
+        return posiciones;
+    }
+
+    // Las prioridades desconocidas (-1) van al último cubo
+    private static int cubo(byte prioridad) {
+        return prioridad < 0 ? CUBOS - 1 : prioridad;
+    }
+
+    private int[] desempaquetar(long[] claves) {
+        Arrays.sort(claves);
+        int[] posiciones = new int[claves.length];
+        for (int i = 0; i < claves.length; i++) {
+            posiciones[i] = (int) (claves[i] & 0xFFFFFFFFL);
+        }
+        return posiciones;
+    }
+
+    private void comprobarPosicion(int posicion) {
+        if (posicion < 0 || posicion >= tamano) {
+            throw new IndexOutOfBoundsException("Posición " + posicion + " fuera de rango (tamaño " + tamano + ")");
+        }
+    }
+
+    private void crecer() {
+        int nueva = titulos.length * 2;
+        titulos = Arrays.copyOf(titulos, nueva);
+        descripciones = Arrays.copyOf(descripciones, nueva);
+        fechasLimite = Arrays.copyOf(fechasLimite, nueva);
+        prioridades = Arrays.copyOf(prioridades, nueva);
+        completadas = Arrays.copyOf(completadas, nueva);
+    }
+}
@@ -0,0 +1,522 @@
+package servidor;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import controller.ConsultaTareas;
+import controller.PaginaTareas;
+import controller.ResumenTareas;
+import controller.TareaAdapter;
+import controller.TareaController;
+import exceptions.InvalidDataException;
+import model.Prioridad;
+import model.Tarea;
+import util.Histograma;
+import util.Metricas;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+// API HTTP/JSON sobre TareaController.
+//
+//   GET    /tareas                 consulta paginada: estado (pendientes|completadas|todas), prioridad, desde, hasta,
+//                                  vencidas, texto, orden (fecha|prioridad|relevancia), offset, limit; admite If-None-Match
+//   POST   /tareas                 crea una tarea {titulo, descripcion, fechaLimite, prioridad}
+//   POST   /tareas/lote            crea todas las tareas de un array de una vez
+//   GET    /tareas/{id}            una tarea
+//   PUT    /tareas/{id}            edita los campos indicados
+//   POST   /tareas/{id}/completar  la marca como completada
+//   DELETE /tareas/{id}            la elimina
+//   POST   /deshacer, /rehacer     historial de cambios
+//   POST   /lote                   varias peticiones en una: [{metodo, ruta, cuerpo}], se responden en orden
+//   GET    /estadisticas           contadores agregados (por estado, prioridad y vencimiento); admite If-None-Match
+//   GET    /salud                  estado y versión de los datos
+class ApiTareas implements HttpHandler {
+    private static final String JSON = "application/json; charset=utf-8";
+    private static final int LIMITE_MAXIMO = 1000;
+    private static final int PETICIONES_POR_LOTE = 1000;
+
+    private static final Histograma TIEMPO_PETICION = Metricas.histograma("servidor.peticion.ns");
+    private static final Metricas.Contador PETICIONES = Metricas.contador("servidor.peticiones");
+    private static final Metricas.Contador NO_MODIFICADAS = Metricas.contador("servidor.noModificadas");
+    private static final Metricas.Contador ERRORES = Metricas.contador("servidor.errores");
+
+    private final TareaController controller;
+    private final Gson gson = new GsonBuilder().registerTypeAdapter(Tarea.class, new TareaAdapter()).disableHtmlEscaping().create();
+
+    ApiTareas(TareaController controller) {
+        this.controller = controller;
+    }
+
+    // Petición ya leída: el mismo formato sirve para las que llegan por HTTP y para las de un lote
+    static final class Peticion {
+        final String metodo;
+        final String ruta;
+        final Map<String, String> parametros;
+        final JsonElement cuerpo;
+        final String siNoCoincide; // Cabecera If-None-Match
+
+        Peticion(String metodo, String ruta, Map<String, String> parametros, JsonElement cuerpo, String siNoCoincide) {
+            this.metodo = metodo;
+            this.ruta = ruta;
+            this.parametros = parametros;
+            this.cuerpo = cuerpo;
+            this.siNoCoincide = siNoCoincide;
+        }
+    }
+
+    static final class Respuesta {
+        final int estado;
+        final JsonElement cuerpo; // null: sin cuerpo
+        final String etag;
+
+        Respuesta(int estado, JsonElement cuerpo, String etag) {
+            this.estado = estado;
+            this.cuerpo = cuerpo;
+            this.etag = etag;
+        }
+
+        static Respuesta error(int estado, String mensaje) {
+            JsonObject cuerpo = new JsonObject();
+            cuerpo.addProperty("error", mensaje);
+            return new Respuesta(estado, cuerpo, null);
+        }
+    }
+
+    // Se lanza para cortar el tratamiento de una petición con un estado HTTP concreto
+    private static final class ErrorHttp extends Exception {
+        final int estado;
+
+        ErrorHttp(int estado, String mensaje) {
+            super(mensaje);
+            this.estado = estado;
+        }
+    }
+
+    @Override
+    public void handle(HttpExchange intercambio) throws IOException {
+        long inicio = Metricas.inicio();
+        PETICIONES.incrementar();
+        try (intercambio) {
+            Respuesta respuesta;
+            try {
+                JsonElement cuerpo = leerCuerpo(intercambio.getRequestBody());
+                List<String> siNoCoincide = intercambio.getRequestHeaders().get("If-None-Match"); // Puede repetirse
+                Peticion peticion = new Peticion(intercambio.getRequestMethod().toUpperCase(Locale.ROOT),
+                        intercambio.getRequestURI().getPath(), parametros(intercambio.getRequestURI().getRawQuery()),
+                        cuerpo, siNoCoincide == null ? null : String.join(",", siNoCoincide));
+                respuesta = atender(peticion);
+            } catch (JsonParseException e) {
+                respuesta = Respuesta.error(400, "El cuerpo no es JSON válido: " + e.getMessage());
+            }
+            escribir(intercambio, respuesta);
+        } finally {
+            TIEMPO_PETICION.registrarDesde(inicio);
+        }
+    }
+
+    // Método para resolver una petición sin tocar la red; lo usa también el lote
+    Respuesta atender(Peticion peticion) {
+        try {
+            return enrutar(peticion);
+        } catch (ErrorHttp e) {
+            return Respuesta.error(e.estado, e.getMessage());
+        } catch (InvalidDataException | IllegalArgumentException | DateTimeParseException | IllegalStateException
+                | ClassCastException | UnsupportedOperationException | JsonParseException e) {
+            // Datos incorrectos en la petición (campos que faltan, tipos o fechas inválidas...)
+            return Respuesta.error(400, e.getMessage());
+        } catch (RuntimeException e) {
+            ERRORES.incrementar();
+            System.out.println("Error al atender " + peticion.metodo + " " + peticion.ruta + ": " + e);
+            return Respuesta.error(500, "Error interno del servidor.");
+        }
+    }
+
+    private Respuesta enrutar(Peticion peticion) throws ErrorHttp, InvalidDataException {
+        String[] partes = peticion.ruta.replaceAll("^/+|/+$", "").split("/+");
+        String metodo = peticion.metodo;
+        switch (partes[0]) {
+            case "tareas":
+                if (partes.length == 1) {
+                    if (metodo.equals("GET")) {
+                        return listar(peticion);
+                    }
+                    exigirMetodo(metodo, "POST");
+                    return crear(peticion.cuerpo);
+                }
+                if (partes.length == 2 && partes[1].equals("lote")) {
+                    exigirMetodo(metodo, "POST");
+                    return crearLote(peticion.cuerpo);
+                }
+                long id = leerId(partes[1]);
+                if (partes.length == 2) {
+                    switch (metodo) {
+                        case "GET":
+                            return new Respuesta(200, gson.toJsonTree(existente(id), Tarea.class), null);
+                        case "PUT":
+                            return editar(id, peticion.cuerpo);
+                        case "DELETE":
+                            existente(id);
+                            controller.eliminarTarea(id);
+                            return new Respuesta(204, null, null);
+                        default:
+                            throw new ErrorHttp(405, "Método no permitido: " + metodo);
+                    }
+                }
+                if (partes.length == 3 && partes[2].equals("completar")) {
+                    exigirMetodo(metodo, "POST");
+                    existente(id);
+                    controller.marcarComoCompletada(id);
+                    return new Respuesta(200, gson.toJsonTree(existente(id), Tarea.class), null);
+                }
+                break;
+            case "lote":
+                if (partes.length == 1) {
+                    exigirMetodo(metodo, "POST");
+                    return lote(peticion.cuerpo);
+                }
+                break;
+            case "deshacer":
+            case "rehacer":
+                if (partes.length == 1) {
+                    exigirMetodo(metodo, "POST");
+                    String descripcion = partes[0].equals("deshacer") ? controller.deshacer() : controller.rehacer();
+                    if (descripcion == null) {
+                        throw new ErrorHttp(409, "No hay nada que " + partes[0] + ".");
+                    }
+                    JsonObject cuerpo = new JsonObject();
+                    cuerpo.addProperty("cambio", descripcion);
+                    return new Respuesta(200, cuerpo, null);
+                }
+                break;
+            case "estadisticas":
+                if (partes.length == 1) {
+                    exigirMetodo(metodo, "GET");
+                    return estadisticas(peticion);
+                }
+                break;
+            case "salud":
+                if (partes.length == 1) {
+                    exigirMetodo(metodo, "GET");
+                    JsonObject cuerpo = new JsonObject();
+                    cuerpo.addProperty("estado", "ok");
+                    cuerpo.addProperty("version", controller.getVersion());
+                    return new Respuesta(200, cuerpo, null);
+                }
+                break;
+            default:
+        }
+        throw new ErrorHttp(404, "No existe el recurso " + peticion.ruta);
+    }
+
+    private Respuesta estadisticas(Peticion peticion) {
+        String etag = "\"" + controller.getVersion() + "-" + LocalDate.now().toEpochDay() + "\"";
+        if (coincide(peticion.siNoCoincide, etag)) {
+            NO_MODIFICADAS.incrementar();
+            return new Respuesta(304, null, etag);
+        }
+        ResumenTareas resumen = controller.getResumen();
+        JsonObject cuerpo = new JsonObject();
+        cuerpo.addProperty("pendientes", resumen.getPendientes());
+        cuerpo.addProperty("completadas", resumen.getCompletadas());
+        cuerpo.addProperty("tasaCompletado", resumen.getTasaCompletado());
+        JsonObject porPrioridad = new JsonObject();
+        for (Prioridad prioridad : Prioridad.values()) {
+            porPrioridad.addProperty(prioridad.toString(), resumen.getPendientes(prioridad));
+        }
+        cuerpo.add("pendientesPorPrioridad", porPrioridad);
+        cuerpo.addProperty("vencidas", resumen.getVencidas());
+        cuerpo.addProperty("vencenHoy", resumen.getVencenHoy());
+        cuerpo.addProperty("vencenEstaSemana", resumen.getVencenEstaSemana());
+        cuerpo.addProperty("sinFecha", resumen.getSinFecha());
+        cuerpo.add("completadasPorDia", gson.toJsonTree(resumen.getCompletadasPorDia()));
+        return new Respuesta(200, cuerpo, etag);
+    }
+
+    // Las listas llevan ETag: versión de los datos, día actual (las vencidas dependen de él) y un resumen SHA-256
+    // de la consulta, para que dos consultas distintas no compartan etiqueta.
+    // Si el cliente ya tiene esa versión se responde 304 sin ejecutar la consulta.
+    private Respuesta listar(Peticion peticion) throws InvalidDataException {
+        Map<String, String> p = peticion.parametros;
+        String etag = "\"" + controller.getVersion() + "-" + LocalDate.now().toEpochDay() + "-" + resumenConsulta(p) + "\"";
+        if (coincide(peticion.siNoCoincide, etag)) {
+            NO_MODIFICADAS.incrementar();
+            return new Respuesta(304, null, etag);
+        }
+        ConsultaTareas consulta = new ConsultaTareas();
+        switch (p.getOrDefault("estado", "pendientes")) {
+            case "pendientes":
+                consulta.completada(false);
+                break;
+            case "completadas":
+                consulta.completada(true);
+                break;
+            case "todas":
+                consulta.completada(null);
+                break;
+            default:
+                throw new IllegalArgumentException("El estado debe ser 'pendientes', 'completadas' o 'todas'.");
+        }
+        if (p.containsKey("prioridad")) {
+            consulta.prioridad(Prioridad.desde(p.get("prioridad")));
+        }
+        if (p.containsKey("desde") || p.containsKey("hasta")) {
+            consulta.entreFechas(fecha(p.get("desde")), fecha(p.get("hasta")));
+        }
+        if (Boolean.parseBoolean(p.get("vencidas"))) {
+            consulta.vencidas();
+        }
+        if (p.containsKey("texto")) {
+            consulta.texto(p.get("texto"));
+        }
+        if (p.containsKey("orden")) {
+            consulta.ordenarPor(orden(p.get("orden")));
+        }
+        int limite = Math.min(LIMITE_MAXIMO, entero(p.get("limit"), ConsultaTareas.LIMITE_POR_DEFECTO));
+        consulta.pagina(entero(p.get("offset"), 0), limite);
+
+        PaginaTareas pagina = controller.consultar(consulta);
+        JsonObject cuerpo = new JsonObject();
+        JsonArray tareas = new JsonArray(pagina.getTareas().size());
+        pagina.getTareas().forEach(t -> tareas.add(gson.toJsonTree(t, Tarea.class)));
+        cuerpo.add("tareas", tareas);
+        cuerpo.addProperty("haySiguiente", pagina.haySiguiente());
+        return new Respuesta(200, cuerpo, etag);
+    }
+
+    private Respuesta crear(JsonElement cuerpo) throws ErrorHttp, InvalidDataException {
+        Tarea creada = controller.agregarTarea(nuevaTarea(objeto(cuerpo)));
+        if (creada == null) {
+            throw new ErrorHttp(500, "No se pudo guardar la tarea.");
+        }
+        return new Respuesta(201, gson.toJsonTree(creada, Tarea.class), null);
+    }
+
+    // Todas o ninguna: si una tarea es inválida no se crea ninguna y se indica cuál falló
+    private Respuesta crearLote(JsonElement cuerpo) throws ErrorHttp {
+        if (cuerpo == null || !cuerpo.isJsonArray()) {
+            throw new ErrorHttp(400, "Se esperaba un array de tareas.");
+        }
+        JsonArray elementos = cuerpo.getAsJsonArray();
+        List<Tarea> nuevas = new ArrayList<>(elementos.size());
+        for (int i = 0; i < elementos.size(); i++) {
+            try {
+                nuevas.add(nuevaTarea(objeto(elementos.get(i))));
+            } catch (InvalidDataException | RuntimeException e) {
+                throw new ErrorHttp(400, "Tarea " + i + ": " + e.getMessage());
+            }
+        }
+        List<Tarea> creadas = controller.agregarTareas(nuevas);
+        JsonObject respuesta = new JsonObject();
+        JsonArray ids = new JsonArray(creadas.size());
+        creadas.forEach(t -> ids.add(t.getId()));
+        respuesta.add("ids", ids);
+        return new Respuesta(201, respuesta, null);
+    }
+
+    private Respuesta editar(long id, JsonElement cuerpo) throws ErrorHttp, InvalidDataException {
+        Tarea actual = existente(id);
+        JsonObject campos = objeto(cuerpo);
+        String prioridad = texto(campos, "prioridad");
+        String fecha = texto(campos, "fechaLimite");
+        controller.editarTarea(id, texto(campos, "titulo"), texto(campos, "descripcion"),
+                fecha == null ? null : LocalDate.parse(fecha),
+                prioridad == null ? actual.getPrioridad() : Prioridad.desde(prioridad));
+        return new Respuesta(200, gson.toJsonTree(existente(id), Tarea.class), null);
+    }
+
+    // Cada petición del lote se atiende por separado y en orden; un fallo no detiene las siguientes.
+    // Ahorra una ida y vuelta por operación a los clientes que hacen muchas seguidas.
+    private Respuesta lote(JsonElement cuerpo) throws ErrorHttp {
+        if (cuerpo == null || !cuerpo.isJsonArray()) {
+            throw new ErrorHttp(400, "Se esperaba un array de peticiones.");
+        }
+        JsonArray peticiones = cuerpo.getAsJsonArray();
+        if (peticiones.size() > PETICIONES_POR_LOTE) {
+            throw new ErrorHttp(413, "Un lote admite como mucho " + PETICIONES_POR_LOTE + " peticiones.");
+        }
+        JsonArray respuestas = new JsonArray(peticiones.size());
+        for (JsonElement elemento : peticiones) {
+            Respuesta respuesta;
+            try {
+                JsonObject sub = objeto(elemento);
+                String metodo = texto(sub, "metodo");
+                String ruta = texto(sub, "ruta");
+                if (metodo == null || ruta == null) {
+                    throw new IllegalArgumentException("Cada petición del lote necesita 'metodo' y 'ruta'.");
+                }
+                int interrogacion = ruta.indexOf('?');
+                String camino = interrogacion < 0 ? ruta : ruta.substring(0, interrogacion);
+                if (camino.replaceAll("^/+", "").startsWith("lote")) {
+                    throw new IllegalArgumentException("Un lote no puede contener otro lote.");
+                }
+                respuesta = atender(new Peticion(metodo.toUpperCase(Locale.ROOT), camino,
+                        parametros(interrogacion < 0 ? null : ruta.substring(interrogacion + 1)), sub.get("cuerpo"), null));
+            } catch (IllegalArgumentException | IllegalStateException | ClassCastException e) {
+                respuesta = Respuesta.error(400, e.getMessage());
+            }
+            JsonObject resultado = new JsonObject();
+            resultado.addProperty("estado", respuesta.estado);
+            resultado.add("cuerpo", respuesta.cuerpo == null ? JsonNull.INSTANCE : respuesta.cuerpo);
+            respuestas.add(resultado);
+        }
+        return new Respuesta(200, respuestas, null);
+    }
+
+    private Tarea existente(long id) throws ErrorHttp {
+        Tarea tarea = controller.buscarPorIdConArchivadas(id); // Puede ser una completada aún no cargada
+        if (tarea == null) {
+            throw new ErrorHttp(404, "No existe ninguna tarea con id " + id + ".");
+        }
+        return tarea;
+    }
+
+    private static Tarea nuevaTarea(JsonObject campos) throws InvalidDataException {
+        String fecha = texto(campos, "fechaLimite");
+        return new Tarea(texto(campos, "titulo"), texto(campos, "descripcion"),
+                fecha == null ? null : LocalDate.parse(fecha), texto(campos, "prioridad"));
+    }
+
+    private static void exigirMetodo(String metodo, String esperado) throws ErrorHttp {
+        if (!metodo.equals(esperado)) {
+            throw new ErrorHttp(405, "Método no permitido: " + metodo);
+        }
+    }
+
+    private static long leerId(String texto) throws ErrorHttp {
+        try {
+            return Long.parseLong(texto);
+        } catch (NumberFormatException e) {
+            throw new ErrorHttp(404, "No existe el recurso /tareas/" + texto);
+        }
+    }
+
+    private static JsonObject objeto(JsonElement cuerpo) {
+        if (cuerpo == null || !cuerpo.isJsonObject()) {
+            throw new IllegalArgumentException("Se esperaba un objeto JSON.");
+        }
+        return cuerpo.getAsJsonObject();
+    }
+
+    private static String texto(JsonObject objeto, String campo) {
+        JsonElement valor = objeto.get(campo);
+        return valor == null || valor.isJsonNull() ? null : valor.getAsString();
+    }
+
+    private static LocalDate fecha(String texto) {
+        return texto == null || texto.isEmpty() ? null : LocalDate.parse(texto);
+    }
+
+    private static int entero(String texto, int porDefecto) {
+        return texto == null || texto.isEmpty() ? porDefecto : Integer.parseInt(texto);
+    }
+
+    private static ConsultaTareas.Orden orden(String texto) {
+        switch (texto.toLowerCase(Locale.ROOT)) {
+            case "fecha":
+                return ConsultaTareas.Orden.FECHA_LIMITE;
+            case "prioridad":
+                return ConsultaTareas.Orden.PRIORIDAD;
+            case "relevancia":
+                return ConsultaTareas.Orden.RELEVANCIA;
+            default:
+                throw new IllegalArgumentException("El orden debe ser 'fecha', 'prioridad' o 'relevancia'.");
+        }
+    }
+
+    private static JsonElement leerCuerpo(InputStream entrada) throws IOException {
+        byte[] bytes = entrada.readAllBytes();
+        if (bytes.length == 0) {
+            return null;
+        }
+        return JsonParser.parseString(new String(bytes, StandardCharsets.UTF_8));
+    }
+
+    private static Map<String, String> parametros(String consulta) {
+        Map<String, String> parametros = new HashMap<>();
+        if (consulta == null || consulta.isEmpty()) {
+            return parametros;
+        }
+        for (String par : consulta.split("&")) {
+            int igual = par.indexOf('=');
+            String nombre = URLDecoder.decode(igual < 0 ? par : par.substring(0, igual), StandardCharsets.UTF_8);
+            String valor = igual < 0 ? "" : URLDecoder.decode(par.substring(igual + 1), StandardCharsets.UTF_8);
+            parametros.put(nombre, valor);
+        }
+        return parametros;
+    }
+
+    // Consulta canónica (parámetros ordenados y codificados, como en la URL) resumida con SHA-256
+    private static String resumenConsulta(Map<String, String> parametros) {
+        StringBuilder canonica = new StringBuilder();
+        for (Map.Entry<String, String> parametro : new TreeMap<>(parametros).entrySet()) {
+            if (canonica.length() > 0) {
+                canonica.append('&');
+            }
+            canonica.append(URLEncoder.encode(parametro.getKey(), StandardCharsets.UTF_8)).append('=')
+                    .append(URLEncoder.encode(parametro.getValue(), StandardCharsets.UTF_8));
+        }
+        try {
+            byte[] resumen = MessageDigest.getInstance("SHA-256").digest(canonica.toString().getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(resumen);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no está disponible.", e); // Toda JVM lo incluye
+        }
+    }
+
+    // If-None-Match puede traer varias etiquetas separadas por comas, débiles (W/) o "*". Para un GET basta con que
+    // coincida el valor, así que la marca de débil se ignora.
+    private static boolean coincide(String siNoCoincide, String etag) {
+        if (siNoCoincide == null) {
+            return false;
+        }
+        for (String etiqueta : siNoCoincide.split(",")) {
+            etiqueta = etiqueta.trim();
+            if (etiqueta.startsWith("W/")) {
+                etiqueta = etiqueta.substring(2);
+            }
+            if (etiqueta.equals("*") || etiqueta.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void escribir(HttpExchange intercambio, Respuesta respuesta) throws IOException {
+        if (respuesta.etag != null) {
+            intercambio.getResponseHeaders().set("ETag", respuesta.etag);
+        }
+        if (respuesta.cuerpo == null) {
+            intercambio.sendResponseHeaders(respuesta.estado, -1);
+            return;
+        }
+        byte[] bytes = gson.toJson(respuesta.cuerpo).getBytes(StandardCharsets.UTF_8);
+        intercambio.getResponseHeaders().set("Content-Type", JSON);
+        intercambio.sendResponseHeaders(respuesta.estado, bytes.length);
+        try (OutputStream salida = intercambio.getResponseBody()) {
+            salida.write(bytes);
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package servidor;
+
+import com.sun.net.httpserver.HttpServer;
+import controller.TareaController;
+import exceptions.FilePersistenceException;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Modo servicio sin interfaz gráfica: la API HTTP/JSON de ApiTareas sobre el HttpServer del JDK.
+// Cada petición se atiende en un hilo virtual si la JVM los tiene (Java 21 o posterior); si no,
+// en un grupo fijo de hilos de plataforma, suficiente porque el controlador resuelve casi todo en memoria.
+//
+//   java -cp app/target/todolist-1.0-SNAPSHOT.jar servidor.ServidorTareas --puerto 8080 --datos /ruta/tareas.json
+public class ServidorTareas {
+    public static final int PUERTO_POR_DEFECTO = 8080;
+
+    static {
+        // Sin TCP_NODELAY las respuestas pequeñas esperan al ACK retardado del cliente (~40 ms por petición).
+        // Se lee al crear el primer HttpServer, así que tiene que fijarse antes.
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+    }
+
+    private final TareaController controller;
+    private final HttpServer servidor;
+    private final ExecutorService ejecutor;
+
+    public ServidorTareas(TareaController controller, String host, int puerto) throws IOException {
+        this.controller = controller;
+        this.servidor = HttpServer.create(new InetSocketAddress(host, puerto), 0);
+        this.ejecutor = crearEjecutor();
+        servidor.createContext("/", new ApiTareas(controller));
+        servidor.setExecutor(ejecutor);
+    }
+
+    public void iniciar() {
+        servidor.start();
+    }
+
+    // Puerto en el que escucha (útil si se pidió el 0 para que el sistema elija uno libre)
+    public int getPuerto() {
+        return servidor.getAddress().getPort();
+    }
+
+    // Método para dejar de aceptar peticiones, esperar a las que están en curso y guardar las tareas
+    public void detener() throws FilePersistenceException {
+        servidor.stop(1);
+        ejecutor.shutdown();
+        try {
+            ejecutor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        controller.cerrar();
+    }
+
+    // Hilos virtuales por reflexión para poder compilar y ejecutar también con Java 17
+    static ExecutorService crearEjecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            int hilos = Integer.getInteger("tareas.hilosHttp", Math.max(16, Runtime.getRuntime().availableProcessors() * 4));
+            AtomicInteger contador = new AtomicInteger();
+            return Executors.newFixedThreadPool(hilos, r -> {
+                Thread t = new Thread(r, "http-tareas-" + contador.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            });
+        }
+    }
+
+    // Argumentos: --puerto N, --host H y --datos RUTA. Sin ellos se usan tareas.puerto, tareas.host y tareas.ruta.
+    public static void main(String[] args) {
+        int puerto = Integer.getInteger("tareas.puerto", PUERTO_POR_DEFECTO);
+        String host = System.getProperty("tareas.host", "localhost");
+        String datos = System.getProperty("tareas.ruta", TareaController.RUTA_POR_DEFECTO);
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "--puerto":
+                    puerto = Integer.parseInt(args[i + 1]);
+                    break;
+                case "--host":
+                    host = args[i + 1];
+                    break;
+                case "--datos":
+                    datos = args[i + 1];
+                    break;
+                default:
+                    System.out.println("Argumento desconocido: " + args[i]);
+                    return;
+            }
+        }
+        try {
+            ServidorTareas servidor = new ServidorTareas(new TareaController(datos), host, puerto);
+            servidor.iniciar();
+            System.out.println("Servicio de tareas escuchando en http://" + host + ":" + servidor.getPuerto() + "/tareas (datos: " + datos + ")");
+        } catch (IOException e) {
+            System.out.println("Error al iniciar el servidor: " + e.getMessage());
+        }
+    }
+}
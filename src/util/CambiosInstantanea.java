@@ -0,0 +1,26 @@
+package util;
+
+import model.Tarea;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+// Diferencia entre la instantánea que había en disco y la que hay ahora, cuando otro proceso la ha cambiado:
+// las tareas nuevas o modificadas (ya decodificadas) y los ids de las que han desaparecido
+public class CambiosInstantanea {
+    private final List<Tarea> modificadas;
+    private final Set<Long> eliminadas;
+
+    public CambiosInstantanea(List<Tarea> modificadas, Set<Long> eliminadas) {
+        this.modificadas = Collections.unmodifiableList(modificadas);
+        this.eliminadas = Collections.unmodifiableSet(eliminadas);
+    }
+
+    public List<Tarea> getModificadas() { return modificadas; }
+    public Set<Long> getEliminadas() { return eliminadas; }
+
+    public boolean estaVacio() {
+        return modificadas.isEmpty() && eliminadas.isEmpty();
+    }
+}
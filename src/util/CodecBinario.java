@@ -0,0 +1,244 @@
+package util;
+
+import model.Prioridad;
+import model.Tarea;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+// Formato binario versionado para la instantánea (extensión .tbin). Todo en big-endian:
+//   cabecera: magia "TARE" (int), versión (short), número de tareas (int)
+//   tarea:    id (long), fechaLimite en días epoch (int, Integer.MIN_VALUE = sin fecha),
+//             prioridad (byte, -1 = sin prioridad), completada (byte), título y descripción
+//   texto:    longitud en bytes (int, -1 = null) seguida de los bytes UTF-8
+// Se escribe con un FileChannel y un buffer directo, y se lee sobre el archivo entero cargado en un buffer.
+public class CodecBinario implements CodecTareas {
+    public static final String EXTENSION = ".tbin";
+    public static final int MAGIA = 0x54415245; // "TARE"
+    public static final short VERSION = 1;
+
+    private static final int TAMANO_CABECERA = 4 + 2 + 4;
+    private static final int POSICION_CANTIDAD = 4 + 2;
+    private static final int TAMANO_MINIMO_TAREA = 8 + 4 + 1 + 1 + 4 + 4; // Con los dos textos nulos
+    private static final int TAMANO_BUFFER = 64 * 1024;
+
+    @Override
+    public String nombre() {
+        return "binario";
+    }
+
+    @Override
+    public void escribir(FileChannel canal, Collection<Tarea> tareas) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(TAMANO_BUFFER);
+        buffer.putInt(MAGIA).putShort(VERSION).putInt(0); // La cantidad se corrige al final
+        int cantidad = 0;
+        for (Tarea tarea : tareas) {
+            byte[] titulo = utf8(tarea.getTitulo());
+            byte[] descripcion = utf8(tarea.getDescripcion());
+            asegurarEspacio(canal, buffer, 8 + 4 + 1 + 1);
+            buffer.putLong(tarea.getId());
+            buffer.putInt(tarea.getFechaLimiteEpochDay());
+            buffer.put(tarea.getPrioridad() == null ? -1 : tarea.getPrioridad().codigo());
+            buffer.put((byte) (tarea.isCompletada() ? 1 : 0));
+            escribirTexto(canal, buffer, titulo);
+            escribirTexto(canal, buffer, descripcion);
+            cantidad++;
+        }
+        vaciar(canal, buffer);
+        ByteBuffer numero = ByteBuffer.allocate(4).putInt(cantidad);
+        numero.flip();
+        canal.write(numero, POSICION_CANTIDAD);
+    }
+
+    private static byte[] utf8(String texto) {
+        return texto == null ? null : texto.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static void escribirTexto(FileChannel canal, ByteBuffer buffer, byte[] bytes) throws IOException {
+        asegurarEspacio(canal, buffer, 4);
+        if (bytes == null) {
+            buffer.putInt(-1);
+            return;
+        }
+        buffer.putInt(bytes.length);
+        if (bytes.length <= buffer.remaining()) {
+            buffer.put(bytes);
+            return;
+        }
+        // Textos más grandes que el hueco libre: se vacía el buffer y se escriben directamente
+        vaciar(canal, buffer);
+        ByteBuffer directo = ByteBuffer.wrap(bytes);
+        while (directo.hasRemaining()) {
+            canal.write(directo);
+        }
+    }
+
+    private static void asegurarEspacio(FileChannel canal, ByteBuffer buffer, int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            vaciar(canal, buffer);
+        }
+    }
+
+    private static void vaciar(FileChannel canal, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            canal.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    @Override
+    public LectorInstantanea abrir(File archivo) throws IOException {
+        if (!archivo.exists()) {
+            throw new FileNotFoundException(archivo.getPath());
+        }
+        return new LectorBinario(CodecTareas.leerEntero(archivo));
+    }
+
+    // La cantidad de la cabecera permite crear la lista con su tamaño exacto
+    @Override
+    public List<Tarea> leer(File archivo) throws IOException {
+        LectorBinario lector = (LectorBinario) abrir(archivo);
+        List<Tarea> tareas = new ArrayList<>(lector.restantes);
+        while (lector.hasNext()) {
+            tareas.add(lector.next());
+        }
+        return tareas;
+    }
+
+    // Con el formato binario no hace falta decodificar para delimitar: basta con saltar las longitudes
+    @Override
+    public int[] delimitar(ByteBuffer datos) throws IOException {
+        if (!datos.hasRemaining()) {
+            return new int[0];
+        }
+        try {
+            LectorBinario lector = new LectorBinario(datos);
+            if (lector.restantes > datos.remaining() / TAMANO_MINIMO_TAREA) {
+                throw new IOException("El archivo binario de tareas está incompleto.");
+            }
+            int[] limites = new int[lector.restantes * 2];
+            for (int i = 0; i < limites.length; i += 2) {
+                limites[i] = datos.position();
+                datos.position(datos.position() + 8 + 4 + 1 + 1);
+                saltarTexto(datos);
+                saltarTexto(datos);
+                limites[i + 1] = datos.position();
+            }
+            return limites;
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            throw new IOException("El archivo binario de tareas está incompleto.", e);
+        }
+    }
+
+    private static void saltarTexto(ByteBuffer datos) throws IOException {
+        int longitud = datos.getInt();
+        if (longitud < -1) {
+            throw new IOException("Longitud de texto no válida en el archivo binario: " + longitud);
+        }
+        datos.position(datos.position() + Math.max(0, longitud));
+    }
+
+    @Override
+    public Tarea decodificar(ByteBuffer registro) throws IOException {
+        try {
+            return new LectorBinario(registro, 1).next();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static final class LectorBinario implements LectorInstantanea {
+        private final ByteBuffer datos;
+        private int restantes;
+        private byte[] bytes = new byte[256]; // Se reutiliza para decodificar los textos
+
+        LectorBinario(ByteBuffer datos) throws IOException {
+            this.datos = datos;
+            if (!datos.hasRemaining()) {
+                return; // Un archivo vacío equivale a ninguna tarea, igual que en JSON
+            }
+            if (datos.remaining() < TAMANO_CABECERA || datos.getInt() != MAGIA) {
+                throw new IOException("El archivo no tiene el formato binario de tareas.");
+            }
+            short version = datos.getShort();
+            if (version > VERSION) {
+                throw new IOException("Versión del formato binario no soportada: " + version);
+            }
+            restantes = datos.getInt();
+            if (restantes < 0) {
+                throw new IOException("La cabecera del archivo binario está dañada.");
+            }
+        }
+
+        // Para leer tareas sueltas, sin cabecera
+        LectorBinario(ByteBuffer datos, int cantidad) {
+            this.datos = datos;
+            this.restantes = cantidad;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return restantes > 0;
+        }
+
+        @Override
+        public Tarea next() {
+            if (restantes == 0) {
+                throw new NoSuchElementException();
+            }
+            try {
+                long id = datos.getLong();
+                int fechaLimite = datos.getInt();
+                byte codigo = datos.get();
+                boolean completada = datos.get() != 0;
+                String titulo = leerTexto();
+                String descripcion = leerTexto();
+                if (codigo < -1 || codigo >= Prioridad.values().length) {
+                    throw new IOException("Prioridad desconocida en el archivo binario: " + codigo);
+                }
+                Prioridad prioridad = codigo < 0 ? null : Prioridad.desdeCodigo(codigo);
+                Tarea tarea = Tarea.restaurar(id, titulo, descripcion, fechaLimite, prioridad, completada);
+                restantes--;
+                return tarea;
+            } catch (BufferUnderflowException e) {
+                throw new UncheckedIOException(new IOException("El archivo binario de tareas está incompleto.", e));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private String leerTexto() throws IOException {
+            int longitud = datos.getInt();
+            if (longitud < 0) {
+                if (longitud != -1) {
+                    throw new IOException("Longitud de texto no válida en el archivo binario: " + longitud);
+                }
+                return null;
+            }
+            if (longitud > datos.remaining()) {
+                throw new BufferUnderflowException();
+            }
+            if (longitud > bytes.length) {
+                bytes = new byte[Math.max(longitud, bytes.length * 2)];
+            }
+            datos.get(bytes, 0, longitud);
+            return new String(bytes, 0, longitud, StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public void close() {
+            restantes = 0;
+        }
+    }
+}
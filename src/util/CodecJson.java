@@ -0,0 +1,180 @@
+package util;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonWriter;
+import model.Tarea;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Arrays;
+import java.util.List;
+
+// Formato original: un arreglo JSON con una tarea por objeto
+public class CodecJson implements CodecTareas {
+    // Tamaño aproximado de una tarea serializada, usado para dimensionar la lista al cargar
+    private static final int BYTES_POR_TAREA_ESTIMADOS = 96;
+    private static final int TAMANO_BUFFER = 64 * 1024;
+
+    private final TypeAdapter<Tarea> adaptador;
+
+    public CodecJson(TypeAdapter<Tarea> adaptador) {
+        this.adaptador = adaptador;
+    }
+
+    @Override
+    public String nombre() {
+        return "json";
+    }
+
+    @Override
+    public void escribir(FileChannel canal, Collection<Tarea> tareas) throws IOException {
+        // El writer no se cierra aquí: el canal lo cierra quien lo abrió, después del fsync
+        JsonWriter writer = new JsonWriter(new BufferedWriter(
+                new OutputStreamWriter(Channels.newOutputStream(canal)), TAMANO_BUFFER));
+        writer.beginArray();
+        for (Tarea tarea : tareas) {
+            adaptador.write(writer, tarea);
+        }
+        writer.endArray();
+        writer.flush();
+    }
+
+    @Override
+    public LectorInstantanea abrir(File archivo) throws IOException {
+        return new LectorTareas(new BufferedReader(
+                new InputStreamReader(new FileInputStream(archivo)), TAMANO_BUFFER), adaptador);
+    }
+
+    // Lectura en streaming: cada tarea se deserializa directamente en una lista ya dimensionada según el tamaño del archivo
+    @Override
+    public List<Tarea> leer(File archivo) throws IOException {
+        List<Tarea> tareas = new ArrayList<>(capacidadEstimada(archivo.length()));
+        try (LectorInstantanea lector = abrir(archivo)) {
+            while (lector.hasNext()) {
+                tareas.add(lector.next());
+            }
+        }
+        return tareas;
+    }
+
+    // Recorre los bytes sin decodificar nada: solo sigue la anidación de llaves y corchetes (saltando el contenido
+    // de las cadenas) para encontrar dónde empieza y acaba cada objeto del arreglo principal
+    @Override
+    public int[] delimitar(ByteBuffer datos) throws IOException {
+        int[] limites = new int[64];
+        int cantidad = 0;
+        int fin = datos.limit();
+        int i = saltarEspacios(datos, datos.position(), fin);
+        if (i == fin) {
+            return new int[0]; // Archivo vacío: ninguna tarea, como al cargar
+        }
+        if (empiezaPor(datos, i, "null")) {
+            return new int[0];
+        }
+        if (datos.get(i) != '[') {
+            throw new IOException("La instantánea JSON no empieza por un arreglo.");
+        }
+        i = saltarEspacios(datos, i + 1, fin);
+        if (i < fin && datos.get(i) == ']') {
+            return new int[0];
+        }
+        while (true) {
+            if (i >= fin || datos.get(i) != '{') {
+                throw new IOException("La instantánea JSON está incompleta.");
+            }
+            int inicio = i;
+            i = finDeObjeto(datos, i, fin);
+            if (cantidad + 2 > limites.length) {
+                limites = Arrays.copyOf(limites, limites.length * 2);
+            }
+            limites[cantidad++] = inicio;
+            limites[cantidad++] = i;
+            i = saltarEspacios(datos, i, fin);
+            if (i >= fin) {
+                throw new IOException("La instantánea JSON está incompleta.");
+            }
+            byte separador = datos.get(i);
+            if (separador == ']') {
+                return Arrays.copyOf(limites, cantidad);
+            }
+            if (separador != ',') {
+                throw new IOException("Separador inesperado en la instantánea JSON en la posición " + i + ".");
+            }
+            i = saltarEspacios(datos, i + 1, fin);
+        }
+    }
+
+    // Posición siguiente a la llave que cierra el objeto que empieza en inicio
+    private static int finDeObjeto(ByteBuffer datos, int inicio, int fin) throws IOException {
+        int profundidad = 0;
+        boolean enCadena = false;
+        for (int i = inicio; i < fin; i++) {
+            byte b = datos.get(i);
+            if (enCadena) {
+                if (b == '\\') {
+                    i++; // El carácter escapado no puede cerrar la cadena
+                } else if (b == '"') {
+                    enCadena = false;
+                }
+            } else if (b == '"') {
+                enCadena = true;
+            } else if (b == '{' || b == '[') {
+                profundidad++;
+            } else if (b == '}' || b == ']') {
+                if (--profundidad == 0) {
+                    return i + 1;
+                }
+            }
+        }
+        throw new IOException("La instantánea JSON está incompleta.");
+    }
+
+    private static int saltarEspacios(ByteBuffer datos, int i, int fin) {
+        while (i < fin) {
+            byte b = datos.get(i);
+            if (b != ' ' && b != '\n' && b != '\r' && b != '\t') {
+                break;
+            }
+            i++;
+        }
+        return i;
+    }
+
+    private static boolean empiezaPor(ByteBuffer datos, int i, String texto) {
+        if (i + texto.length() > datos.limit()) {
+            return false;
+        }
+        for (int k = 0; k < texto.length(); k++) {
+            if (datos.get(i + k) != texto.charAt(k)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public Tarea decodificar(ByteBuffer registro) throws IOException {
+        byte[] bytes = new byte[registro.remaining()];
+        registro.get(bytes);
+        try {
+            return adaptador.fromJson(new String(bytes)); // Mismo juego de caracteres con que se escribe y se carga
+        } catch (IllegalStateException e) {
+            throw new IOException("Tarea ilegible en la instantánea JSON.", e);
+        }
+    }
+
+    private static int capacidadEstimada(long bytes) {
+        long estimada = bytes / BYTES_POR_TAREA_ESTIMADOS;
+        return (int) Math.max(10, Math.min(estimada, Integer.MAX_VALUE - 8));
+    }
+}
@@ -0,0 +1,61 @@
+package util;
+
+import model.Tarea;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+// Formato en disco de la instantánea de tareas. FileManager elige el códec según la extensión del archivo;
+// el diario de cambios y el archivo de completadas siguen siendo JSON por líneas en cualquier caso.
+public interface CodecTareas {
+
+    // Nombre corto del formato, usado en mensajes y en el conversor
+    String nombre();
+
+    // Escribe la instantánea completa desde el principio del canal. El fsync y el renombrado los hace quien llama.
+    void escribir(FileChannel canal, Collection<Tarea> tareas) throws IOException;
+
+    // Abre un recorrido en streaming; lanza FileNotFoundException si el archivo no existe
+    LectorInstantanea abrir(File archivo) throws IOException;
+
+    // Límites de cada tarea dentro de la instantánea leída en memoria, como pares [inicio, fin) seguidos.
+    // Lanza IOException si el contenido no está completo (por ejemplo, porque otro proceso lo está escribiendo).
+    int[] delimitar(ByteBuffer datos) throws IOException;
+
+    // Decodifica una sola tarea a partir de los bytes que le asignó delimitar
+    Tarea decodificar(ByteBuffer registro) throws IOException;
+
+    // Lee la instantánea completa en una lista modificable
+    default List<Tarea> leer(File archivo) throws IOException {
+        List<Tarea> tareas = new ArrayList<>();
+        try (LectorInstantanea lector = abrir(archivo)) {
+            while (lector.hasNext()) {
+                tareas.add(lector.next());
+            }
+        }
+        return tareas;
+    }
+
+    // Lee el archivo entero en un buffer del montón. No se proyecta en memoria: una proyección sigue abierta hasta que
+    // el recolector la libera y, mientras tanto, en Windows impide renombrar otro archivo encima.
+    // Si el archivo se acorta mientras se lee, el buffer se queda con lo leído y el corte lo detecta quien decodifica.
+    static ByteBuffer leerEntero(File archivo) throws IOException {
+        try (FileChannel canal = FileChannel.open(archivo.toPath(), StandardOpenOption.READ)) {
+            long tamano = canal.size();
+            if (tamano > Integer.MAX_VALUE) {
+                throw new IOException("El archivo " + archivo + " es demasiado grande para leerlo en memoria.");
+            }
+            ByteBuffer datos = ByteBuffer.allocate((int) tamano);
+            while (datos.hasRemaining() && canal.read(datos) >= 0) {
+                // Se sigue hasta llenar el buffer o llegar al final
+            }
+            return datos.flip();
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package util;
+
+import exceptions.FilePersistenceException;
+import model.Tarea;
+
+import java.util.List;
+
+// Conversor entre los formatos de instantánea (JSON <-> binario). El formato de cada lado se deduce de la extensión.
+// Uso: java -cp todolist.jar util.ConvertidorFormato src/model/persistence/tareas.json src/model/persistence/tareas.tbin
+public class ConvertidorFormato {
+
+    private ConvertidorFormato() {
+    }
+
+    // Método para convertir la instantánea de origen (con su diario aplicado) al formato del destino.
+    // Devuelve el número de tareas escritas.
+    public static int convertir(String origen, String destino) throws FilePersistenceException {
+        FileManager lector = new FileManager(origen);
+        FileManager escritor = new FileManager(destino);
+        try {
+            List<Tarea> tareas = lector.cargarTareas();
+            escritor.guardarTareas(tareas);
+            // Los ids reservados en el origen siguen reservados en el destino
+            escritor.reservarId(lector.leerUltimoIdReservado());
+            return tareas.size();
+        } finally {
+            lector.cerrar();
+            escritor.cerrar();
+        }
+    }
+
+    public static void main(String[] args) {
+        if (args.length != 2) {
+            System.out.println("Uso: ConvertidorFormato <origen> <destino>   (extensiones .json o " + CodecBinario.EXTENSION + ")");
+            System.exit(2);
+        }
+        try {
+            int cantidad = convertir(args[0], args[1]);
+            System.out.println("Convertidas " + cantidad + " tareas de " + args[0] + " a " + args[1]);
+        } catch (FilePersistenceException e) {
+            System.out.println("Error al convertir las tareas: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package util;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import model.Tarea;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Diario de cambios de solo anexado: cada mutación se escribe como una línea JSON al final del archivo
+public class DiarioTareas {
+    private final File archivo;
+    private final Gson gson;
+    private FileOutputStream salida;
+    private Writer writer;
+    private int registros;
+
+    public DiarioTareas(String ruta, Gson gson) {
+        this.archivo = new File(ruta);
+        this.gson = gson;
+    }
+
+    // Método para añadir varios registros ya serializados con una sola escritura
+    public synchronized void anexarLineas(Collection<String> lineas) throws IOException {
+        if (lineas.isEmpty()) {
+            return;
+        }
+        if (writer == null) {
+            salida = new FileOutputStream(archivo, true);
+            writer = new BufferedWriter(new OutputStreamWriter(salida, StandardCharsets.UTF_8));
+        }
+        for (String linea : lineas) {
+            writer.write(linea);
+            writer.write('\n');
+        }
+        writer.flush();  // Los registros llegan al sistema operativo antes de devolver el control
+        registros += lineas.size();
+    }
+
+    public String serializar(RegistroDiario registro) {
+        return gson.toJson(registro);
+    }
+
+    // Método para forzar que lo escrito llegue al disco (fsync)
+    public synchronized void sincronizar() throws IOException {
+        if (salida != null) {
+            writer.flush();
+            salida.getFD().sync();
+        }
+    }
+
+    // Método para aplicar los registros del diario sobre la lista cargada desde la instantánea.
+    // Devuelve false si encontró un registro incompleto (por ejemplo, tras un corte en mitad de una escritura).
+    public synchronized boolean reproducir(List<Tarea> tareas) throws IOException {
+        registros = 0;
+        if (!archivo.exists()) {
+            return true;
+        }
+        Map<Long, Tarea> porId = null; // Se construye con el primer registro por id
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(archivo), StandardCharsets.UTF_8))) {
+            String linea;
+            while ((linea = reader.readLine()) != null) {
+                if (linea.isBlank()) {
+                    continue;
+                }
+                RegistroDiario registro;
+                try {
+                    registro = gson.fromJson(linea, RegistroDiario.class);
+                } catch (JsonParseException e) {
+                    return false;
+                }
+                if (registro == null || registro.getOperacion() == null) {
+                    return false;
+                }
+                boolean aplicado;
+                if (registro.esPosicional()) {
+                    aplicado = porId == null && aplicarPorPosicion(registro, tareas);
+                } else {
+                    if (porId == null) {
+                        porId = new LinkedHashMap<>();
+                        for (Tarea tarea : tareas) {
+                            porId.put(tarea.getId(), tarea);
+                        }
+                    }
+                    aplicado = aplicarPorId(registro, porId);
+                }
+                if (!aplicado) {
+                    return false;
+                }
+                registros++;
+            }
+        } finally {
+            if (porId != null) {
+                tareas.clear();
+                tareas.addAll(porId.values());
+            }
+        }
+        return true;
+    }
+
+    private boolean aplicarPorId(RegistroDiario registro, Map<Long, Tarea> porId) {
+        switch (registro.getOperacion()) {
+            case AGREGAR:
+            case EDITAR:
+                if (registro.getTarea() == null) {
+                    return false;
+                }
+                porId.put(registro.getId(), registro.getTarea().conId(registro.getId())); // Editar conserva la posición original
+                return true;
+            case ELIMINAR:
+                porId.remove(registro.getId());
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    // Registros de diarios anteriores a los ids, que se referían a la posición en la lista
+    private boolean aplicarPorPosicion(RegistroDiario registro, List<Tarea> tareas) {
+        int indice = registro.getIndice();
+        switch (registro.getOperacion()) {
+            case AGREGAR:
+                if (indice < 0 || indice > tareas.size() || registro.getTarea() == null) {
+                    return false;
+                }
+                tareas.add(indice, registro.getTarea());
+                return true;
+            case EDITAR:
+                if (indice < 0 || indice >= tareas.size() || registro.getTarea() == null) {
+                    return false;
+                }
+                tareas.set(indice, registro.getTarea());
+                return true;
+            case ELIMINAR:
+                if (indice < 0 || indice >= tareas.size()) {
+                    return false;
+                }
+                tareas.remove(indice);
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    // Método para sustituir el contenido del diario por un registro AGREGAR por tarea (escritura en temporal y renombrado)
+    public synchronized void reemplazar(Collection<Tarea> tareas) throws IOException {
+        cerrar();
+        File temporal = new File(archivo.getPath() + ".tmp");
+        try (Writer salida = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(temporal), StandardCharsets.UTF_8))) {
+            for (Tarea tarea : tareas) {
+                salida.write(gson.toJson(RegistroDiario.agregar(tarea)));
+                salida.write('\n');
+            }
+        }
+        Files.move(temporal.toPath(), archivo.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        registros = tareas.size();
+    }
+
+    // Método para descartar el diario una vez que su contenido ya está en la instantánea
+    public synchronized void vaciar() throws IOException {
+        cerrar();
+        if (archivo.exists() && !archivo.delete()) {
+            throw new IOException("No se pudo eliminar el diario " + archivo);
+        }
+        registros = 0;
+    }
+
+    // Método para crear el diario vacío si no existe, sin tocar lo que ya tenga
+    public synchronized void asegurarExiste() throws IOException {
+        if (!archivo.exists()) {
+            new FileOutputStream(archivo, true).close();
+        }
+    }
+
+    public synchronized boolean existe() {
+        return archivo.exists();
+    }
+
+    public synchronized int getRegistros() {
+        return registros;
+    }
+
+    public synchronized void cerrar() throws IOException {
+        if (writer != null) {
+            writer.close();
+            writer = null;
+            salida = null;
+        }
+    }
+}
@@ -0,0 +1,266 @@
+package util;
+
+import exceptions.FilePersistenceException;
+import model.Tarea;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Supplier;
+
+// Persistencia en segundo plano con un único hilo escritor.
+// Los cambios se serializan al encolarlos (quien llama tiene la tarea en un estado coherente) y se agrupan
+// durante una ventana: si una tarea cambia varias veces en la ventana solo se escribe su último registro.
+// Cada lote se escribe con una sola llamada al sistema; el fsync solo se hace en flush() y cerrar().
+public class EscritorAsincrono {
+    public static final long VENTANA_POR_DEFECTO_MS = 50;
+
+    private final FileManager fileManager;
+    private final long ventanaMs;
+    private final Supplier<Collection<Tarea>> instantanea; // Copia de las pendientes para compactar
+    private final Lock cerrojoCambios; // Mientras se tiene nadie encola cambios (el de lectura del controlador)
+    private final ScheduledExecutorService hilo;
+
+    // Último registro encolado por id, en el orden en que se tocó cada tarea por primera vez en la ventana.
+    // Los registros del diario son idempotentes por id, así que quedarse con el último es equivalente.
+    private Map<Long, String> diarioPendiente = new LinkedHashMap<>();
+    private Map<Long, String> archivoPendiente = new LinkedHashMap<>();
+    // Bajas del archivo de completadas que solo se pueden escribir cuando la tarea ya está en el diario
+    private Map<Long, String> archivoTrasDiario = new LinkedHashMap<>();
+    private boolean programado;
+    private boolean instantaneaPedida; // El próximo lote reescribe la instantánea completa en vez de anexar al diario
+    private boolean cerrado;
+    private FilePersistenceException ultimoError;
+
+    public EscritorAsincrono(FileManager fileManager, long ventanaMs, Supplier<Collection<Tarea>> instantanea, Lock cerrojoCambios) {
+        this.fileManager = fileManager;
+        this.ventanaMs = ventanaMs;
+        this.instantanea = instantanea;
+        this.cerrojoCambios = cerrojoCambios;
+        this.hilo = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "escritor-tareas");
+            t.setDaemon(true); // El cierre ordenado lo hace cerrar(), llamado también desde el gancho de apagado
+            return t;
+        });
+    }
+
+    private enum Destino { DIARIO, ARCHIVO, ARCHIVO_TRAS_DIARIO }
+
+    public void registrarCambio(RegistroDiario registro) {
+        encolar(Destino.DIARIO, registro);
+    }
+
+    public void archivarCompletada(Tarea tarea) {
+        encolar(Destino.ARCHIVO, RegistroDiario.agregar(tarea));
+    }
+
+    public void eliminarDelArchivo(long id) {
+        encolar(Destino.ARCHIVO, RegistroDiario.eliminar(id));
+    }
+
+    // Método para sacar del archivo de completadas una tarea que vuelve a pendientes. A diferencia de
+    // eliminarDelArchivo, la baja se escribe después del diario del mismo lote, donde está su alta como pendiente.
+    public void reabrirCompletada(long id) {
+        encolar(Destino.ARCHIVO_TRAS_DIARIO, RegistroDiario.eliminar(id));
+    }
+
+    // Método para pedir que el próximo lote reescriba la instantánea completa (tras una carga masiva).
+    // Los registros del diario encolados hasta ahora sobran: la instantánea se copia después y ya los incluye.
+    public synchronized void guardarInstantanea() {
+        if (cerrado) {
+            throw new IllegalStateException("El escritor de tareas está cerrado.");
+        }
+        diarioPendiente.clear();
+        instantaneaPedida = true;
+        programar();
+    }
+
+    private void encolar(Destino destino, RegistroDiario registro) {
+        String linea = fileManager.serializar(registro);
+        synchronized (this) {
+            if (cerrado) {
+                throw new IllegalStateException("El escritor de tareas está cerrado.");
+            }
+            // El mapa se elige dentro del bloque sincronizado: escribirLote puede haberlo sustituido
+            switch (destino) {
+                case DIARIO:
+                    diarioPendiente.put(registro.getId(), linea);
+                    break;
+                case ARCHIVO:
+                    archivoTrasDiario.remove(registro.getId()); // Solo vale el último registro de la tarea en el archivo
+                    archivoPendiente.put(registro.getId(), linea);
+                    break;
+                default:
+                    archivoPendiente.remove(registro.getId());
+                    archivoTrasDiario.put(registro.getId(), linea);
+            }
+            programar();
+        }
+    }
+
+    // Se llama con el monitor tomado
+    private void programar() {
+        if (!programado) {
+            programado = true;
+            hilo.schedule(this::escribirLote, ventanaMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    // Se ejecuta siempre en el hilo escritor
+    private void escribirLote() {
+        Lote lote;
+        boolean reescribir;
+        synchronized (this) {
+            lote = tomarLote();
+            programado = false;
+            reescribir = instantaneaPedida;
+            instantaneaPedida = false;
+        }
+        try {
+            // El archivo de completadas va antes: una tarea nunca desaparece de pendientes sin estar archivada
+            fileManager.anexarAlArchivoCompletadas(lote.archivo.values());
+            lote.archivo.clear();
+            if (!reescribir) {
+                fileManager.anexarAlDiario(lote.diario.values());
+                lote.diario.clear();
+                fileManager.anexarAlArchivoCompletadas(lote.trasDiario.values());
+                lote.trasDiario.clear();
+                if (!fileManager.necesitaCompactar()) {
+                    return;
+                }
+            }
+            // Con una instantánea pedida el diario del lote sobra: la instantánea se copia después y ya lo incluye
+            compactar(lote.trasDiario);
+        } catch (FilePersistenceException e) {
+            System.out.println("Error al guardar las tareas en segundo plano: " + e.getMessage());
+            synchronized (this) {
+                ultimoError = e;
+                // Lo que no se llegó a escribir solo está en memoria: vuelve a la cola para el próximo lote
+                devolverALaCola(lote);
+                instantaneaPedida |= reescribir;
+            }
+        }
+    }
+
+    // Reescribe la instantánea y vacía el diario. La copia de las tareas y la cola se toman a la vez, sin cambios
+    // entre medias: así todo lo que refleja la copia está en la cola o ya escrito. Las completadas que recoge la
+    // copia se archivan y sincronizan antes de escribirla; si no, tras renombrarla y vaciar el diario solo
+    // estarían en memoria. bajasTrasDiario son las bajas del archivo del lote que aún no se han escrito.
+    private void compactar(Map<Long, String> bajasTrasDiario) throws FilePersistenceException {
+        Collection<Tarea> tareas;
+        Lote resto;
+        cerrojoCambios.lock();
+        try {
+            tareas = instantanea.get();
+            synchronized (this) {
+                resto = tomarLote();
+            }
+        } finally {
+            cerrojoCambios.unlock();
+        }
+        try {
+            resto.archivo.keySet().forEach(bajasTrasDiario::remove); // Se volvió a completar después de reabrirla
+            fileManager.anexarAlArchivoCompletadas(resto.archivo.values());
+            fileManager.sincronizarArchivoCompletadas();
+            fileManager.guardarTareas(tareas);
+            // El diario de resto ya está en la instantánea; las bajas por reapertura, que van tras él, ahora pueden escribirse
+            fileManager.anexarAlArchivoCompletadas(bajasTrasDiario.values());
+            bajasTrasDiario.clear();
+            fileManager.anexarAlArchivoCompletadas(resto.trasDiario.values());
+        } catch (FilePersistenceException e) {
+            // Si la instantánea no llegó a escribirse, el diario de resto no está en ningún archivo. Lo que sí se
+            // escribió se vuelve a escribir igual: los registros son idempotentes por id.
+            synchronized (this) {
+                devolverALaCola(resto);
+            }
+            throw e;
+        }
+    }
+
+    // Se llama con el monitor tomado. Lo encolado después del lote es más reciente y manda, también entre los dos
+    // mapas del archivo de completadas (igual que en encolar).
+    private void devolverALaCola(Lote lote) {
+        lote.archivo.keySet().removeAll(archivoTrasDiario.keySet());
+        lote.trasDiario.keySet().removeAll(archivoPendiente.keySet());
+        diarioPendiente = fusionar(lote.diario, diarioPendiente);
+        archivoPendiente = fusionar(lote.archivo, archivoPendiente);
+        archivoTrasDiario = fusionar(lote.trasDiario, archivoTrasDiario);
+    }
+
+    private static Map<Long, String> fusionar(Map<Long, String> anteriores, Map<Long, String> posteriores) {
+        anteriores.putAll(posteriores);
+        return anteriores;
+    }
+
+    // Se llama con el monitor tomado
+    private Lote tomarLote() {
+        Lote lote = new Lote(diarioPendiente, archivoPendiente, archivoTrasDiario);
+        diarioPendiente = new LinkedHashMap<>();
+        archivoPendiente = new LinkedHashMap<>();
+        archivoTrasDiario = new LinkedHashMap<>();
+        return lote;
+    }
+
+    private static final class Lote {
+        final Map<Long, String> diario;
+        final Map<Long, String> archivo;
+        final Map<Long, String> trasDiario;
+
+        Lote(Map<Long, String> diario, Map<Long, String> archivo, Map<Long, String> trasDiario) {
+            this.diario = diario;
+            this.archivo = archivo;
+            this.trasDiario = trasDiario;
+        }
+    }
+
+    // Método para esperar a que todo lo encolado esté escrito y sincronizado con el disco
+    public void flush() throws FilePersistenceException {
+        try {
+            hilo.submit(() -> {
+                escribirLote();
+                fileManager.sincronizar();
+                return null;
+            }).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new FilePersistenceException("Se interrumpió la espera de la escritura.", e);
+        } catch (ExecutionException e) {
+            Throwable causa = e.getCause();
+            if (causa instanceof FilePersistenceException) {
+                throw (FilePersistenceException) causa;
+            }
+            throw new FilePersistenceException("Error al escribir las tareas pendientes.", causa);
+        }
+        FilePersistenceException error;
+        synchronized (this) {
+            error = ultimoError;
+            ultimoError = null;
+        }
+        if (error != null) {
+            throw error;
+        }
+    }
+
+    // Método para vaciar la cola, sincronizar y detener el hilo escritor. Se puede llamar varias veces.
+    public void cerrar() throws FilePersistenceException {
+        synchronized (this) {
+            if (cerrado) {
+                return;
+            }
+        }
+        try {
+            flush();
+        } finally {
+            synchronized (this) {
+                cerrado = true;
+            }
+            hilo.shutdown();
+            fileManager.cerrar();
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package util;
+
+import com.google.gson.stream.JsonWriter;
+import controller.TareaAdapter;
+import exceptions.FilePersistenceException;
+import model.Tarea;
+
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Locale;
+
+// Exportación de tareas a CSV o JSON (según la extensión del archivo) escribiendo tarea a tarea,
+// sin construir el documento completo en memoria. Los formatos son los mismos que acepta ImportadorTareas.
+public class ExportadorTareas {
+    private static final int TAMANO_BUFFER = 64 * 1024;
+    private static final String CABECERA_CSV = "id,titulo,descripcion,fechaLimite,prioridad,completada";
+
+    // Método para exportar a un archivo .csv o .json; devuelve el número de tareas escritas
+    public long exportar(Iterable<Tarea> tareas, String ruta) throws FilePersistenceException {
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(ruta), StandardCharsets.UTF_8), TAMANO_BUFFER)) {
+            if (ruta.toLowerCase(Locale.ROOT).endsWith(".json")) {
+                return exportarJson(tareas, writer);
+            }
+            return exportarCsv(tareas, writer);
+        } catch (IOException e) {
+            throw new FilePersistenceException("Error al exportar las tareas a " + ruta + ".", e);
+        }
+    }
+
+    public long exportarCsv(Iterable<Tarea> tareas, Writer writer) throws IOException {
+        writer.write(CABECERA_CSV);
+        writer.write('\n');
+        long escritas = 0;
+        for (Tarea tarea : tareas) {
+            writer.write(Long.toString(tarea.getId()));
+            writer.write(',');
+            escribirCampo(writer, tarea.getTitulo());
+            writer.write(',');
+            escribirCampo(writer, tarea.getDescripcion());
+            writer.write(',');
+            LocalDate fecha = tarea.getFechaLimite();
+            if (fecha != null) {
+                writer.write(fecha.toString());
+            }
+            writer.write(',');
+            if (tarea.getPrioridad() != null) {
+                writer.write(tarea.getPrioridad().toString());
+            }
+            writer.write(',');
+            writer.write(tarea.isCompletada() ? "true" : "false");
+            writer.write('\n');
+            escritas++;
+        }
+        writer.flush();
+        return escritas;
+    }
+
+    public long exportarJson(Iterable<Tarea> tareas, Writer writer) throws IOException {
+        JsonWriter json = new JsonWriter(writer);
+        json.setIndent("  ");
+        TareaAdapter adaptador = new TareaAdapter();
+        json.beginArray();
+        long escritas = 0;
+        for (Tarea tarea : tareas) {
+            adaptador.write(json, tarea);
+            escritas++;
+        }
+        json.endArray();
+        json.flush();
+        return escritas;
+    }
+
+    // Entre comillas solo si hace falta (comas, comillas o saltos de línea), con las comillas duplicadas
+    private static void escribirCampo(Writer writer, String valor) throws IOException {
+        if (valor == null) {
+            return;
+        }
+        boolean comillas = false;
+        for (int i = 0; i < valor.length() && !comillas; i++) {
+            char c = valor.charAt(i);
+            comillas = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!comillas) {
+            writer.write(valor);
+            return;
+        }
+        writer.write('"');
+        for (int i = 0; i < valor.length(); i++) {
+            char c = valor.charAt(i);
+            if (c == '"') {
+                writer.write('"');
+            }
+            writer.write(c);
+        }
+        writer.write('"');
+    }
+}
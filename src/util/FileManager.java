@@ -1,26 +1,69 @@
 package util;
 import controller.*;
 import com.google.gson.Gson;
-import com.google.gson.reflect.TypeToken;
 import exceptions.FilePersistenceException;
+import model.Prioridad;
 import model.Tarea;
 import java.io.*;
-import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;   
+import java.util.Set;
+import java.util.function.Consumer;
 import com.google.gson.GsonBuilder;
 import java.time.LocalDate;
 
     public class FileManager {
+        // Número de registros del diario a partir del cual se reescribe la instantánea completa
+        public static final int UMBRAL_COMPACTACION = 1000;
+        // Cantidad de ids que se reservan de una vez en el archivo .ids
+        private static final long BLOQUE_IDS = 1000;
+
+        private static final Histograma TIEMPO_GUARDAR = Metricas.histograma("persistencia.guardar.ns");
+        private static final Metricas.Contador BYTES_GUARDADOS = Metricas.contador("persistencia.guardar.bytes");
+        private static final Histograma TIEMPO_CARGAR = Metricas.histograma("persistencia.cargar.ns");
+        private static final Metricas.Contador BYTES_CARGADOS = Metricas.contador("persistencia.cargar.bytes");
+        private static final Histograma TIEMPO_DIARIO = Metricas.histograma("persistencia.diario.ns");
+        private static final Metricas.Contador REGISTROS_DIARIO = Metricas.contador("persistencia.diario.registros");
+        private static final Metricas.Contador ERRORES = Metricas.contador("persistencia.errores");
+        private static final Histograma TIEMPO_COMPARAR = Metricas.histograma("persistencia.comparar.ns");
+        private static final Metricas.Contador DECODIFICADAS = Metricas.contador("persistencia.comparar.decodificadas");
+
         private String filePath;
         private Gson gson;
+        private CodecTareas codec; // Formato de la instantánea, elegido por la extensión del archivo
+        private DiarioTareas diario;
+        private DiarioTareas archivoCompletadas; // Archivo de solo anexado con las tareas completadas
+        private long ultimoIdReservado = -1;
+        private int umbralCompactacion;
+        // Vigilancia de cambios hechos por otros procesos en la instantánea
+        private final Object cerrojoInstantanea = new Object(); // Ordena las escrituras propias y las comparaciones
+        private IndiceInstantanea indiceDisco; // Lo que hay en disco según la última escritura o comparación
+        private VigilanteInstantanea vigilante;
     
 
         public FileManager(String filePath) {
+            this(filePath, UMBRAL_COMPACTACION);
+        }
+
+        public FileManager(String filePath, int umbralCompactacion) {
             this.filePath = filePath;
+            this.umbralCompactacion = umbralCompactacion;
             this.gson = new GsonBuilder()
                             .registerTypeAdapter(LocalDate.class, new LocalDateAdapter())  // Corregir registro de adaptador
+                            .registerTypeAdapter(Prioridad.class, new PrioridadAdapter())
+                            .registerTypeAdapter(Tarea.class, new TareaAdapter())
                             .create();
+            this.codec = codecPara(filePath, gson);
+            this.diario = new DiarioTareas(filePath + ".log", gson);
+            this.archivoCompletadas = new DiarioTareas(rutaCompletadas(filePath), gson);
             crearDirectorioSiNoExiste();
         }
         
@@ -38,28 +81,368 @@ import java.time.LocalDate;
         }
     }
 
-    // Método para guardar la lista de tareas en un archivo JSON
-    public void guardarTareas(List<Tarea> tareas) throws FilePersistenceException {
-        try (Writer writer = new FileWriter(filePath)) {
-            gson.toJson(tareas, writer);
+    // Método para guardar la lista de tareas en el formato del archivo (JSON o binario).
+    // La instantánea se escribe primero en un archivo temporal; después se descarta el diario
+    // y por último se renombra el temporal, de modo que un corte en cualquier punto es recuperable.
+    // Mientras se escribe el temporal siempre hay diario (aunque sea vacío): un temporal sin diario está completo.
+    public void guardarTareas(Collection<Tarea> tareas) throws FilePersistenceException {
+        long inicio = Metricas.inicio();
+        File destino = new File(filePath);
+        File temporal = new File(filePath + ".tmp");
+        synchronized (cerrojoInstantanea) {
+            try {
+                diario.asegurarExiste();
+                try (FileChannel canal = FileChannel.open(temporal.toPath(),
+                        StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                    codec.escribir(canal, tareas);
+                    canal.force(true); // La instantánea debe estar en disco antes de descartar el diario
+                    BYTES_GUARDADOS.sumar(canal.size());
+                }
+                diario.vaciar();
+                Files.move(temporal.toPath(), destino.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                if (indiceDisco != null) {
+                    reindexarTrasGuardar(tareas);
+                }
+            } catch (IOException e) {
+                ERRORES.incrementar();
+                throw new FilePersistenceException("Error al guardar las tareas en el archivo.", e);
+            } finally {
+                TIEMPO_GUARDAR.registrarDesde(inicio);
+            }
+        }
+    }
+
+    // Método para avisar de los cambios que otro proceso haga en la instantánea. El índice de partida se construye
+    // en el hilo del vigilante; desde entonces, cada vez que el archivo cambia solo se decodifican las tareas cuyo
+    // contenido no estaba ya en disco.
+    public synchronized void vigilar(Consumer<CambiosInstantanea> oyente) throws FilePersistenceException {
+        if (vigilante != null) {
+            return;
+        }
+        try {
+            vigilante = new VigilanteInstantanea(new File(filePath).toPath(),
+                    Long.getLong("tareas.vigilancia.esperaMs", VigilanteInstantanea.ESPERA_POR_DEFECTO_MS), () -> {
+                try {
+                    CambiosInstantanea cambios = compararConDisco();
+                    if (cambios != null && !cambios.estaVacio()) {
+                        oyente.accept(cambios);
+                    }
+                } catch (FilePersistenceException e) {
+                    // Suele ser una escritura a medias de otro proceso: se reintenta con el siguiente aviso
+                    System.out.println("No se pudo comparar la instantánea con la de disco: " + e.getMessage());
+                }
+            });
+        } catch (IOException e) {
+            throw new FilePersistenceException("Error al vigilar el archivo de tareas.", e);
+        }
+        new Thread(() -> {
+            try {
+                synchronized (cerrojoInstantanea) {
+                    indiceDisco = IndiceInstantanea.vacio();
+                    compararConDisco(); // Con el índice vacío todo es nuevo: solo sirve para construir el de partida
+                }
+                vigilante.iniciar();
+            } catch (FilePersistenceException e) {
+                ERRORES.incrementar();
+                synchronized (cerrojoInstantanea) {
+                    indiceDisco = null;
+                }
+                System.out.println("Error al indexar el archivo de tareas: " + e.getMessage());
+            }
+        }, "indexar-tareas").start();
+    }
+
+    // Compara la instantánea en disco con el índice de la última versión conocida y lo actualiza.
+    // Devuelve null si el archivo no existe o todavía no hay índice de partida.
+    CambiosInstantanea compararConDisco() throws FilePersistenceException {
+        long inicio = Metricas.inicio();
+        synchronized (cerrojoInstantanea) {
+            File archivo = new File(filePath);
+            if (indiceDisco == null || !archivo.exists()) {
+                return null;
+            }
+            try {
+                ByteBuffer datos = CodecTareas.leerEntero(archivo);
+                int[] limites = codec.delimitar(datos.duplicate());
+                IndiceInstantanea nuevo = new IndiceInstantanea(limites.length / 2);
+                List<Tarea> modificadas = new ArrayList<>();
+                for (int i = 0; i < limites.length; i += 2) {
+                    long clave = IndiceInstantanea.clave(datos, limites[i], limites[i + 1]);
+                    long id = indiceDisco.idDe(clave);
+                    if (id == IndiceInstantanea.SIN_ID) {
+                        Tarea tarea = codec.decodificar(datos.duplicate().limit(limites[i + 1]).position(limites[i]).slice());
+                        modificadas.add(tarea);
+                        id = tarea.getId();
+                    }
+                    nuevo.poner(clave, id);
+                }
+                // Desaparecen las que ya no tienen ni su contenido anterior ni otro nuevo con el mismo id
+                Set<Long> eliminadas = new LinkedHashSet<>();
+                indiceDisco.recorrer((clave, id) -> {
+                    if (id != 0 && nuevo.idDe(clave) == IndiceInstantanea.SIN_ID && !nuevo.contieneId(id)) {
+                        eliminadas.add(id);
+                    }
+                });
+                indiceDisco = nuevo;
+                DECODIFICADAS.sumar(modificadas.size());
+                return new CambiosInstantanea(modificadas, eliminadas);
+            } catch (IOException | RuntimeException e) {
+                throw new FilePersistenceException("Error al comparar la instantánea con la de disco.", e);
+            } finally {
+                TIEMPO_COMPARAR.registrarDesde(inicio);
+            }
+        }
+    }
+
+    // Lo recién escrito pasa a ser la versión conocida, para que el vigilante no lo confunda con un cambio ajeno
+    // (aplicarlo como tal podría deshacer cambios posteriores que todavía solo están en el diario)
+    private void reindexarTrasGuardar(Collection<Tarea> tareas) throws FilePersistenceException {
+        try {
+            indiceDisco = indexarPropia(tareas);
         } catch (IOException e) {
-            throw new FilePersistenceException("Error al guardar las tareas en el archivo.", e);
+            // Si no cuadra, se reconstruye decodificando todo y se descarta la diferencia
+            indiceDisco = IndiceInstantanea.vacio();
+            compararConDisco();
         }
     }
 
-    // Método para cargar las tareas desde un archivo JSON
+    // Índice de la instantánea recién escrita: el registro i es la tarea i de la colección, no hace falta decodificar
+    private IndiceInstantanea indexarPropia(Collection<Tarea> tareas) throws IOException {
+        ByteBuffer datos = CodecTareas.leerEntero(new File(filePath));
+        int[] limites = codec.delimitar(datos.duplicate());
+        if (limites.length / 2 != tareas.size()) {
+            throw new IOException("La instantánea escrita no tiene el número de tareas esperado.");
+        }
+        IndiceInstantanea indice = new IndiceInstantanea(tareas.size());
+        Iterator<Tarea> tarea = tareas.iterator();
+        for (int i = 0; i < limites.length; i += 2) {
+            indice.poner(IndiceInstantanea.clave(datos, limites[i], limites[i + 1]), tarea.next().getId());
+        }
+        return indice;
+    }
+
+    // Métodos usados por EscritorAsincrono: los registros se serializan al encolarlos y se escriben por lotes
+
+    public String serializar(RegistroDiario registro) {
+        return diario.serializar(registro);
+    }
+
+    public void anexarAlDiario(Collection<String> lineas) throws FilePersistenceException {
+        if (lineas.isEmpty()) {
+            return;
+        }
+        long inicio = Metricas.inicio();
+        try {
+            diario.anexarLineas(lineas);
+            REGISTROS_DIARIO.sumar(lineas.size());
+        } catch (IOException e) {
+            ERRORES.incrementar();
+            throw new FilePersistenceException("Error al registrar los cambios en el diario.", e);
+        } finally {
+            TIEMPO_DIARIO.registrarDesde(inicio);
+        }
+    }
+
+    public void anexarAlArchivoCompletadas(Collection<String> lineas) throws FilePersistenceException {
+        try {
+            archivoCompletadas.anexarLineas(lineas);
+        } catch (IOException e) {
+            throw new FilePersistenceException("Error al archivar las tareas completadas.", e);
+        }
+    }
+
+    public boolean necesitaCompactar() {
+        return diario.getRegistros() >= umbralCompactacion;
+    }
+
+    // Método para forzar a disco (fsync) el diario y el archivo de completadas
+    public void sincronizar() throws FilePersistenceException {
+        try {
+            diario.sincronizar();
+            archivoCompletadas.sincronizar();
+        } catch (IOException e) {
+            throw new FilePersistenceException("Error al sincronizar los archivos con el disco.", e);
+        }
+    }
+
+    // Solo el archivo de completadas: lo que archiva tiene que estar en disco antes de compactar las pendientes
+    public void sincronizarArchivoCompletadas() throws FilePersistenceException {
+        try {
+            archivoCompletadas.sincronizar();
+        } catch (IOException e) {
+            throw new FilePersistenceException("Error al sincronizar el archivo de completadas con el disco.", e);
+        }
+    }
+
+    // Método para cargar las tareas desde la instantánea y aplicar los cambios pendientes del diario
     public List<Tarea> cargarTareas() throws FilePersistenceException {
-        try (Reader reader = new FileReader(filePath)) {
-            Type tareaListType = new TypeToken<List<Tarea>>(){}.getType();
-            List<Tarea> tareas = gson.fromJson(reader, tareaListType);  // Deserialización
+        long inicio = Metricas.inicio();
+        try {
+            recuperarCompactacionInterrumpida();
+            if (Metricas.activas()) {
+                BYTES_CARGADOS.sumar(new File(filePath).length() + new File(filePath + ".log").length());
+            }
+            List<Tarea> tareas = leerInstantanea();
+            if (!diario.reproducir(tareas)) {
+                // El final del diario está incompleto: se consolida lo recuperado para no anexar tras una línea rota
+                guardarTareas(tareas);
+            }
+            return tareas;
+        } catch (IOException e) {
+            ERRORES.incrementar();
+            throw new FilePersistenceException("Error al leer el diario de cambios.", e);
+        } finally {
+            TIEMPO_CARGAR.registrarDesde(inicio);
+        }
+    }
+
+    // Método para leer el archivo de completadas; solo se llama cuando alguien pide las tareas completadas
+    public List<Tarea> cargarCompletadas() throws FilePersistenceException {
+        List<Tarea> completadas = new ArrayList<>();
+        try {
+            if (!archivoCompletadas.reproducir(completadas)) {
+                archivoCompletadas.reemplazar(completadas); // Se descarta la última línea incompleta
+            }
+        } catch (IOException e) {
+            throw new FilePersistenceException("Error al cargar las tareas completadas.", e);
+        }
+        return completadas;
+    }
+
+    // Método para obtener el último id reservado. Las completadas no se leen al arrancar,
+    // así que este valor evita reutilizar los ids que solo aparecen en su archivo.
+    public long leerUltimoIdReservado() throws FilePersistenceException {
+        if (ultimoIdReservado < 0) {
+            File archivoIds = new File(filePath + ".ids");
+            try {
+                ultimoIdReservado = archivoIds.exists() ? Long.parseLong(Files.readString(archivoIds.toPath()).trim()) : 0;
+            } catch (IOException | NumberFormatException e) {
+                throw new FilePersistenceException("Error al leer los ids reservados.", e);
+            }
+        }
+        return ultimoIdReservado;
+    }
+
+    // Método para asegurar que el id indicado queda reservado; escribe el archivo .ids solo una vez por bloque
+    public void reservarId(long id) throws FilePersistenceException {
+        if (id <= leerUltimoIdReservado()) {
+            return;
+        }
+        long reserva = id + BLOQUE_IDS;
+        File archivoIds = new File(filePath + ".ids");
+        File temporal = new File(filePath + ".ids.tmp");
+        try {
+            Files.writeString(temporal.toPath(), Long.toString(reserva));
+            Files.move(temporal.toPath(), archivoIds.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            ultimoIdReservado = reserva;
+        } catch (IOException e) {
+            throw new FilePersistenceException("Error al reservar ids.", e);
+        }
+    }
+
+    // Método para cerrar el diario abierto
+    public void cerrar() throws FilePersistenceException {
+        try {
+            if (vigilante != null) {
+                vigilante.close();
+            }
+            diario.cerrar();
+            archivoCompletadas.cerrar();
+        } catch (IOException e) {
+            throw new FilePersistenceException("Error al cerrar el diario de cambios.", e);
+        }
+    }
+
+    // Si existe un temporal sin diario, la compactación se cortó tras descartar el diario: el temporal es la versión buena.
+    // Si el diario sigue existiendo, el temporal es una escritura a medias y se ignora. Por si el temporal no lo dejó
+    // guardarTareas (o lo dejó una versión que no creaba el diario antes), solo se usa si se decodifica entero.
+    private void recuperarCompactacionInterrumpida() throws FilePersistenceException {
+        File temporal = new File(filePath + ".tmp");
+        if (!temporal.exists()) {
+            return;
+        }
+        try {
+            if (diario.existe() || !estaCompleto(temporal)) {
+                Files.delete(temporal.toPath());
+            } else {
+                Files.move(temporal.toPath(), new File(filePath).toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            throw new FilePersistenceException("Error al recuperar la última compactación.", e);
+        }
+    }
+
+    // Los dos códecs escriben algo aunque no haya tareas, así que un archivo de cero bytes también es un corte
+    private boolean estaCompleto(File temporal) {
+        if (temporal.length() == 0) {
+            return false;
+        }
+        try {
+            codec.leer(temporal);
+            return true;
+        } catch (IOException | RuntimeException e) {
+            System.out.println("Se descarta la instantánea a medias " + temporal + ": " + e.getMessage());
+            return false;
+        }
+    }
 
-            // Si el archivo existe pero está vacío, también devolvemos una lista modificable
-            return (tareas != null) ? new ArrayList<>(tareas) : new ArrayList<>();
+    // Método para recorrer las tareas una a una sin cargarlas todas en memoria.
+    // Si hay cambios pendientes en el diario se aplican sobre la lista completa antes de recorrerla: los registros
+    // se identifican por id y pueden editar o borrar cualquier tarea de la instantánea (solo los de diarios anteriores
+    // a los ids se refieren a posiciones). Tras una compactación el recorrido es totalmente en streaming.
+    public void recorrerTareas(Consumer<Tarea> consumidor) throws FilePersistenceException {
+        recuperarCompactacionInterrumpida();
+        if (diario.existe()) {
+            cargarTareas().forEach(consumidor);
+            return;
+        }
+        try (LectorInstantanea lector = iterarInstantanea()) {
+            while (lector.hasNext()) {
+                consumidor.accept(lector.next());
+            }
+        } catch (FileNotFoundException e) {
+            // Sin archivo no hay nada que recorrer
+        } catch (IOException | UncheckedIOException e) {
+            throw new FilePersistenceException("Error al recorrer las tareas del archivo.", e);
+        }
+    }
+
+    // Método para obtener un iterador sobre la instantánea en disco; quien lo pide debe cerrarlo
+    public LectorInstantanea iterarInstantanea() throws IOException {
+        return codec.abrir(new File(filePath));
+    }
+
+    public CodecTareas getCodec() {
+        return codec;
+    }
+
+    private List<Tarea> leerInstantanea() throws FilePersistenceException {
+        try {
+            return codec.leer(new File(filePath));
         } catch (FileNotFoundException e) {
             // Si el archivo no existe, devolvemos una lista vacía modificable
             return new ArrayList<>();
-        } catch (IOException e) {
+        } catch (IOException | UncheckedIOException e) {
             throw new FilePersistenceException("Error al cargar las tareas desde el archivo.", e);
         }
     }
+
+    // tareas.tbin -> binario; cualquier otra extensión -> JSON, como hasta ahora
+    public static CodecTareas codecPara(String filePath, Gson gson) {
+        if (filePath.endsWith(CodecBinario.EXTENSION)) {
+            return new CodecBinario();
+        }
+        return new CodecJson(gson.getAdapter(Tarea.class));
+    }
+
+    // tareas.json y tareas.tbin -> tareas_completadas.jsonl (el archivo de completadas no depende del formato)
+    private static String rutaCompletadas(String filePath) {
+        String base = filePath;
+        for (String extension : new String[] {".json", CodecBinario.EXTENSION}) {
+            if (filePath.endsWith(extension)) {
+                base = filePath.substring(0, filePath.length() - extension.length());
+            }
+        }
+        return base + "_completadas.jsonl";
+    }
 }
@@ -0,0 +1,104 @@
+package util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// Histograma concurrente de valores no negativos (latencias en nanosegundos, tamaños de resultado...).
+// Los cubos son potencias de dos divididas en 8 subcubos lineales, así que los percentiles tienen un error
+// relativo máximo del 12,5 % y registrar un valor es un par de operaciones atómicas, sin cerrojos.
+public class Histograma {
+    private static final int BITS_SUBCUBO = 3;
+    private static final int SUBCUBOS = 1 << BITS_SUBCUBO;
+    private static final int CUBOS = (64 - BITS_SUBCUBO + 1) * SUBCUBOS;
+
+    private final String nombre;
+    private final AtomicLongArray cuentas = new AtomicLongArray(CUBOS);
+    private final LongAdder suma = new LongAdder();
+    private final AtomicLong maximo = new AtomicLong();
+
+    Histograma(String nombre) {
+        this.nombre = nombre;
+    }
+
+    public String getNombre() {
+        return nombre;
+    }
+
+    public void registrar(long valor) {
+        if (!Metricas.activas()) {
+            return;
+        }
+        long v = Math.max(0, valor);
+        cuentas.incrementAndGet(cubo(v));
+        suma.add(v);
+        if (v > maximo.get()) {
+            maximo.accumulateAndGet(v, Math::max);
+        }
+    }
+
+    // Registra el tiempo transcurrido desde un instante obtenido con Metricas.inicio() (0 si estaban desactivadas)
+    public void registrarDesde(long inicio) {
+        if (inicio != 0) {
+            registrar(System.nanoTime() - inicio);
+        }
+    }
+
+    public ResumenHistograma resumen() {
+        long[] copia = new long[CUBOS];
+        long n = 0;
+        for (int i = 0; i < CUBOS; i++) {
+            copia[i] = cuentas.get(i);
+            n += copia[i];
+        }
+        long max = maximo.get();
+        // El límite superior del cubo puede pasarse del máximo visto; se recorta a él
+        return new ResumenHistograma(n, n == 0 ? 0 : (double) suma.sum() / n, max,
+                Math.min(max, percentil(copia, n, 0.50)), Math.min(max, percentil(copia, n, 0.90)),
+                Math.min(max, percentil(copia, n, 0.99)), Math.min(max, percentil(copia, n, 0.999)));
+    }
+
+    public void reiniciar() {
+        for (int i = 0; i < CUBOS; i++) {
+            cuentas.set(i, 0);
+        }
+        suma.reset();
+        maximo.set(0);
+    }
+
+    private static long percentil(long[] cuentas, long n, double fraccion) {
+        if (n == 0) {
+            return 0;
+        }
+        long objetivo = (long) Math.ceil(n * fraccion);
+        long acumulado = 0;
+        for (int i = 0; i < cuentas.length; i++) {
+            acumulado += cuentas[i];
+            if (acumulado >= objetivo) {
+                return limiteSuperior(i);
+            }
+        }
+        return limiteSuperior(cuentas.length - 1);
+    }
+
+    // Valores 0..7 van a su propio cubo; a partir de ahí, cubo = (exponente, 3 bits siguientes al más alto)
+    static int cubo(long valor) {
+        if (valor < SUBCUBOS) {
+            return (int) valor;
+        }
+        int exponente = 63 - Long.numberOfLeadingZeros(valor);
+        int sub = (int) (valor >>> (exponente - BITS_SUBCUBO)) & (SUBCUBOS - 1);
+        return (exponente - BITS_SUBCUBO + 1) * SUBCUBOS + sub;
+    }
+
+    static long limiteSuperior(int cubo) {
+        if (cubo < SUBCUBOS) {
+            return cubo;
+        }
+        int exponente = cubo / SUBCUBOS + BITS_SUBCUBO - 1;
+        long sub = cubo % SUBCUBOS;
+        long base = (SUBCUBOS + sub) << (exponente - BITS_SUBCUBO);
+        long ancho = 1L << (exponente - BITS_SUBCUBO);
+        return base + ancho - 1;
+    }
+}
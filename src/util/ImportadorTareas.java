@@ -0,0 +1,321 @@
+package util;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import exceptions.FilePersistenceException;
+import exceptions.InvalidDataException;
+import model.Tarea;
+
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+// Importación masiva de tareas desde CSV o JSON (según la extensión del archivo).
+// El archivo se lee en bloques de filas; cada bloque se valida en paralelo con las mismas reglas que el
+// constructor de Tarea y las filas inválidas se anotan con su error sin detener la importación.
+//   CSV:  cabecera con titulo, descripcion, fechaLimite, prioridad y, opcionalmente, completada (el id se ignora)
+//   JSON: el mismo arreglo de objetos que tareas.json
+public class ImportadorTareas {
+    public static final int FILAS_POR_BLOQUE = 8192;
+    private static final int TAMANO_BUFFER = 64 * 1024;
+
+    private final int filasPorBloque;
+
+    public ImportadorTareas() {
+        this(FILAS_POR_BLOQUE);
+    }
+
+    public ImportadorTareas(int filasPorBloque) {
+        this.filasPorBloque = filasPorBloque;
+    }
+
+    // Una fila tal como viene en el archivo, todavía sin validar
+    private static final class Fila {
+        final long numero;
+        final String titulo;
+        final String descripcion;
+        final String fechaLimite;
+        final String prioridad;
+        final String completada;
+        final String error; // Fila que ni siquiera tiene la forma esperada
+
+        Fila(long numero, String error) {
+            this(numero, null, null, null, null, null, error);
+        }
+
+        Fila(long numero, String titulo, String descripcion, String fechaLimite, String prioridad, String completada) {
+            this(numero, titulo, descripcion, fechaLimite, prioridad, completada, null);
+        }
+
+        private Fila(long numero, String titulo, String descripcion, String fechaLimite, String prioridad, String completada, String error) {
+            this.numero = numero;
+            this.titulo = titulo;
+            this.descripcion = descripcion;
+            this.fechaLimite = fechaLimite;
+            this.prioridad = prioridad;
+            this.completada = completada;
+            this.error = error;
+        }
+    }
+
+    // Fila validada: o la tarea o el error
+    private static final class Validada {
+        final Tarea tarea;
+        final ResultadoImportacion.ErrorFila error;
+
+        Validada(Tarea tarea, ResultadoImportacion.ErrorFila error) {
+            this.tarea = tarea;
+            this.error = error;
+        }
+    }
+
+    private interface LectorFilas {
+        Fila siguiente() throws IOException; // null al terminar
+    }
+
+    // Método para importar un archivo .csv o .json
+    public ResultadoImportacion importar(String ruta) throws FilePersistenceException {
+        try (Reader reader = new BufferedReader(new InputStreamReader(new FileInputStream(ruta), StandardCharsets.UTF_8), TAMANO_BUFFER)) {
+            if (ruta.toLowerCase(Locale.ROOT).endsWith(".json")) {
+                return importarJson(reader);
+            }
+            return importarCsv(reader);
+        } catch (IOException e) {
+            throw new FilePersistenceException("Error al leer el archivo de importación " + ruta + ".", e);
+        }
+    }
+
+    public ResultadoImportacion importarCsv(Reader reader) throws IOException, FilePersistenceException {
+        LectorCsv csv = new LectorCsv(reader);
+        List<String> cabecera = csv.siguienteRegistro();
+        if (cabecera == null) {
+            return new ResultadoImportacion(new ArrayList<>(), new ArrayList<>(), 0);
+        }
+        Map<String, Integer> columnas = new HashMap<>();
+        for (int i = 0; i < cabecera.size(); i++) {
+            columnas.put(cabecera.get(i).trim().toLowerCase(Locale.ROOT), i);
+        }
+        for (String requerida : new String[] {"titulo", "descripcion", "fechalimite", "prioridad"}) {
+            if (!columnas.containsKey(requerida)) {
+                throw new FilePersistenceException("Falta la columna '" + requerida + "' en la cabecera del CSV.", null);
+            }
+        }
+        int titulo = columnas.get("titulo");
+        int descripcion = columnas.get("descripcion");
+        int fecha = columnas.get("fechalimite");
+        int prioridad = columnas.get("prioridad");
+        int completada = columnas.getOrDefault("completada", -1);
+        return procesar(() -> {
+            List<String> campos = csv.siguienteRegistro();
+            if (campos == null) {
+                return null;
+            }
+            long numero = csv.getRegistros() - 1; // Sin contar la cabecera
+            return new Fila(numero, campo(campos, titulo), campo(campos, descripcion), campo(campos, fecha),
+                    campo(campos, prioridad), campo(campos, completada));
+        });
+    }
+
+    public ResultadoImportacion importarJson(Reader reader) throws IOException, FilePersistenceException {
+        JsonReader json = new JsonReader(reader);
+        if (json.peek() == JsonToken.END_DOCUMENT) {
+            return new ResultadoImportacion(new ArrayList<>(), new ArrayList<>(), 0);
+        }
+        json.beginArray();
+        long[] numero = {0};
+        try {
+            return procesar(() -> {
+                if (!json.hasNext()) {
+                    return null;
+                }
+                numero[0]++;
+                if (json.peek() != JsonToken.BEGIN_OBJECT) {
+                    json.skipValue();
+                    return new Fila(numero[0], "Se esperaba un objeto con los datos de la tarea.");
+                }
+                Map<String, String> campos = new HashMap<>();
+                json.beginObject();
+                while (json.hasNext()) {
+                    String nombre = json.nextName();
+                    JsonToken token = json.peek();
+                    if (token == JsonToken.NULL) {
+                        json.nextNull();
+                    } else if (token == JsonToken.STRING || token == JsonToken.NUMBER || token == JsonToken.BOOLEAN) {
+                        campos.put(nombre, token == JsonToken.BOOLEAN ? String.valueOf(json.nextBoolean()) : json.nextString());
+                    } else {
+                        json.skipValue();
+                    }
+                }
+                json.endObject();
+                return new Fila(numero[0], campos.get("titulo"), campos.get("descripcion"), campos.get("fechaLimite"),
+                        campos.get("prioridad"), campos.get("completada"));
+            });
+        } catch (IllegalStateException e) {
+            throw new IOException("El JSON de importación no es un arreglo de tareas válido.", e);
+        }
+    }
+
+    // Lee el archivo bloque a bloque y valida cada bloque en paralelo; el orden de las filas se conserva
+    private ResultadoImportacion procesar(LectorFilas lector) throws IOException {
+        List<Tarea> tareas = new ArrayList<>();
+        List<ResultadoImportacion.ErrorFila> errores = new ArrayList<>();
+        long leidas = 0;
+        List<Fila> bloque = new ArrayList<>(filasPorBloque);
+        boolean fin = false;
+        while (!fin) {
+            bloque.clear();
+            while (bloque.size() < filasPorBloque) {
+                Fila fila = lector.siguiente();
+                if (fila == null) {
+                    fin = true;
+                    break;
+                }
+                bloque.add(fila);
+            }
+            leidas += bloque.size();
+            List<Validada> validadas = bloque.parallelStream().map(ImportadorTareas::validar).toList();
+            for (Validada validada : validadas) {
+                if (validada.tarea != null) {
+                    tareas.add(validada.tarea);
+                } else {
+                    errores.add(validada.error);
+                }
+            }
+        }
+        return new ResultadoImportacion(tareas, errores, leidas);
+    }
+
+    // Mismas reglas que el constructor de Tarea (y los mismos mensajes que muestra la vista)
+    private static Validada validar(Fila fila) {
+        if (fila.error != null) {
+            return new Validada(null, new ResultadoImportacion.ErrorFila(fila.numero, fila.error));
+        }
+        try {
+            LocalDate fecha;
+            if (fila.fechaLimite == null || fila.fechaLimite.trim().isEmpty()) {
+                throw new InvalidDataException("La fecha límite no puede estar vacía.");
+            }
+            try {
+                fecha = LocalDate.parse(fila.fechaLimite.trim());
+            } catch (DateTimeParseException e) {
+                throw new InvalidDataException("La fecha límite no tiene el formato correcto (YYYY-MM-DD).");
+            }
+            Tarea tarea = new Tarea(fila.titulo, fila.descripcion, fecha, fila.prioridad == null ? null : fila.prioridad.trim())
+                    .conEstado(esVerdadero(fila.completada));
+            return new Validada(tarea, null);
+        } catch (InvalidDataException e) {
+            return new Validada(null, new ResultadoImportacion.ErrorFila(fila.numero, e.getMessage()));
+        }
+    }
+
+    private static boolean esVerdadero(String texto) {
+        if (texto == null) {
+            return false;
+        }
+        String valor = texto.trim().toLowerCase(Locale.ROOT);
+        return valor.equals("true") || valor.equals("si") || valor.equals("sí") || valor.equals("1");
+    }
+
+    private static String campo(List<String> campos, int indice) {
+        return indice >= 0 && indice < campos.size() ? campos.get(indice) : null;
+    }
+
+    // Lector de CSV (RFC 4180): separador coma, comillas dobles para campos con comas, comillas o saltos de línea
+    static final class LectorCsv {
+        private final Reader reader;
+        private final char[] buffer = new char[TAMANO_BUFFER];
+        private int posicion;
+        private int limite;
+        private long registros;
+        private int pendiente = -2; // Carácter leído de más; -2 = ninguno
+
+        LectorCsv(Reader reader) {
+            this.reader = reader;
+        }
+
+        long getRegistros() {
+            return registros;
+        }
+
+        // Devuelve los campos del siguiente registro no vacío, o null al final del archivo
+        List<String> siguienteRegistro() throws IOException {
+            List<String> campos = new ArrayList<>();
+            StringBuilder campo = new StringBuilder();
+            boolean entreComillas = false;
+            boolean hayDatos = false;
+            while (true) {
+                int c = leer();
+                if (c == -1) {
+                    if (!hayDatos) {
+                        return null;
+                    }
+                    campos.add(campo.toString());
+                    registros++;
+                    return campos;
+                }
+                if (entreComillas) {
+                    if (c == '"') {
+                        int siguiente = leer();
+                        if (siguiente == '"') {
+                            campo.append('"');
+                        } else {
+                            entreComillas = false;
+                            pendiente = siguiente;
+                        }
+                    } else {
+                        campo.append((char) c);
+                    }
+                } else if (c == '"') {
+                    entreComillas = true;
+                    hayDatos = true;
+                } else if (c == ',') {
+                    campos.add(campo.toString());
+                    campo.setLength(0);
+                    hayDatos = true;
+                } else if (c == '\n' || c == '\r') {
+                    if (c == '\r') {
+                        int siguiente = leer();
+                        if (siguiente != '\n') {
+                            pendiente = siguiente;
+                        }
+                    }
+                    if (hayDatos) {
+                        campos.add(campo.toString());
+                        registros++;
+                        return campos;
+                    }
+                } else {
+                    campo.append((char) c);
+                    hayDatos = true;
+                }
+            }
+        }
+
+        private int leer() throws IOException {
+            if (pendiente != -2) {
+                int c = pendiente;
+                pendiente = -2;
+                return c;
+            }
+            if (posicion == limite) {
+                limite = reader.read(buffer, 0, buffer.length);
+                posicion = 0;
+                if (limite <= 0) {
+                    limite = 0;
+                    return -1;
+                }
+            }
+            return buffer[posicion++];
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package util;
+
+import java.nio.ByteBuffer;
+import java.util.zip.CRC32C;
+
+// Índice por registro de la instantánea en disco: para cada tarea, una clave de contenido (CRC32C y longitud
+// de sus bytes) y su id. Al comparar dos versiones del archivo, un registro cuya clave ya estaba no ha cambiado
+// y no hace falta decodificarlo, aunque se haya desplazado; solo se decodifican los que tienen clave nueva.
+// Las tablas son de tipos primitivos con direccionamiento abierto para no crear un objeto por tarea.
+public class IndiceInstantanea {
+    public static final long SIN_ID = -1;
+
+    private final TablaLong idPorClave;
+    private final TablaLong ids; // Conjunto de los ids presentes (el valor no se usa)
+
+    public IndiceInstantanea(int registros) {
+        idPorClave = new TablaLong(registros);
+        ids = new TablaLong(registros);
+    }
+
+    public static IndiceInstantanea vacio() {
+        return new IndiceInstantanea(0);
+    }
+
+    // Clave del registro [inicio, fin) de la proyección: nunca vale 0, porque la longitud tampoco
+    public static long clave(ByteBuffer datos, int inicio, int fin) {
+        CRC32C crc = new CRC32C();
+        crc.update(datos.duplicate().limit(fin).position(inicio));
+        return (crc.getValue() << 32) | (fin - inicio);
+    }
+
+    public void poner(long clave, long id) {
+        idPorClave.poner(clave, id);
+        ids.poner(id + 1, 0); // + 1: el id 0 (tareas sin id) no puede ser clave de la tabla
+    }
+
+    // Id del registro con esa clave, o SIN_ID si no hay ninguno con ese contenido
+    public long idDe(long clave) {
+        return idPorClave.obtener(clave, SIN_ID);
+    }
+
+    public boolean contieneId(long id) {
+        return ids.contiene(id + 1);
+    }
+
+    public int tamano() {
+        return idPorClave.tamano;
+    }
+
+    public void recorrer(OyenteRegistro oyente) {
+        TablaLong t = idPorClave;
+        for (int i = 0; i < t.claves.length; i++) {
+            if (t.claves[i] != 0) {
+                oyente.registro(t.claves[i], t.valores[i]);
+            }
+        }
+    }
+
+    public interface OyenteRegistro {
+        void registro(long clave, long id);
+    }
+
+    // Mapa long -> long con sondeo lineal; la clave 0 marca un hueco libre
+    private static final class TablaLong {
+        private long[] claves;
+        private long[] valores;
+        private int tamano;
+
+        TablaLong(int esperados) {
+            int capacidad = Integer.highestOneBit(Math.max(16, esperados * 2 - 1)) << 1;
+            claves = new long[capacidad];
+            valores = new long[capacidad];
+        }
+
+        void poner(long clave, long valor) {
+            if ((tamano + 1) * 2 > claves.length) {
+                crecer();
+            }
+            int i = posicion(clave);
+            if (claves[i] == 0) {
+                claves[i] = clave;
+                tamano++;
+            }
+            valores[i] = valor;
+        }
+
+        long obtener(long clave, long porDefecto) {
+            int i = posicion(clave);
+            return claves[i] == 0 ? porDefecto : valores[i];
+        }
+
+        boolean contiene(long clave) {
+            return claves[posicion(clave)] != 0;
+        }
+
+        private int posicion(long clave) {
+            int mascara = claves.length - 1;
+            int i = (int) (mezclar(clave) & mascara);
+            while (claves[i] != 0 && claves[i] != clave) {
+                i = (i + 1) & mascara;
+            }
+            return i;
+        }
+
+        private void crecer() {
+            long[] anterioresClaves = claves;
+            long[] anterioresValores = valores;
+            claves = new long[anterioresClaves.length * 2];
+            valores = new long[anterioresValores.length * 2];
+            for (int i = 0; i < anterioresClaves.length; i++) {
+                if (anterioresClaves[i] != 0) {
+                    int j = posicion(anterioresClaves[i]);
+                    claves[j] = anterioresClaves[i];
+                    valores[j] = anterioresValores[i];
+                }
+            }
+        }
+
+        private static long mezclar(long clave) {
+            clave ^= clave >>> 33;
+            clave *= 0xff51afd7ed558ccdL;
+            return clave ^ (clave >>> 33);
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package util;
+
+import model.Tarea;
+
+import java.io.Closeable;
+import java.util.Iterator;
+
+// Recorrido tarea a tarea de una instantánea, sea cual sea su formato; quien lo abre debe cerrarlo
+public interface LectorInstantanea extends Iterator<Tarea>, Closeable {
+}
@@ -0,0 +1,77 @@
+package util;
+
+import com.google.gson.JsonParseException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import model.Tarea;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.NoSuchElementException;
+
+// Recorre un arreglo JSON de tareas elemento a elemento, sin construir la lista completa en memoria
+public class LectorTareas implements LectorInstantanea {
+    private final JsonReader jsonReader;
+    private final TypeAdapter<Tarea> adaptador;
+    private boolean abierto;
+
+    public LectorTareas(Reader reader, TypeAdapter<Tarea> adaptador) throws IOException {
+        this.jsonReader = new JsonReader(reader);
+        this.adaptador = adaptador;
+        abrirArreglo();
+    }
+
+    // Un archivo vacío o con "null" se trata igual que un arreglo vacío
+    private void abrirArreglo() throws IOException {
+        try {
+            JsonToken token = jsonReader.peek();
+            if (token == JsonToken.NULL) {
+                jsonReader.nextNull();
+                return;
+            }
+            jsonReader.beginArray();
+            abierto = true;
+        } catch (EOFException e) {
+            abierto = false;
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (!abierto) {
+            return false;
+        }
+        try {
+            if (jsonReader.hasNext()) {
+                return true;
+            }
+            jsonReader.endArray();
+            abierto = false;
+            return false;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public Tarea next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        try {
+            return adaptador.read(jsonReader);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (IllegalStateException e) {
+            throw new JsonParseException(e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        jsonReader.close();
+    }
+}
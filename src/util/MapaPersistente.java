@@ -0,0 +1,356 @@
+package util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.ToLongFunction;
+
+// Mapa inmutable de id (long) a valor, con estructura compartida: trie de 32 ramas por nivel (HAMT)
+// indexado por los bits del id, de los menos a los más significativos.
+// con() y sin() devuelven un mapa nuevo copiando solo el camino de la raíz a la entrada (log32 n nodos),
+// así que guardar muchas versiones cuesta lo que cambió entre ellas y no una copia completa cada una.
+public final class MapaPersistente<V> {
+    private static final int BITS = 5;
+    private static final int MASCARA = (1 << BITS) - 1;
+    private static final MapaPersistente<?> VACIO = new MapaPersistente<>(null, 0);
+
+    private final Nodo raiz;
+    private final int tamano;
+
+    private MapaPersistente(Nodo raiz, int tamano) {
+        this.raiz = raiz;
+        this.tamano = tamano;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <V> MapaPersistente<V> vacio() {
+        return (MapaPersistente<V>) VACIO;
+    }
+
+    // Construcción de una vez (al cargar): las entradas se reparten por ramas nivel a nivel, sin versiones intermedias.
+    // Con claves repetidas se queda la última, como haría una serie de con().
+    public static <V> MapaPersistente<V> desde(Collection<V> valores, ToLongFunction<V> clave) {
+        if (valores.isEmpty()) {
+            return vacio();
+        }
+        Entrada[] entradas = new Entrada[valores.size()];
+        int i = 0;
+        for (V valor : valores) {
+            entradas[i++] = new Entrada(clave.applyAsLong(valor), valor);
+        }
+        int[] tamano = new int[1];
+        Object raiz = construir(entradas, new Entrada[entradas.length], 0, entradas.length, 0, tamano);
+        Nodo nodo = raiz instanceof Entrada ? Nodo.VACIO.insertar(rama(((Entrada) raiz).clave, 0), raiz) : (Nodo) raiz;
+        return new MapaPersistente<>(nodo, tamano[0]);
+    }
+
+    public int tamano() {
+        return tamano;
+    }
+
+    public boolean estaVacio() {
+        return tamano == 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V obtener(long clave) {
+        Nodo nodo = raiz;
+        int desplazamiento = 0;
+        while (nodo != null) {
+            int bit = 1 << rama(clave, desplazamiento);
+            if ((nodo.mapa & bit) == 0) {
+                return null;
+            }
+            Object hijo = nodo.hijos[Integer.bitCount(nodo.mapa & (bit - 1))];
+            if (hijo instanceof Entrada) {
+                Entrada entrada = (Entrada) hijo;
+                return entrada.clave == clave ? (V) entrada.valor : null;
+            }
+            nodo = (Nodo) hijo;
+            desplazamiento += BITS;
+        }
+        return null;
+    }
+
+    public boolean contiene(long clave) {
+        return obtener(clave) != null;
+    }
+
+    // Devuelve el mapa con la clave asociada al valor (los valores null no se admiten: para quitar, sin())
+    public MapaPersistente<V> con(long clave, V valor) {
+        if (valor == null) {
+            throw new IllegalArgumentException("El valor no puede ser null.");
+        }
+        boolean[] nueva = new boolean[1];
+        Nodo nuevaRaiz = con(raiz == null ? Nodo.VACIO : raiz, new Entrada(clave, valor), 0, nueva);
+        return nuevaRaiz == raiz ? this : new MapaPersistente<>(nuevaRaiz, tamano + (nueva[0] ? 1 : 0));
+    }
+
+    public MapaPersistente<V> sin(long clave) {
+        if (raiz == null) {
+            return this;
+        }
+        Object resultado = sin(raiz, clave, 0);
+        if (resultado == raiz) {
+            return this;
+        }
+        if (resultado == null) {
+            return vacio();
+        }
+        // Una raíz no puede ser una entrada suelta: se vuelve a envolver en un nodo
+        Nodo nuevaRaiz = resultado instanceof Entrada ? Nodo.VACIO.insertar(rama(((Entrada) resultado).clave, 0), resultado)
+                : (Nodo) resultado;
+        return new MapaPersistente<>(nuevaRaiz, tamano - 1);
+    }
+
+    public void recorrer(BiConsumer<Long, V> accion) {
+        if (raiz != null) {
+            recorrer(raiz, accion);
+        }
+    }
+
+    // Método para obtener las claves cuyo valor difiere entre dos versiones, con el valor en cada una (null si no está).
+    // Los subárboles compartidos (el mismo nodo en ambas) se saltan sin mirarlos, así que el coste es
+    // proporcional a lo que cambió entre las versiones y no al tamaño del mapa.
+    @SuppressWarnings("unchecked")
+    public static <V> void diferencias(MapaPersistente<V> antes, MapaPersistente<V> despues, OyenteDiferencias<V> oyente) {
+        comparar(antes.raiz, despues.raiz, 0, (OyenteDiferencias<Object>) oyente);
+    }
+
+    public interface OyenteDiferencias<V> {
+        void diferencia(long clave, V antes, V despues);
+    }
+
+    private static int rama(long clave, int desplazamiento) {
+        return (int) (clave >>> desplazamiento) & MASCARA;
+    }
+
+    private static Nodo con(Nodo nodo, Entrada entrada, int desplazamiento, boolean[] nueva) {
+        int rama = rama(entrada.clave, desplazamiento);
+        int bit = 1 << rama;
+        if ((nodo.mapa & bit) == 0) {
+            nueva[0] = true;
+            return nodo.insertar(rama, entrada);
+        }
+        int posicion = Integer.bitCount(nodo.mapa & (bit - 1));
+        Object hijo = nodo.hijos[posicion];
+        if (hijo instanceof Entrada) {
+            Entrada existente = (Entrada) hijo;
+            if (existente.clave == entrada.clave) {
+                return existente.valor == entrada.valor ? nodo : nodo.sustituir(posicion, entrada);
+            }
+            // Dos claves en la misma rama: se baja un nivel hasta que sus bits las separen
+            nueva[0] = true;
+            return nodo.sustituir(posicion, dividir(existente, entrada, desplazamiento + BITS));
+        }
+        Nodo nuevoHijo = con((Nodo) hijo, entrada, desplazamiento + BITS, nueva);
+        return nuevoHijo == hijo ? nodo : nodo.sustituir(posicion, nuevoHijo);
+    }
+
+    private static Nodo dividir(Entrada a, Entrada b, int desplazamiento) {
+        int ramaA = rama(a.clave, desplazamiento);
+        int ramaB = rama(b.clave, desplazamiento);
+        if (ramaA == ramaB) {
+            return new Nodo(1 << ramaA, new Object[] {dividir(a, b, desplazamiento + BITS)});
+        }
+        return ramaA < ramaB ? new Nodo((1 << ramaA) | (1 << ramaB), new Object[] {a, b})
+                : new Nodo((1 << ramaA) | (1 << ramaB), new Object[] {b, a});
+    }
+
+    // Devuelve el nodo resultante, una entrada si solo queda una (se sube al padre) o null si queda vacío
+    private static Object sin(Nodo nodo, long clave, int desplazamiento) {
+        int rama = rama(clave, desplazamiento);
+        int bit = 1 << rama;
+        if ((nodo.mapa & bit) == 0) {
+            return nodo;
+        }
+        int posicion = Integer.bitCount(nodo.mapa & (bit - 1));
+        Object hijo = nodo.hijos[posicion];
+        Object nuevoHijo;
+        if (hijo instanceof Entrada) {
+            if (((Entrada) hijo).clave != clave) {
+                return nodo;
+            }
+            nuevoHijo = null;
+        } else {
+            nuevoHijo = sin((Nodo) hijo, clave, desplazamiento + BITS);
+            if (nuevoHijo == hijo) {
+                return nodo;
+            }
+        }
+        if (nuevoHijo == null) {
+            Nodo resultado = nodo.quitar(posicion, bit);
+            if (resultado.hijos.length == 0) {
+                return null;
+            }
+            if (resultado.hijos.length == 1 && resultado.hijos[0] instanceof Entrada) {
+                return resultado.hijos[0];
+            }
+            return resultado;
+        }
+        if (nuevoHijo instanceof Entrada && nodo.hijos.length == 1) {
+            return nuevoHijo; // Este nodo solo servía para separar claves que ya no están
+        }
+        return nodo.sustituir(posicion, nuevoHijo);
+    }
+
+    // Devuelve la entrada si solo hay una (o todas tienen la misma clave) y si no un nodo con sus ramas.
+    // Las entradas [desde, hasta) se reordenan por la rama de este nivel con un reparto estable por conteo.
+    private static Object construir(Entrada[] entradas, Entrada[] auxiliar, int desde, int hasta, int desplazamiento, int[] tamano) {
+        if (hasta - desde == 1 || desplazamiento >= Long.SIZE) {
+            tamano[0]++;
+            return entradas[hasta - 1]; // Claves iguales en todos los bits: gana la última
+        }
+        int[] inicio = new int[MASCARA + 2];
+        for (int i = desde; i < hasta; i++) {
+            inicio[rama(entradas[i].clave, desplazamiento) + 1]++;
+        }
+        int mapa = 0;
+        for (int rama = 0; rama <= MASCARA; rama++) {
+            if (inicio[rama + 1] > 0) {
+                mapa |= 1 << rama;
+            }
+            inicio[rama + 1] += inicio[rama];
+        }
+        int[] siguiente = Arrays.copyOf(inicio, inicio.length);
+        for (int i = desde; i < hasta; i++) {
+            auxiliar[desde + siguiente[rama(entradas[i].clave, desplazamiento)]++] = entradas[i];
+        }
+        System.arraycopy(auxiliar, desde, entradas, desde, hasta - desde);
+        Object[] hijos = new Object[Integer.bitCount(mapa)];
+        int posicion = 0;
+        for (int rama = 0; rama <= MASCARA; rama++) {
+            if (inicio[rama + 1] > inicio[rama]) {
+                hijos[posicion++] = construir(entradas, auxiliar, desde + inicio[rama], desde + inicio[rama + 1],
+                        desplazamiento + BITS, tamano);
+            }
+        }
+        if (hijos.length == 1 && hijos[0] instanceof Entrada) {
+            return hijos[0]; // Todas eran la misma clave
+        }
+        return new Nodo(mapa, hijos);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <V> void recorrer(Nodo nodo, BiConsumer<Long, V> accion) {
+        for (Object hijo : nodo.hijos) {
+            if (hijo instanceof Entrada) {
+                accion.accept(((Entrada) hijo).clave, (V) ((Entrada) hijo).valor);
+            } else {
+                recorrer((Nodo) hijo, accion);
+            }
+        }
+    }
+
+    private static void comparar(Object a, Object b, int desplazamiento, OyenteDiferencias<Object> oyente) {
+        if (a == b) {
+            return; // Subárbol compartido: no ha cambiado nada debajo
+        }
+        if (a instanceof Nodo && b instanceof Nodo) {
+            Nodo na = (Nodo) a;
+            Nodo nb = (Nodo) b;
+            int ramas = na.mapa | nb.mapa;
+            while (ramas != 0) {
+                int bit = Integer.lowestOneBit(ramas);
+                ramas &= ~bit;
+                Object hijoA = (na.mapa & bit) == 0 ? null : na.hijos[Integer.bitCount(na.mapa & (bit - 1))];
+                Object hijoB = (nb.mapa & bit) == 0 ? null : nb.hijos[Integer.bitCount(nb.mapa & (bit - 1))];
+                comparar(hijoA, hijoB, desplazamiento + BITS, oyente);
+            }
+            return;
+        }
+        if (a instanceof Entrada && b instanceof Entrada && ((Entrada) a).clave == ((Entrada) b).clave) {
+            Entrada ea = (Entrada) a;
+            Entrada eb = (Entrada) b;
+            if (ea.valor != eb.valor) {
+                oyente.diferencia(ea.clave, ea.valor, eb.valor);
+            }
+            return;
+        }
+        // Formas distintas (entrada frente a subárbol, o nada): se comparan las entradas de ambos lados
+        List<Entrada> deA = new ArrayList<>();
+        List<Entrada> deB = new ArrayList<>();
+        juntar(a, deA);
+        juntar(b, deB);
+        for (Entrada ea : deA) {
+            Entrada eb = buscar(deB, ea.clave);
+            if (eb == null) {
+                oyente.diferencia(ea.clave, ea.valor, null);
+            } else if (eb.valor != ea.valor) {
+                oyente.diferencia(ea.clave, ea.valor, eb.valor);
+            }
+        }
+        for (Entrada eb : deB) {
+            if (buscar(deA, eb.clave) == null) {
+                oyente.diferencia(eb.clave, null, eb.valor);
+            }
+        }
+    }
+
+    private static void juntar(Object hijo, List<Entrada> destino) {
+        if (hijo instanceof Entrada) {
+            destino.add((Entrada) hijo);
+        } else if (hijo != null) {
+            for (Object nieto : ((Nodo) hijo).hijos) {
+                juntar(nieto, destino);
+            }
+        }
+    }
+
+    private static Entrada buscar(List<Entrada> entradas, long clave) {
+        for (Entrada entrada : entradas) {
+            if (entrada.clave == clave) {
+                return entrada;
+            }
+        }
+        return null;
+    }
+
+    private static final class Entrada {
+        final long clave;
+        final Object valor;
+
+        Entrada(long clave, Object valor) {
+            this.clave = clave;
+            this.valor = valor;
+        }
+    }
+
+    // Nodo con hasta 32 hijos: mapa indica qué ramas existen e hijos las guarda compactadas en orden de rama
+    private static final class Nodo {
+        static final Nodo VACIO = new Nodo(0, new Object[0]);
+
+        final int mapa;
+        final Object[] hijos; // Entrada o Nodo
+
+        Nodo(int mapa, Object[] hijos) {
+            this.mapa = mapa;
+            this.hijos = hijos;
+        }
+
+        Nodo insertar(int rama, Object hijo) {
+            int bit = 1 << rama;
+            int posicion = Integer.bitCount(mapa & (bit - 1));
+            Object[] copia = new Object[hijos.length + 1];
+            System.arraycopy(hijos, 0, copia, 0, posicion);
+            copia[posicion] = hijo;
+            System.arraycopy(hijos, posicion, copia, posicion + 1, hijos.length - posicion);
+            return new Nodo(mapa | bit, copia);
+        }
+
+        Nodo sustituir(int posicion, Object hijo) {
+            Object[] copia = Arrays.copyOf(hijos, hijos.length);
+            copia[posicion] = hijo;
+            return new Nodo(mapa, copia);
+        }
+
+        Nodo quitar(int posicion, int bit) {
+            Object[] copia = new Object[hijos.length - 1];
+            System.arraycopy(hijos, 0, copia, 0, posicion);
+            System.arraycopy(hijos, posicion + 1, copia, posicion, copia.length - posicion);
+            return new Nodo(mapa & ~bit, copia);
+        }
+    }
+}
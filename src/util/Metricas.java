@@ -0,0 +1,210 @@
+package util;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+// Registro global de métricas: histogramas de latencia y tamaño, contadores e indicadores calculados al leerlos.
+// Están desactivadas salvo que se arranque con -Dtareas.metricas=true (o se activen por JMX); desactivadas,
+// cada punto de medida se queda en leer un booleano, sin llamar al reloj ni tocar memoria compartida.
+// Activadas, se publican por JMX y se vuelcan por consola cada tareas.metricas.volcadoSeg segundos (0 = nunca).
+public final class Metricas {
+    public static final String NOMBRE_JMX = "todolist:type=Metricas";
+    private static final long VOLCADO_POR_DEFECTO_SEG = 60;
+
+    private static final Map<String, Histograma> histogramas = new ConcurrentHashMap<>();
+    private static final Map<String, Contador> contadores = new ConcurrentHashMap<>();
+    private static final Map<String, LongSupplier> indicadores = new ConcurrentHashMap<>();
+    private static volatile boolean activas;
+    private static boolean publicadas; // Bean registrado y volcado programado; solo se hace una vez
+
+    static {
+        if (Boolean.getBoolean("tareas.metricas")) {
+            activar();
+        }
+    }
+
+    private Metricas() {
+    }
+
+    public static boolean activas() {
+        return activas;
+    }
+
+    public static synchronized void activar() {
+        activas = true;
+        if (!publicadas) {
+            publicadas = true;
+            publicar();
+        }
+    }
+
+    public static void desactivar() {
+        activas = false;
+    }
+
+    // Instante de inicio de una medida, o 0 si las métricas están desactivadas (Histograma.registrarDesde lo ignora)
+    public static long inicio() {
+        return activas ? System.nanoTime() : 0;
+    }
+
+    // Los puntos de medida piden su histograma o contador una vez (en un campo estático) y lo reutilizan
+    public static Histograma histograma(String nombre) {
+        return histogramas.computeIfAbsent(nombre, Histograma::new);
+    }
+
+    public static Contador contador(String nombre) {
+        return contadores.computeIfAbsent(nombre, n -> new Contador());
+    }
+
+    // Valor que se calcula solo cuando alguien lee las métricas (número de tareas por estado, por prioridad...).
+    // Registrar otro con el mismo nombre sustituye al anterior.
+    public static void indicador(String nombre, LongSupplier valor) {
+        indicadores.put(nombre, valor);
+    }
+
+    public static void reiniciar() {
+        histogramas.values().forEach(Histograma::reiniciar);
+        contadores.values().forEach(Contador::reiniciar);
+    }
+
+    // Método para obtener todas las métricas como texto, una por línea y ordenadas por nombre
+    public static String volcado() {
+        StringBuilder texto = new StringBuilder("Métricas de tareas:");
+        new TreeMap<>(leerContadores()).forEach((nombre, valor) -> texto.append("\n  ").append(nombre).append(" = ").append(valor));
+        new TreeMap<>(leerIndicadores()).forEach((nombre, valor) -> texto.append("\n  ").append(nombre).append(" = ").append(valor));
+        new TreeMap<>(leerHistogramas()).forEach((nombre, resumen) -> {
+            if (resumen.getCuenta() > 0) {
+                texto.append("\n  ").append(nombre).append(": ").append(resumen);
+            }
+        });
+        return texto.toString();
+    }
+
+    static Map<String, Long> leerContadores() {
+        Map<String, Long> valores = new TreeMap<>();
+        contadores.forEach((nombre, contador) -> valores.put(nombre, contador.valor()));
+        return valores;
+    }
+
+    static Map<String, Long> leerIndicadores() {
+        Map<String, Long> valores = new TreeMap<>();
+        indicadores.forEach((nombre, indicador) -> {
+            try {
+                valores.put(nombre, indicador.getAsLong());
+            } catch (RuntimeException e) {
+                valores.put(nombre, -1L); // Un indicador roto no debe impedir leer los demás
+            }
+        });
+        return valores;
+    }
+
+    static Map<String, ResumenHistograma> leerHistogramas() {
+        Map<String, ResumenHistograma> resumenes = new TreeMap<>();
+        histogramas.forEach((nombre, histograma) -> resumenes.put(nombre, histograma.resumen()));
+        return resumenes;
+    }
+
+    private static void publicar() {
+        try {
+            MBeanServer servidor = ManagementFactory.getPlatformMBeanServer();
+            ObjectName nombre = new ObjectName(NOMBRE_JMX);
+            if (!servidor.isRegistered(nombre)) {
+                servidor.registerMBean(new Bean(), nombre);
+            }
+        } catch (JMException e) {
+            System.out.println("Error al publicar las métricas por JMX: " + e.getMessage());
+        }
+        long intervalo = Long.getLong("tareas.metricas.volcadoSeg", VOLCADO_POR_DEFECTO_SEG);
+        if (intervalo > 0) {
+            ScheduledExecutorService hilo = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "volcado-metricas");
+                t.setDaemon(true);
+                return t;
+            });
+            hilo.scheduleAtFixedRate(() -> {
+                if (activas) {
+                    System.out.println(volcado());
+                }
+            }, intervalo, intervalo, TimeUnit.SECONDS);
+        }
+    }
+
+    // Contador monótono (operaciones, bytes, errores); no cuenta nada mientras las métricas estén desactivadas
+    public static final class Contador {
+        private final LongAdder valor = new LongAdder();
+
+        private Contador() {
+        }
+
+        public void incrementar() {
+            if (activas) {
+                valor.increment();
+            }
+        }
+
+        public void sumar(long cantidad) {
+            if (activas) {
+                valor.add(cantidad);
+            }
+        }
+
+        public long valor() {
+            return valor.sum();
+        }
+
+        void reiniciar() {
+            valor.reset();
+        }
+    }
+
+    private static final class Bean implements MetricasMXBean {
+        @Override
+        public boolean isActivas() {
+            return activas;
+        }
+
+        @Override
+        public void setActivas(boolean activar) {
+            if (activar) {
+                activar();
+            } else {
+                desactivar();
+            }
+        }
+
+        @Override
+        public Map<String, Long> getContadores() {
+            return leerContadores();
+        }
+
+        @Override
+        public Map<String, Long> getIndicadores() {
+            return leerIndicadores();
+        }
+
+        @Override
+        public Map<String, ResumenHistograma> getHistogramas() {
+            return leerHistogramas();
+        }
+
+        @Override
+        public String volcado() {
+            return Metricas.volcado();
+        }
+
+        @Override
+        public void reiniciar() {
+            Metricas.reiniciar();
+        }
+    }
+}
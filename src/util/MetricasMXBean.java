@@ -0,0 +1,21 @@
+package util;
+
+import java.util.Map;
+
+// Vista JMX del registro de métricas (objeto "todolist:type=Metricas").
+// Los tiempos de los histogramas van en nanosegundos; los tamaños, en tareas o bytes según el nombre.
+public interface MetricasMXBean {
+    boolean isActivas();
+
+    void setActivas(boolean activas);
+
+    Map<String, Long> getContadores();
+
+    Map<String, Long> getIndicadores();
+
+    Map<String, ResumenHistograma> getHistogramas();
+
+    String volcado();
+
+    void reiniciar();
+}
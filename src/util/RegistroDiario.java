@@ -0,0 +1,40 @@
+package util;
+
+import model.Tarea;
+
+// Un cambio sobre las tareas tal como se guarda en el diario (una línea JSON por registro).
+// Los registros se refieren a la tarea por su id; los diarios antiguos usaban la posición en la lista.
+public class RegistroDiario {
+
+    public enum Operacion { AGREGAR, EDITAR, ELIMINAR }
+
+    private Operacion operacion;
+    private long id;
+    private Integer indice; // Solo en registros antiguos, escritos antes de que las tareas tuvieran id
+    private Tarea tarea;
+
+    private RegistroDiario(Operacion operacion, long id, Tarea tarea) {
+        this.operacion = operacion;
+        this.id = id;
+        this.tarea = tarea;
+    }
+
+    public static RegistroDiario agregar(Tarea tarea) {
+        return new RegistroDiario(Operacion.AGREGAR, tarea.getId(), tarea);
+    }
+
+    public static RegistroDiario editar(Tarea tarea) {
+        return new RegistroDiario(Operacion.EDITAR, tarea.getId(), tarea);
+    }
+
+    public static RegistroDiario eliminar(long id) {
+        return new RegistroDiario(Operacion.ELIMINAR, id, null);
+    }
+
+    public Operacion getOperacion() { return operacion; }
+    public long getId() { return id; }
+    public Tarea getTarea() { return tarea; }
+
+    public boolean esPosicional() { return indice != null; }
+    public int getIndice() { return indice; }
+}
@@ -0,0 +1,42 @@
+package util;
+
+import model.Tarea;
+
+import java.util.Collections;
+import java.util.List;
+
+// Resultado de una importación masiva: las tareas válidas y, por separado, el error de cada fila rechazada
+public class ResultadoImportacion {
+
+    public static class ErrorFila {
+        private final long fila;
+        private final String mensaje;
+
+        public ErrorFila(long fila, String mensaje) {
+            this.fila = fila;
+            this.mensaje = mensaje;
+        }
+
+        public long getFila() { return fila; }
+        public String getMensaje() { return mensaje; }
+
+        @Override
+        public String toString() {
+            return "Fila " + fila + ": " + mensaje;
+        }
+    }
+
+    private final List<Tarea> tareas;
+    private final List<ErrorFila> errores;
+    private final long filasLeidas;
+
+    public ResultadoImportacion(List<Tarea> tareas, List<ErrorFila> errores, long filasLeidas) {
+        this.tareas = Collections.unmodifiableList(tareas);
+        this.errores = Collections.unmodifiableList(errores);
+        this.filasLeidas = filasLeidas;
+    }
+
+    public List<Tarea> getTareas() { return tareas; }
+    public List<ErrorFila> getErrores() { return errores; }
+    public long getFilasLeidas() { return filasLeidas; }
+}
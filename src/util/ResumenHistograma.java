@@ -0,0 +1,38 @@
+package util;
+
+import java.beans.ConstructorProperties;
+
+// Estado de un histograma en un momento dado; JMX lo publica como CompositeData
+public class ResumenHistograma {
+    private final long cuenta;
+    private final double media;
+    private final long maximo;
+    private final long p50;
+    private final long p90;
+    private final long p99;
+    private final long p999;
+
+    @ConstructorProperties({"cuenta", "media", "maximo", "p50", "p90", "p99", "p999"})
+    public ResumenHistograma(long cuenta, double media, long maximo, long p50, long p90, long p99, long p999) {
+        this.cuenta = cuenta;
+        this.media = media;
+        this.maximo = maximo;
+        this.p50 = p50;
+        this.p90 = p90;
+        this.p99 = p99;
+        this.p999 = p999;
+    }
+
+    public long getCuenta() { return cuenta; }
+    public double getMedia() { return media; }
+    public long getMaximo() { return maximo; }
+    public long getP50() { return p50; }
+    public long getP90() { return p90; }
+    public long getP99() { return p99; }
+    public long getP999() { return p999; }
+
+    @Override
+    public String toString() {
+        return String.format("n=%d media=%.0f p50=%d p90=%d p99=%d p99.9=%d max=%d", cuenta, media, p50, p90, p99, p999, maximo);
+    }
+}
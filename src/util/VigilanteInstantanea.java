@@ -0,0 +1,72 @@
+package util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.TimeUnit;
+
+// Hilo que vigila con WatchService el directorio de la instantánea y avisa cuando el archivo se crea o se modifica.
+// Los avisos seguidos se agrupan: se espera a que pase un rato sin eventos, porque quien escribe (otro proceso,
+// una herramienta de sincronización) suele hacerlo en varios pasos.
+class VigilanteInstantanea implements Closeable {
+    static final long ESPERA_POR_DEFECTO_MS = 100;
+
+    private final Path archivo;
+    private final long esperaMs;
+    private final Runnable alCambiar;
+    private final WatchService servicio;
+    private final Thread hilo;
+
+    VigilanteInstantanea(Path archivo, long esperaMs, Runnable alCambiar) throws IOException {
+        this.archivo = archivo.toAbsolutePath();
+        this.esperaMs = esperaMs;
+        this.alCambiar = alCambiar;
+        this.servicio = this.archivo.getFileSystem().newWatchService();
+        this.archivo.getParent().register(servicio, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        this.hilo = new Thread(this::vigilar, "vigilante-tareas");
+        hilo.setDaemon(true);
+    }
+
+    void iniciar() {
+        hilo.start();
+    }
+
+    private void vigilar() {
+        try {
+            while (true) {
+                if (!afectaAlArchivo(servicio.take())) {
+                    continue;
+                }
+                WatchKey siguiente;
+                while ((siguiente = servicio.poll(esperaMs, TimeUnit.MILLISECONDS)) != null) {
+                    afectaAlArchivo(siguiente); // Solo se vacía: ya se sabe que hay que mirar el archivo
+                }
+                alCambiar.run();
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // Se ha cerrado el vigilante
+        }
+    }
+
+    // Consume los eventos de la clave y la rearma; true si alguno es del archivo vigilado
+    private boolean afectaAlArchivo(WatchKey clave) {
+        boolean afecta = false;
+        for (WatchEvent<?> evento : clave.pollEvents()) {
+            if (evento.kind() == StandardWatchEventKinds.OVERFLOW || archivo.getFileName().equals(evento.context())) {
+                afecta = true; // Con OVERFLOW se han perdido eventos: mejor comprobarlo
+            }
+        }
+        clave.reset();
+        return afecta;
+    }
+
+    @Override
+    public void close() throws IOException {
+        servicio.close();
+    }
+}
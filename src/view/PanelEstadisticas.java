@@ -0,0 +1,103 @@
+package view;
+
+import controller.ResumenTareas;
+import model.Prioridad;
+
+import javax.swing.BorderFactory;
+import javax.swing.JComponent;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import java.awt.BorderLayout;
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Graphics;
+import java.awt.GridLayout;
+import java.util.EnumMap;
+import java.util.Map;
+
+// Panel lateral con las cifras de ResumenTareas: solo muestra contadores que ya calcula el controlador,
+// así que refrescarlo tras cada cambio no recorre la lista de tareas
+public class PanelEstadisticas extends JPanel {
+    private static final Color COLOR_BARRA = new Color(0x2E7D32);
+
+    private final JLabel pendientesLabel = new JLabel();
+    private final JLabel completadasLabel = new JLabel();
+    private final JLabel tasaLabel = new JLabel();
+    private final Map<Prioridad, JLabel> prioridadLabels = new EnumMap<>(Prioridad.class);
+    private final JLabel vencidasLabel = new JLabel();
+    private final JLabel hoyLabel = new JLabel();
+    private final JLabel semanaLabel = new JLabel();
+    private final JLabel sinFechaLabel = new JLabel();
+    private final Barras completadasPorDia = new Barras();
+
+    public PanelEstadisticas() {
+        super(new BorderLayout(0, 6));
+        setBorder(BorderFactory.createCompoundBorder(BorderFactory.createTitledBorder("Estadísticas"),
+                BorderFactory.createEmptyBorder(2, 6, 6, 6)));
+        JPanel cifras = new JPanel(new GridLayout(0, 1));
+        cifras.add(pendientesLabel);
+        cifras.add(completadasLabel);
+        cifras.add(tasaLabel);
+        for (Prioridad prioridad : Prioridad.values()) {
+            JLabel label = new JLabel();
+            prioridadLabels.put(prioridad, label);
+            cifras.add(label);
+        }
+        cifras.add(vencidasLabel);
+        cifras.add(hoyLabel);
+        cifras.add(semanaLabel);
+        cifras.add(sinFechaLabel);
+        add(cifras, BorderLayout.NORTH);
+
+        JPanel historico = new JPanel(new BorderLayout());
+        historico.add(new JLabel("Completadas por día:"), BorderLayout.NORTH);
+        historico.add(completadasPorDia, BorderLayout.CENTER);
+        add(historico, BorderLayout.CENTER);
+    }
+
+    public void actualizar(ResumenTareas resumen) {
+        pendientesLabel.setText("Pendientes: " + resumen.getPendientes());
+        completadasLabel.setText("Completadas: " + resumen.getCompletadas());
+        tasaLabel.setText(String.format("Completado: %.0f %%", resumen.getTasaCompletado() * 100));
+        prioridadLabels.forEach((prioridad, label) ->
+                label.setText("  " + prioridad + ": " + resumen.getPendientes(prioridad) + " pendientes"));
+        vencidasLabel.setText("Vencidas: " + resumen.getVencidas());
+        hoyLabel.setText("Vencen hoy: " + resumen.getVencenHoy());
+        semanaLabel.setText("Vencen esta semana: " + resumen.getVencenEstaSemana());
+        sinFechaLabel.setText("Sin fecha límite: " + resumen.getSinFecha());
+        int[] porDia = resumen.getCompletadasPorDia();
+        completadasPorDia.setValores(porDia);
+        completadasPorDia.setToolTipText("Últimos " + porDia.length + " días (hoy a la derecha), desde que se abrió la aplicación");
+    }
+
+    // Gráfico de barras mínimo, una barra por día
+    private static final class Barras extends JComponent {
+        private int[] valores = new int[0];
+
+        Barras() {
+            setPreferredSize(new Dimension(160, 60));
+        }
+
+        void setValores(int[] valores) {
+            this.valores = valores;
+            repaint();
+        }
+
+        @Override
+        protected void paintComponent(Graphics g) {
+            int maximo = 1;
+            for (int valor : valores) {
+                maximo = Math.max(maximo, valor);
+            }
+            if (valores.length == 0) {
+                return;
+            }
+            int ancho = getWidth() / valores.length;
+            g.setColor(COLOR_BARRA);
+            for (int i = 0; i < valores.length; i++) {
+                int alto = Math.max(0, valores[i]) * (getHeight() - 1) / maximo;
+                g.fillRect(i * ancho + 1, getHeight() - alto, Math.max(1, ancho - 2), alto);
+            }
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package view;
+
+import model.Tarea;
+
+import javax.swing.DefaultListCellRenderer;
+import javax.swing.JList;
+import java.awt.Color;
+import java.awt.Component;
+import java.time.LocalDate;
+
+// Formatea la tarea en el momento de pintarla: JList solo pide las filas visibles.
+// Las pendientes vencidas se pintan en rojo y las que vencen en los próximos diasAviso días, en naranja.
+public class TareaCellRenderer extends DefaultListCellRenderer {
+    private static final Color COLOR_VENCIDA = new Color(0xC62828);
+    private static final Color COLOR_PROXIMA = new Color(0xE65100);
+
+    private final int diasAviso;
+    private long hoy = LocalDate.now().toEpochDay(); // Lo actualiza la vista al recibir cada aviso de vencimiento
+
+    public TareaCellRenderer(int diasAviso) {
+        this.diasAviso = diasAviso;
+    }
+
+    public void setHoy(LocalDate hoy) {
+        this.hoy = hoy.toEpochDay();
+    }
+
+    @Override
+    public Component getListCellRendererComponent(JList<?> list, Object value, int index, boolean isSelected, boolean cellHasFocus) {
+        Object texto = value instanceof Tarea ? value.toString() : value;
+        Component componente = super.getListCellRendererComponent(list, texto, index, isSelected, cellHasFocus);
+        if (!isSelected && value instanceof Tarea) {
+            Tarea tarea = (Tarea) value;
+            int fecha = tarea.getFechaLimiteEpochDay();
+            if (!tarea.isCompletada() && fecha != Tarea.SIN_FECHA) {
+                if (fecha < hoy) {
+                    componente.setForeground(COLOR_VENCIDA);
+                } else if (fecha - hoy <= diasAviso) {
+                    componente.setForeground(COLOR_PROXIMA);
+                }
+            }
+        }
+        return componente;
+    }
+}
@@ -0,0 +1,97 @@
+package view;
+
+import model.Tarea;
+
+import javax.swing.AbstractListModel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Modelo de la lista respaldado directamente por la instantánea o el resultado de filtro del controlador.
+// No copia ni formatea filas: el renderizador formatea solo las visibles, y los cambios individuales
+// notifican únicamente el intervalo afectado.
+public class TareaListModel extends AbstractListModel<Tarea> {
+    private List<Tarea> tareas = List.of();
+    private boolean propia; // false mientras la lista sea la recibida del controlador (inmutable)
+    private Map<Long, Integer> filaPorId; // Se construye la primera vez que se busca una fila
+
+    @Override
+    public int getSize() {
+        return tareas.size();
+    }
+
+    @Override
+    public Tarea getElementAt(int index) {
+        return tareas.get(index);
+    }
+
+    // Método para sustituir todo el contenido (al cambiar de filtro)
+    public void mostrar(List<Tarea> nuevas) {
+        int anteriores = tareas.size();
+        tareas = List.of();
+        filaPorId = null;
+        if (anteriores > 0) {
+            fireIntervalRemoved(this, 0, anteriores - 1);
+        }
+        tareas = nuevas;
+        propia = false;
+        if (!nuevas.isEmpty()) {
+            fireIntervalAdded(this, 0, nuevas.size() - 1);
+        }
+    }
+
+    public void agregar(Tarea tarea) {
+        hacerPropia();
+        tareas.add(tarea);
+        int fila = tareas.size() - 1;
+        if (filaPorId != null) {
+            filaPorId.put(tarea.getId(), fila);
+        }
+        fireIntervalAdded(this, fila, fila);
+    }
+
+    // Método para sustituir la fila de una tarea por su versión nueva (el controlador no modifica las tareas
+    // guardadas: editar crea una copia) y repintarla
+    public void actualizada(Tarea tarea) {
+        int fila = filaDe(tarea.getId());
+        if (fila != -1) {
+            hacerPropia();
+            tareas.set(fila, tarea);
+            fireContentsChanged(this, fila, fila);
+        }
+    }
+
+    public void eliminar(long id) {
+        int fila = filaDe(id);
+        if (fila == -1) {
+            return;
+        }
+        hacerPropia();
+        tareas.remove(fila);
+        filaPorId.remove(id);
+        // Las filas posteriores suben una posición; las anteriores no cambian
+        for (int i = fila; i < tareas.size(); i++) {
+            filaPorId.put(tareas.get(i).getId(), i);
+        }
+        fireIntervalRemoved(this, fila, fila);
+    }
+
+    // Fila en la que se muestra la tarea con ese id, o -1 si no está
+    public int filaDe(long id) {
+        if (filaPorId == null) {
+            filaPorId = new HashMap<>(tareas.size() * 2);
+            for (int i = 0; i < tareas.size(); i++) {
+                filaPorId.put(tareas.get(i).getId(), i);
+            }
+        }
+        return filaPorId.getOrDefault(id, -1);
+    }
+
+    private void hacerPropia() {
+        if (!propia) {
+            tareas = new ArrayList<>(tareas);
+            propia = true;
+        }
+    }
+}
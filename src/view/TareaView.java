@@ -1,28 +1,54 @@
 package view;
 
+import controller.ConsultaTareas;
+import controller.OyenteVencimientos;
+import controller.PaginaTareas;
 import controller.TareaController;
+import exceptions.FilePersistenceException;
 import exceptions.InvalidDataException;
+import model.Prioridad;
 import model.Tarea;
+import util.Metricas;
+import util.ResultadoImportacion;
 
 import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
 import java.awt.*;
 import java.time.LocalDate;
 import java.util.List;
+import java.util.Set;
 
 public class TareaView extends JFrame {
+    private static final Metricas.Contador ERRORES = Metricas.contador("vista.errores");
+
     private TareaController controller;
-    private DefaultListModel<String> modeloLista;
-    private JList<String> listaTareas;
+    private TareaListModel modeloLista;
+    private JList<Tarea> listaTareas;
+    private boolean filtroActivo; // true si la lista muestra el resultado de un filtro
+    private JTextField busquedaField;
+    private JButton paginaSiguienteButton;
+    private ConsultaTareas consultaSiguiente; // Siguiente página de la última consulta combinada, si la hay
+    private TareaCellRenderer renderer;
+    private JLabel avisosLabel; // Último aviso de vencimiento recibido
+    private JButton deshacerButton;
+    private JButton rehacerButton;
+    private PanelEstadisticas estadisticasPanel; // Oculto hasta que se pide: al mostrarlo se cargan las completadas
 
     public TareaView(TareaController controller) {
         this.controller = controller;
         setTitle("Gestión de Tareas");
-        setSize(600, 400);
+        setSize(750, 450);
         setDefaultCloseOperation(EXIT_ON_CLOSE);
         setLayout(new BorderLayout());
 
-        modeloLista = new DefaultListModel<>();
+        modeloLista = new TareaListModel();
         listaTareas = new JList<>(modeloLista);
+        renderer = new TareaCellRenderer(controller.getDiasAviso());
+        listaTareas.setCellRenderer(renderer);
+        // Con una fila prototipo la lista no mide todas las filas para calcular su tamaño
+        listaTareas.setPrototypeCellValue(Tarea.restaurar("Título de una tarea de ejemplo", "Descripción de una tarea de ejemplo",
+                (int) LocalDate.now().toEpochDay(), Prioridad.MEDIA, false));
         actualizarLista();
 
         JButton agregarButton = new JButton("Agregar Tarea");
@@ -45,23 +71,144 @@ public class TareaView extends JFrame {
         JButton filtrarPorFechaButton = new JButton("Filtrar por Fecha Límite");
         filtrarPorFechaButton.addActionListener(e -> filtrarPorFecha());
 
+        JButton consultaButton = new JButton("Consulta combinada");
+        consultaButton.addActionListener(e -> consultaCombinada());
+        paginaSiguienteButton = new JButton("Página siguiente");
+        paginaSiguienteButton.setEnabled(false);
+        paginaSiguienteButton.addActionListener(e -> mostrarPagina(controller.consultar(consultaSiguiente)));
+
         JButton limpiarFiltroButton = new JButton("Limpiar Filtro");
-        limpiarFiltroButton.addActionListener(e -> actualizarLista());
+        limpiarFiltroButton.addActionListener(e -> {
+            // Vaciar la búsqueda ya muestra la lista completa; si ya estaba vacía no hay evento del documento
+            if (busquedaField.getText().isEmpty()) {
+                actualizarLista();
+            } else {
+                busquedaField.setText("");
+            }
+        });
+
+        // La búsqueda se actualiza con cada tecla: el índice responde en menos de un milisegundo
+        busquedaField = new JTextField(15);
+        busquedaField.setToolTipText("Buscar en título y descripción");
+        busquedaField.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) { buscar(); }
+            @Override
+            public void removeUpdate(DocumentEvent e) { buscar(); }
+            @Override
+            public void changedUpdate(DocumentEvent e) { buscar(); }
+        });
 
         filtroPanel.add(filtrarPorEstadoButton);
         filtroPanel.add(filtrarPorPrioridadButton);
         filtroPanel.add(filtrarPorFechaButton);
         filtroPanel.add(limpiarFiltroButton);
 
+        JPanel consultaPanel = new JPanel();
+        consultaPanel.add(new JLabel("Buscar:"));
+        consultaPanel.add(busquedaField);
+        consultaPanel.add(consultaButton);
+        consultaPanel.add(paginaSiguienteButton);
+
+        JPanel superiorPanel = new JPanel(new GridLayout(2, 1));
+        superiorPanel.add(filtroPanel);
+        superiorPanel.add(consultaPanel);
+
+        JButton importarButton = new JButton("Importar");
+        importarButton.addActionListener(e -> importarTareas());
+        JButton exportarButton = new JButton("Exportar");
+        exportarButton.addActionListener(e -> exportarTareas());
+
+        deshacerButton = new JButton("Deshacer");
+        deshacerButton.addActionListener(e -> deshacer());
+        rehacerButton = new JButton("Rehacer");
+        rehacerButton.addActionListener(e -> rehacer());
+        // Ctrl+Z y Ctrl+Y desde cualquier parte de la ventana
+        JRootPane raiz = getRootPane();
+        raiz.getInputMap(JComponent.WHEN_IN_FOCUSED_WINDOW).put(KeyStroke.getKeyStroke("control Z"), "deshacer");
+        raiz.getInputMap(JComponent.WHEN_IN_FOCUSED_WINDOW).put(KeyStroke.getKeyStroke("control Y"), "rehacer");
+        raiz.getActionMap().put("deshacer", new AbstractAction() {
+            @Override
+            public void actionPerformed(java.awt.event.ActionEvent e) { deshacer(); }
+        });
+        raiz.getActionMap().put("rehacer", new AbstractAction() {
+            @Override
+            public void actionPerformed(java.awt.event.ActionEvent e) { rehacer(); }
+        });
+        actualizarHistorial();
+
         JPanel botonesPanel = new JPanel();
         botonesPanel.add(agregarButton);
         botonesPanel.add(marcarCompletadaButton);
         botonesPanel.add(editarButton);
         botonesPanel.add(eliminarButton);
+        botonesPanel.add(importarButton);
+        botonesPanel.add(exportarButton);
+        botonesPanel.add(deshacerButton);
+        botonesPanel.add(rehacerButton);
+
+        estadisticasPanel = new PanelEstadisticas();
+        estadisticasPanel.setVisible(false);
+        JToggleButton estadisticasButton = new JToggleButton("Estadísticas");
+        estadisticasButton.addActionListener(e -> {
+            estadisticasPanel.setVisible(estadisticasButton.isSelected());
+            actualizarEstadisticas();
+        });
+        botonesPanel.add(estadisticasButton);
+
+        avisosLabel = new JLabel(" ");
+        avisosLabel.setHorizontalAlignment(SwingConstants.CENTER);
+        JPanel inferiorPanel = new JPanel(new BorderLayout());
+        inferiorPanel.add(botonesPanel, BorderLayout.CENTER);
+        inferiorPanel.add(avisosLabel, BorderLayout.SOUTH);
 
         add(new JScrollPane(listaTareas), BorderLayout.CENTER);
-        add(botonesPanel, BorderLayout.SOUTH);
-        add(filtroPanel, BorderLayout.NORTH);
+        add(estadisticasPanel, BorderLayout.EAST);
+        add(inferiorPanel, BorderLayout.SOUTH);
+        add(superiorPanel, BorderLayout.NORTH);
+
+        controller.agregarOyenteCambios(ids -> SwingUtilities.invokeLater(() -> cambiosExternos(ids)));
+        controller.agregarOyenteVencimientos(new OyenteVencimientos() {
+            @Override
+            public void proximasAVencer(List<Tarea> tareas) {
+                SwingUtilities.invokeLater(() -> mostrarAviso(tareas, "vence pronto", "vencen pronto"));
+            }
+
+            @Override
+            public void vencidas(List<Tarea> tareas) {
+                SwingUtilities.invokeLater(() -> mostrarAviso(tareas, "ha vencido", "han vencido"));
+            }
+        });
+    }
+
+    // Método para reflejar los cambios hechos fuera de esta ventana (archivo editado por otro proceso u otros
+    // nodos): solo se tocan las filas afectadas. Con un filtro activo no se añaden filas, igual que al agregar.
+    private void cambiosExternos(Set<Long> ids) {
+        for (long id : ids) {
+            Tarea tarea = controller.buscarPorId(id);
+            if (tarea == null || tarea.isCompletada()) {
+                modeloLista.eliminar(id);
+            } else if (modeloLista.filaDe(id) != -1) {
+                modeloLista.actualizada(tarea);
+            } else if (!filtroActivo) {
+                modeloLista.agregar(tarea);
+            }
+        }
+        avisosLabel.setText(ids.size() == 1 ? "Una tarea ha cambiado fuera de esta ventana."
+                : ids.size() + " tareas han cambiado fuera de esta ventana.");
+        actualizarHistorial();
+    }
+
+    // Método para mostrar un aviso de vencimiento y repintar la lista con el resaltado del día actual
+    private void mostrarAviso(List<Tarea> tareas, String singular, String plural) {
+        renderer.setHoy(LocalDate.now());
+        if (tareas.size() == 1) {
+            avisosLabel.setText("\"" + tareas.get(0).getTitulo() + "\" " + singular + ".");
+        } else {
+            avisosLabel.setText(tareas.size() + " tareas " + plural + ".");
+        }
+        listaTareas.repaint();
+        actualizarEstadisticas(); // Con el cambio de día cambian las vencidas
     }
 
     private void agregarTarea() {
@@ -107,17 +254,17 @@ public class TareaView extends JFrame {
                 // Solicitar y validar la prioridad
                 if (prioridad == null) {
                     prioridad = JOptionPane.showInputDialog(this, "Prioridad (Alta, Media, Baja):");
-                    if (prioridad == null || !(prioridad.equalsIgnoreCase("Alta") ||
-                            prioridad.equalsIgnoreCase("Media") ||
-                            prioridad.equalsIgnoreCase("Baja"))) {
-                        throw new InvalidDataException("La prioridad debe ser 'Alta', 'Media' o 'Baja'.");
-                    }
+                    Prioridad.desde(prioridad); // Lanza InvalidDataException si no es Alta, Media o Baja
                 }
 
                 // Si todos los datos son válidos, se crea la tarea
-                Tarea nuevaTarea = new Tarea(titulo, descripcion, fechaLimite, prioridad);
-                controller.agregarTarea(nuevaTarea);
-                actualizarLista();
+                Tarea nuevaTarea = controller.agregarTarea(new Tarea(titulo, descripcion, fechaLimite, prioridad));
+                if (filtroActivo || nuevaTarea == null) {
+                    actualizarLista();
+                } else {
+                    modeloLista.agregar(nuevaTarea);
+                    actualizarHistorial();
+                }
                 datosCompletos = true;  // Salir del bucle si todos los datos son válidos
 
             } catch (InvalidDataException e) {
@@ -134,6 +281,7 @@ public class TareaView extends JFrame {
                     prioridad = null; // Reiniciar la prioridad si hubo error
                 }
             } catch (Exception e) {
+                ERRORES.incrementar();
                 e.printStackTrace();  // Mostrar el stack trace completo para depurar
                 JOptionPane.showMessageDialog(this, "Error al agregar tarea: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
             }
@@ -141,47 +289,122 @@ public class TareaView extends JFrame {
     }
 
     private void marcarComoCompletada() {
-        int selectedIndex = listaTareas.getSelectedIndex();
-        if (selectedIndex != -1) {
-            Tarea tareaSeleccionada = controller.getTareas().get(selectedIndex);
-            controller.marcarComoCompletada(tareaSeleccionada);
-            actualizarLista();
+        Tarea tareaSeleccionada = tareaSeleccionada();
+        if (tareaSeleccionada != null) {
+            controller.marcarComoCompletada(tareaSeleccionada.getId());
+            if (filtroActivo) {
+                actualizarLista();
+            } else {
+                modeloLista.eliminar(tareaSeleccionada.getId()); // Deja de estar pendiente
+                actualizarHistorial();
+            }
         } else {
             JOptionPane.showMessageDialog(this, "Selecciona una tarea primero", "Error", JOptionPane.ERROR_MESSAGE);
         }
     }
 
     private void eliminarTarea() {
-        int selectedIndex = listaTareas.getSelectedIndex();
-        if (selectedIndex != -1) {
-            Tarea tareaSeleccionada = controller.getTareas().get(selectedIndex);
-            controller.eliminarTarea(tareaSeleccionada);
-            actualizarLista();
+        Tarea tareaSeleccionada = tareaSeleccionada();
+        if (tareaSeleccionada != null) {
+            controller.eliminarTarea(tareaSeleccionada.getId());
+            modeloLista.eliminar(tareaSeleccionada.getId());
+            actualizarHistorial();
         } else {
             JOptionPane.showMessageDialog(this, "Selecciona una tarea primero", "Error", JOptionPane.ERROR_MESSAGE);
         }
     }
 
     private void actualizarLista() {
-        modeloLista.clear();
-        List<Tarea> tareas = controller.getTareas();
-        tareas.forEach(t -> modeloLista.addElement(t.toString()));
+        filtroActivo = false;
+        olvidarConsulta();
+        modeloLista.mostrar(controller.getTareas());
+        actualizarHistorial();
+    }
+
+    private void deshacer() {
+        String descripcion = controller.deshacer();
+        if (descripcion != null) {
+            avisosLabel.setText("Deshecho: " + descripcion);
+            actualizarLista(); // Lo deshecho puede afectar a cualquier fila, también de un filtro
+        }
+    }
+
+    private void rehacer() {
+        String descripcion = controller.rehacer();
+        if (descripcion != null) {
+            avisosLabel.setText("Rehecho: " + descripcion);
+            actualizarLista();
+        }
     }
 
+    // Método para habilitar los botones de deshacer y rehacer y mostrar en su ayuda qué cambio harían
+    // Se llama tras cada cambio: también refresca las estadísticas, que solo leen contadores del controlador
+    private void actualizarHistorial() {
+        if (deshacerButton == null) {
+            return; // Todavía se está construyendo la ventana
+        }
+        actualizarEstadisticas();
+        String siguienteADeshacer = controller.getSiguienteADeshacer();
+        String siguienteARehacer = controller.getSiguienteARehacer();
+        deshacerButton.setEnabled(siguienteADeshacer != null);
+        deshacerButton.setToolTipText(siguienteADeshacer == null ? null : "Deshacer: " + siguienteADeshacer);
+        rehacerButton.setEnabled(siguienteARehacer != null);
+        rehacerButton.setToolTipText(siguienteARehacer == null ? null : "Rehacer: " + siguienteARehacer);
+    }
+
+    private void actualizarEstadisticas() {
+        if (estadisticasPanel != null && estadisticasPanel.isVisible()) {
+            estadisticasPanel.actualizar(controller.getResumen());
+        }
+    }
+
+    private void mostrarFiltradas(List<Tarea> tareas) {
+        filtroActivo = true;
+        olvidarConsulta();
+        modeloLista.mostrar(tareas);
+    }
+
+    private void mostrarPagina(PaginaTareas pagina) {
+        mostrarFiltradas(pagina.getTareas());
+        consultaSiguiente = pagina.siguiente();
+        paginaSiguienteButton.setEnabled(consultaSiguiente != null);
+    }
+
+    private void olvidarConsulta() {
+        consultaSiguiente = null;
+        if (paginaSiguienteButton != null) {
+            paginaSiguienteButton.setEnabled(false);
+        }
+    }
+
+    // Devuelve la tarea de la fila seleccionada, o null si no hay selección o la tarea ya no existe.
+    // La fila se traduce a id, así que funciona igual con la lista completa o con un filtro.
+    private Tarea tareaSeleccionada() {
+        int selectedIndex = listaTareas.getSelectedIndex();
+        if (selectedIndex == -1 || selectedIndex >= modeloLista.getSize()) {
+            return null;
+        }
+        return controller.buscarPorId(modeloLista.getElementAt(selectedIndex).getId());
+    }
+
+    // Opcionalmente, la ruta del archivo de tareas como primer argumento
     public static void main(String[] args) {
-        TareaController controller = new TareaController();
+        TareaController controller = args.length > 0 ? new TareaController(args[0]) : new TareaController();
+        try {
+            controller.vigilarArchivo(); // Recoge los cambios que haga otro programa en el archivo
+        } catch (FilePersistenceException e) {
+            System.out.println("Error al vigilar el archivo de tareas: " + e.getMessage());
+        }
         new TareaView(controller).setVisible(true);
     }
 
     private void editarTarea() {
-        int selectedIndex = listaTareas.getSelectedIndex();
-        if (selectedIndex != -1) {
-            Tarea tareaSeleccionada = controller.getTareas().get(selectedIndex);
-
+        Tarea tareaSeleccionada = tareaSeleccionada();
+        if (tareaSeleccionada != null) {
             String nuevoTitulo = tareaSeleccionada.getTitulo();
             String nuevaDescripcion = tareaSeleccionada.getDescripcion();
             LocalDate nuevaFechaLimite = tareaSeleccionada.getFechaLimite();
-            String nuevaPrioridad = tareaSeleccionada.getPrioridad();
+            Prioridad nuevaPrioridad = tareaSeleccionada.getPrioridad();
 
             boolean datosCompletos = false;
 
@@ -216,23 +439,24 @@ public class TareaView extends JFrame {
 
                     // Solicitar y validar la nueva prioridad
                     String inputPrioridad = JOptionPane.showInputDialog(this, "Nueva Prioridad (Alta, Media, Baja):", nuevaPrioridad);
-                    if (inputPrioridad != null && !(inputPrioridad.equalsIgnoreCase("Alta") ||
-                            inputPrioridad.equalsIgnoreCase("Media") ||
-                            inputPrioridad.equalsIgnoreCase("Baja"))) {
-                        throw new InvalidDataException("La prioridad debe ser 'Alta', 'Media' o 'Baja'.");
-                    } else if (inputPrioridad != null) {
-                        nuevaPrioridad = inputPrioridad; // Solo se cambia si es válido
+                    if (inputPrioridad != null) {
+                        nuevaPrioridad = Prioridad.desde(inputPrioridad); // Solo se cambia si es válido
                     }
 
                     // Si todos los datos son válidos, se actualiza la tarea
-                    controller.editarTarea(tareaSeleccionada, nuevoTitulo, nuevaDescripcion, nuevaFechaLimite, nuevaPrioridad);
-                    actualizarLista();
+                    controller.editarTarea(tareaSeleccionada.getId(), nuevoTitulo, nuevaDescripcion, nuevaFechaLimite, nuevaPrioridad);
+                    Tarea editada = controller.buscarPorId(tareaSeleccionada.getId());
+                    if (editada != null) {
+                        modeloLista.actualizada(editada);
+                        actualizarHistorial();
+                    }
                     datosCompletos = true; // Salir del bucle si todos los datos son válidos
 
                 } catch (InvalidDataException e) {
                     // Mostrar el mensaje de error y permitir que el usuario vuelva a ingresar solo el dato incorrecto
                     JOptionPane.showMessageDialog(this, e.getMessage(), "Datos inválidos", JOptionPane.ERROR_MESSAGE);
                 } catch (Exception e) {
+                    ERRORES.incrementar();
                     e.printStackTrace();  // Mostrar el stack trace completo para depurar
                     JOptionPane.showMessageDialog(this, "Error al editar tarea: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
                 }
@@ -242,22 +466,146 @@ public class TareaView extends JFrame {
         }
     }
 
+    // Muestra las tareas (pendientes y completadas) que contienen las palabras escritas, las más relevantes primero
+    private void buscar() {
+        String consulta = busquedaField.getText();
+        if (consulta.isBlank()) {
+            actualizarLista();
+        } else {
+            mostrarFiltradas(controller.buscarTexto(consulta, true));
+        }
+    }
+
+    // Importa un CSV o JSON en segundo plano; al terminar muestra cuántas filas entraron y los errores de las demás
+    private void importarTareas() {
+        JFileChooser selector = new JFileChooser();
+        selector.setDialogTitle("Importar tareas (CSV o JSON)");
+        if (selector.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        String ruta = selector.getSelectedFile().getPath();
+        setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
+        new SwingWorker<ResultadoImportacion, Void>() {
+            @Override
+            protected ResultadoImportacion doInBackground() throws FilePersistenceException {
+                return controller.importarTareas(ruta);
+            }
+
+            @Override
+            protected void done() {
+                setCursor(Cursor.getDefaultCursor());
+                try {
+                    ResultadoImportacion resultado = get();
+                    actualizarLista();
+                    StringBuilder mensaje = new StringBuilder("Importadas " + resultado.getTareas().size() + " de "
+                            + resultado.getFilasLeidas() + " filas.");
+                    List<ResultadoImportacion.ErrorFila> errores = resultado.getErrores();
+                    for (int i = 0; i < errores.size() && i < 20; i++) {
+                        mensaje.append('\n').append(errores.get(i));
+                    }
+                    if (errores.size() > 20) {
+                        mensaje.append("\n... y ").append(errores.size() - 20).append(" errores más.");
+                    }
+                    JOptionPane.showMessageDialog(TareaView.this, mensaje.toString(), "Importación",
+                            errores.isEmpty() ? JOptionPane.INFORMATION_MESSAGE : JOptionPane.WARNING_MESSAGE);
+                } catch (Exception e) {
+                    Throwable causa = e.getCause() != null ? e.getCause() : e;
+                    JOptionPane.showMessageDialog(TareaView.this, "Error al importar: " + causa.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+                }
+            }
+        }.execute();
+    }
+
+    private void exportarTareas() {
+        JFileChooser selector = new JFileChooser();
+        selector.setDialogTitle("Exportar tareas (.csv o .json)");
+        if (selector.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        String ruta = selector.getSelectedFile().getPath();
+        if (!ruta.toLowerCase().endsWith(".json") && !ruta.toLowerCase().endsWith(".csv")) {
+            ruta += ".csv";
+        }
+        try {
+            long escritas = controller.exportarTareas(ruta, true);
+            JOptionPane.showMessageDialog(this, "Exportadas " + escritas + " tareas a " + ruta, "Exportación", JOptionPane.INFORMATION_MESSAGE);
+        } catch (FilePersistenceException e) {
+            JOptionPane.showMessageDialog(this, "Error al exportar: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
+    // Combina prioridad, estado, rango de fechas y texto en una sola consulta, ordenada y por páginas
+    private void consultaCombinada() {
+        JComboBox<String> prioridadCombo = new JComboBox<>(new String[] {"Todas", "Alta", "Media", "Baja"});
+        JComboBox<String> estadoCombo = new JComboBox<>(new String[] {"Todos", "Pendiente", "Completada"});
+        JTextField desdeField = new JTextField(10);
+        JTextField hastaField = new JTextField(10);
+        JCheckBox vencidasCheck = new JCheckBox("Solo vencidas");
+        JTextField textoField = new JTextField(15);
+        JComboBox<String> ordenCombo = new JComboBox<>(new String[] {"Fecha límite", "Prioridad", "Relevancia"});
+
+        JPanel panel = new JPanel(new GridLayout(0, 2, 5, 5));
+        panel.add(new JLabel("Prioridad:"));
+        panel.add(prioridadCombo);
+        panel.add(new JLabel("Estado:"));
+        panel.add(estadoCombo);
+        panel.add(new JLabel("Desde (YYYY-MM-DD):"));
+        panel.add(desdeField);
+        panel.add(new JLabel("Hasta (YYYY-MM-DD):"));
+        panel.add(hastaField);
+        panel.add(new JLabel(""));
+        panel.add(vencidasCheck);
+        panel.add(new JLabel("Texto:"));
+        panel.add(textoField);
+        panel.add(new JLabel("Ordenar por:"));
+        panel.add(ordenCombo);
+
+        if (JOptionPane.showConfirmDialog(this, panel, "Consulta combinada", JOptionPane.OK_CANCEL_OPTION) != JOptionPane.OK_OPTION) {
+            return;
+        }
+        try {
+            ConsultaTareas consulta = new ConsultaTareas()
+                    .prioridad(Prioridad.buscar((String) prioridadCombo.getSelectedItem()))
+                    .entreFechas(leerFechaOpcional(desdeField.getText()), leerFechaOpcional(hastaField.getText()))
+                    .texto(textoField.getText())
+                    .ordenarPor(ConsultaTareas.Orden.values()[ordenCombo.getSelectedIndex()]);
+            if (estadoCombo.getSelectedIndex() > 0) {
+                consulta.completada(estadoCombo.getSelectedIndex() == 2);
+            }
+            if (vencidasCheck.isSelected()) {
+                consulta.vencidas();
+            }
+            mostrarPagina(controller.consultar(consulta));
+        } catch (InvalidDataException e) {
+            JOptionPane.showMessageDialog(this, e.getMessage(), "Datos inválidos", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
+    private LocalDate leerFechaOpcional(String texto) throws InvalidDataException {
+        if (texto == null || texto.trim().isEmpty()) {
+            return null;
+        }
+        try {
+            return LocalDate.parse(texto.trim());
+        } catch (Exception e) {
+            throw new InvalidDataException("Formato de fecha inválido. Debe ser YYYY-MM-DD.");
+        }
+    }
+
     private void filtrarPorEstado() {
         String estado = JOptionPane.showInputDialog(this, "Filtrar por Estado (completada / pendiente):");
         if (estado != null && !estado.trim().isEmpty()) {
             boolean completada = estado.equalsIgnoreCase("completada");
             List<Tarea> tareasFiltradas = controller.filtrarPorEstado(completada);
-            modeloLista.clear();
-            tareasFiltradas.forEach(t -> modeloLista.addElement(t.toString()));
+            mostrarFiltradas(tareasFiltradas);
         }
     }
 
     private void filtrarPorPrioridad() {
-        String prioridad = JOptionPane.showInputDialog(this, "Filtrar por Prioridad (Alta, Media, Baja):");
-        if (prioridad != null && (prioridad.equalsIgnoreCase("Alta") || prioridad.equalsIgnoreCase("Media") || prioridad.equalsIgnoreCase("Baja"))) {
+        Prioridad prioridad = Prioridad.buscar(JOptionPane.showInputDialog(this, "Filtrar por Prioridad (Alta, Media, Baja):"));
+        if (prioridad != null) {
             List<Tarea> tareasFiltradas = controller.filtrarPorPrioridad(prioridad);
-            modeloLista.clear();
-            tareasFiltradas.forEach(t -> modeloLista.addElement(t.toString()));
+            mostrarFiltradas(tareasFiltradas);
         } else {
             JOptionPane.showMessageDialog(this, "Prioridad inválida. Debe ser Alta, Media o Baja.", "Error", JOptionPane.ERROR_MESSAGE);
         }
@@ -269,8 +617,7 @@ public class TareaView extends JFrame {
             try {
                 LocalDate fechaLimite = LocalDate.parse(fechaStr);
                 List<Tarea> tareasFiltradas = controller.filtrarPorFechaLimite(fechaLimite);
-                modeloLista.clear();
-                tareasFiltradas.forEach(t -> modeloLista.addElement(t.toString()));
+                mostrarFiltradas(tareasFiltradas);
             } catch (Exception e) {
                 JOptionPane.showMessageDialog(this, "Formato de fecha inválido. Debe ser YYYY-MM-DD.", "Error", JOptionPane.ERROR_MESSAGE);
             }
@@ -0,0 +1,192 @@
+package controller;
+
+import model.Prioridad;
+import model.Tarea;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+// Varios controladores, cada uno con sus archivos, replicando por un directorio compartido
+class ReplicadorTest {
+    private static final long ESPERA_MAXIMA_MS = 20_000;
+
+    @TempDir
+    Path directorio;
+
+    private final List<TareaController> abiertos = new ArrayList<>();
+
+    @BeforeEach
+    void acelerar() {
+        System.setProperty("tareas.replica.intervaloMs", "20");
+        System.setProperty("tareas.replica.cambiosPorInstantanea", "50");
+        System.setProperty("tareas.replica.bytesPorArchivo", "2000"); // Rota a menudo
+    }
+
+    @AfterEach
+    void cerrar() throws Exception {
+        for (TareaController controller : abiertos) {
+            controller.cerrar();
+        }
+        System.clearProperty("tareas.replica.intervaloMs");
+        System.clearProperty("tareas.replica.cambiosPorInstantanea");
+        System.clearProperty("tareas.replica.bytesPorArchivo");
+    }
+
+    private TareaController nodo(int nodo) throws Exception {
+        TareaController controller = new TareaController(directorio.resolve("nodo" + nodo).resolve("tareas.json").toString());
+        controller.replicar(directorio.resolve("replica").toString(), nodo);
+        abiertos.add(controller);
+        return controller;
+    }
+
+    private static Tarea tarea(String titulo) throws Exception {
+        return new Tarea(titulo, "desc " + titulo, LocalDate.of(2026, 12, 1), Prioridad.MEDIA);
+    }
+
+    // Todas las tareas, pendientes y completadas, con todos sus campos
+    private static String firma(TareaController controller) {
+        return Stream.concat(controller.getTareas().stream(), controller.getTareasCompletadas().stream())
+                .sorted(Comparator.comparingLong(Tarea::getId))
+                .map(t -> t.getId() + "|" + t.getTitulo() + "|" + t.getDescripcion() + "|" + t.getFechaLimite() + "|"
+                        + t.getPrioridad() + "|" + t.isCompletada())
+                .collect(Collectors.joining("\n"));
+    }
+
+    private static String esperarConvergencia(TareaController... controllers) throws InterruptedException {
+        long limite = System.currentTimeMillis() + ESPERA_MAXIMA_MS;
+        while (System.currentTimeMillis() < limite) {
+            Set<String> firmas = new HashSet<>();
+            for (TareaController controller : controllers) {
+                firmas.add(firma(controller));
+            }
+            if (firmas.size() == 1) {
+                return firmas.iterator().next();
+            }
+            Thread.sleep(20);
+        }
+        fail("Los nodos no convergen:\n" + Stream.of(controllers).map(ReplicadorTest::firma)
+                .collect(Collectors.joining("\n---\n")));
+        return null;
+    }
+
+    // Cada campo lo gana la última edición; la baja gana a las ediciones anteriores a ella
+    @Test
+    void fusionaCampoACampoLasEdicionesConcurrentes() throws Exception {
+        TareaController a = nodo(1);
+        TareaController b = nodo(2);
+        long x = a.agregarTarea(tarea("x")).getId();
+        long y = a.agregarTarea(tarea("y")).getId();
+        esperarConvergencia(a, b);
+
+        a.editarTarea(x, "x desde A", null, null, Prioridad.MEDIA);
+        b.editarTarea(x, null, "desc desde B", null, Prioridad.ALTA);
+        b.editarTarea(y, "y desde B", null, null, Prioridad.BAJA);
+        a.eliminarTarea(y);
+        esperarConvergencia(a, b);
+
+        Tarea fusionada = a.buscarPorId(x);
+        assertEquals("x desde A", fusionada.getTitulo());
+        assertEquals("desc desde B", fusionada.getDescripcion());
+        assertEquals(Prioridad.ALTA, fusionada.getPrioridad());
+        assertNull(a.buscarPorId(y));
+    }
+
+    @Test
+    void convergenConCargaConcurrenteEnVariosNodos() throws Exception {
+        TareaController[] nodos = {nodo(1), nodo(2), nodo(3)};
+        List<Thread> hilos = new ArrayList<>();
+        List<Throwable> errores = new ArrayList<>();
+        for (int n = 0; n < nodos.length; n++) {
+            TareaController controller = nodos[n];
+            int semilla = n;
+            Thread hilo = new Thread(() -> {
+                Random aleatorio = new Random(semilla);
+                try {
+                    for (int i = 0; i < 300; i++) {
+                        List<Tarea> tareas = controller.getTareas();
+                        int operacion = aleatorio.nextInt(10);
+                        if (operacion < 3 || tareas.isEmpty()) {
+                            controller.agregarTarea(tarea("n" + semilla + "-" + i));
+                            continue;
+                        }
+                        long id = tareas.get(aleatorio.nextInt(tareas.size())).getId();
+                        if (operacion < 6) {
+                            controller.editarTarea(id, "e" + semilla + "-" + i, null,
+                                    LocalDate.of(2026, 1 + aleatorio.nextInt(12), 1), Prioridad.values()[aleatorio.nextInt(3)]);
+                        } else if (operacion < 7) {
+                            controller.eliminarTarea(id);
+                        } else if (operacion < 9) {
+                            controller.marcarComoCompletada(id);
+                        } else {
+                            controller.deshacer();
+                        }
+                        if (i % 50 == 0) {
+                            Thread.sleep(30); // Deja que lleguen cambios de los demás entre medias
+                        }
+                    }
+                } catch (Throwable e) {
+                    synchronized (errores) {
+                        errores.add(e);
+                    }
+                }
+            });
+            hilos.add(hilo);
+            hilo.start();
+        }
+        for (Thread hilo : hilos) {
+            hilo.join();
+        }
+        assertEquals(List.of(), errores);
+        esperarConvergencia(nodos);
+
+        // Un nodo rota su archivo al escribir su instantánea si los demás ya lo han leído entero: con algo más de
+        // actividad acaba ocurriendo. Después, un nodo que rearranca y otro nuevo se ponen al día igualmente.
+        esperarRotacion(nodos);
+        String estado = esperarConvergencia(nodos);
+        nodos[0].cerrar();
+        abiertos.remove(nodos[0]);
+        TareaController reiniciado = nodo(1);
+        TareaController nuevo = nodo(4);
+        assertEquals(estado, esperarConvergencia(reiniciado, nodos[1], nodos[2], nuevo));
+
+        Tarea agregada = nuevo.agregarTarea(tarea("desde el nodo nuevo"));
+        assertNotNull(agregada);
+        esperarConvergencia(reiniciado, nodos[1], nodos[2], nuevo);
+        assertNotNull(reiniciado.buscarPorId(agregada.getId()));
+    }
+
+    private void esperarRotacion(TareaController[] nodos) throws Exception {
+        long limite = System.currentTimeMillis() + ESPERA_MAXIMA_MS;
+        for (int i = 0; !hayArchivosRotados(); i++) {
+            assertTrue(System.currentTimeMillis() < limite, "Ningún archivo de cambios ha rotado");
+            nodos[i % nodos.length].agregarTarea(tarea("relleno " + i));
+            Thread.sleep(5);
+        }
+    }
+
+    private boolean hayArchivosRotados() throws Exception {
+        try (DirectoryStream<Path> archivos = Files.newDirectoryStream(directorio.resolve("replica"), "cambios-*-*.jsonl")) {
+            return archivos.iterator().hasNext();
+        }
+    }
+}
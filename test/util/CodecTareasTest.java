@@ -0,0 +1,163 @@
+package util;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import controller.TareaAdapter;
+import exceptions.FilePersistenceException;
+import model.Prioridad;
+import model.Tarea;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+// Ida y vuelta de los dos formatos de instantánea y su comportamiento con archivos cortados o dañados
+class CodecTareasTest {
+    private static final Gson GSON = new GsonBuilder().registerTypeAdapter(Tarea.class, new TareaAdapter()).create();
+
+    @TempDir
+    Path directorio;
+
+    // Textos con comillas, llaves, escapes y caracteres de varios bytes para que delimitar no se deje engañar
+    private static List<Tarea> muestra() {
+        return List.of(
+                Tarea.restaurar(1, "Comprar pan", "En la panadería", 20000, Prioridad.ALTA, false),
+                Tarea.restaurar(2, "Llaves } y ] en \"comillas\"", "barra \\ final\\", Tarea.SIN_FECHA, Prioridad.BAJA, true),
+                Tarea.restaurar(Long.MAX_VALUE, "ñandú €", "línea\nsegunda", -1, Prioridad.MEDIA, false),
+                Tarea.restaurar(4, "sin descripción", null, 0, null, false));
+    }
+
+    private static String resumen(Tarea tarea) {
+        return tarea.getId() + "|" + tarea.getTitulo() + "|" + tarea.getDescripcion() + "|" + tarea.getFechaLimiteEpochDay()
+                + "|" + tarea.getPrioridad() + "|" + tarea.isCompletada();
+    }
+
+    private static List<String> resumen(List<Tarea> tareas) {
+        return tareas.stream().map(CodecTareasTest::resumen).collect(Collectors.toList());
+    }
+
+    private File escribir(String extension, List<Tarea> tareas) throws IOException {
+        File archivo = directorio.resolve("tareas" + extension).toFile();
+        try (FileChannel canal = FileChannel.open(archivo.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            FileManager.codecPara(archivo.getPath(), GSON).escribir(canal, tareas);
+        }
+        return archivo;
+    }
+
+    private static List<Tarea> porLimites(CodecTareas codec, ByteBuffer datos) throws IOException {
+        int[] limites = codec.delimitar(datos.duplicate());
+        List<Tarea> tareas = new ArrayList<>();
+        for (int i = 0; i < limites.length; i += 2) {
+            tareas.add(codec.decodificar(datos.duplicate().position(limites[i]).limit(limites[i + 1]).slice()));
+        }
+        return tareas;
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {".json", CodecBinario.EXTENSION})
+    void idaYVuelta(String extension) throws IOException {
+        File archivo = escribir(extension, muestra());
+        CodecTareas codec = FileManager.codecPara(archivo.getPath(), GSON);
+
+        assertEquals(resumen(muestra()), resumen(codec.leer(archivo)));
+        List<Tarea> recorridas = new ArrayList<>();
+        try (LectorInstantanea lector = codec.abrir(archivo)) {
+            lector.forEachRemaining(recorridas::add);
+        }
+        assertEquals(resumen(muestra()), resumen(recorridas));
+        assertEquals(resumen(muestra()), resumen(porLimites(codec, ByteBuffer.wrap(Files.readAllBytes(archivo.toPath())))));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {".json", CodecBinario.EXTENSION})
+    void archivoVacioNoTieneTareas(String extension) throws IOException {
+        File archivo = escribir(extension, List.of());
+        CodecTareas codec = FileManager.codecPara(archivo.getPath(), GSON);
+        assertEquals(List.of(), codec.leer(archivo));
+        assertEquals(List.of(), porLimites(codec, ByteBuffer.wrap(Files.readAllBytes(archivo.toPath()))));
+
+        Files.write(archivo.toPath(), new byte[0]); // Un archivo de cero bytes equivale a ninguna tarea en los dos formatos
+        assertEquals(List.of(), codec.leer(archivo));
+        assertEquals(0, codec.delimitar(ByteBuffer.allocate(0)).length);
+    }
+
+    // Cualquier corte (por ejemplo, otro proceso a mitad de escribir) se detecta, tanto al delimitar como al cargar
+    @ParameterizedTest
+    @ValueSource(strings = {".json", CodecBinario.EXTENSION})
+    void detectaCualquierCorte(String extension) throws IOException {
+        File archivo = escribir(extension, muestra());
+        CodecTareas codec = FileManager.codecPara(archivo.getPath(), GSON);
+        byte[] completo = Files.readAllBytes(archivo.toPath());
+        for (int longitud = 1; longitud < completo.length; longitud++) {
+            byte[] cortado = Arrays.copyOf(completo, longitud);
+            assertThrows(IOException.class, () -> codec.delimitar(ByteBuffer.wrap(cortado)), "Corte en " + longitud);
+            Files.write(archivo.toPath(), cortado);
+            assertThrows(FilePersistenceException.class, () -> new FileManager(archivo.getPath()).cargarTareas(),
+                    "Corte en " + longitud);
+        }
+    }
+
+    @Test
+    void rechazaCabecerasBinariasDanadas() throws IOException {
+        File archivo = escribir(CodecBinario.EXTENSION, muestra());
+        byte[] completo = Files.readAllBytes(archivo.toPath());
+        CodecBinario codec = new CodecBinario();
+
+        byte[] otraMagia = completo.clone();
+        otraMagia[0] ^= 1;
+        assertThrows(IOException.class, () -> codec.delimitar(ByteBuffer.wrap(otraMagia)));
+
+        ByteBuffer versionFutura = ByteBuffer.wrap(completo.clone());
+        versionFutura.putShort(4, (short) (CodecBinario.VERSION + 1));
+        assertThrows(IOException.class, () -> codec.delimitar(versionFutura));
+
+        ByteBuffer cantidadNegativa = ByteBuffer.wrap(completo.clone());
+        cantidadNegativa.putInt(6, -1);
+        assertThrows(IOException.class, () -> codec.delimitar(cantidadNegativa));
+
+        ByteBuffer demasiadas = ByteBuffer.wrap(completo.clone());
+        demasiadas.putInt(6, Integer.MAX_VALUE);
+        assertThrows(IOException.class, () -> codec.delimitar(demasiadas));
+    }
+
+    @Test
+    void rechazaRegistrosBinariosDanados() throws IOException {
+        File archivo = escribir(CodecBinario.EXTENSION, muestra().subList(0, 1));
+        ByteBuffer datos = ByteBuffer.wrap(Files.readAllBytes(archivo.toPath()));
+        CodecBinario codec = new CodecBinario();
+        int[] limites = codec.delimitar(datos.duplicate());
+        int inicio = limites[0];
+
+        ByteBuffer prioridadDesconocida = ByteBuffer.wrap(datos.array().clone());
+        prioridadDesconocida.put(inicio + 8 + 4, (byte) 42);
+        assertThrows(IOException.class, () -> codec.decodificar(prioridadDesconocida.position(inicio).slice()));
+
+        ByteBuffer longitudNegativa = ByteBuffer.wrap(datos.array().clone());
+        longitudNegativa.putInt(inicio + 8 + 4 + 1 + 1, -7);
+        assertThrows(IOException.class, () -> codec.delimitar(longitudNegativa.duplicate()));
+        assertThrows(IOException.class, () -> codec.decodificar(longitudNegativa.position(inicio).slice()));
+    }
+
+    @Test
+    void rechazaJsonQueNoEsUnArregloDeTareas() {
+        CodecTareas codec = FileManager.codecPara("tareas.json", GSON);
+        assertThrows(IOException.class, () -> codec.delimitar(ByteBuffer.wrap("{\"id\":1}".getBytes())));
+        assertThrows(IOException.class, () -> codec.delimitar(ByteBuffer.wrap("[{\"id\":1}, 3]".getBytes())));
+        assertThrows(IOException.class, () -> codec.decodificar(ByteBuffer.wrap("{\"id\":1,\"titulo\":".getBytes())));
+    }
+}
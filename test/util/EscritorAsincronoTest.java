@@ -0,0 +1,198 @@
+package util;
+
+import exceptions.FilePersistenceException;
+import exceptions.InvalidDataException;
+import model.Prioridad;
+import model.Tarea;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// El escritor hace de controlador mínimo: las tareas se cambian en memoria bajo el cerrojo de escritura y se
+// encolan igual que en TareaController; al recargar, el disco tiene que coincidir con la memoria
+class EscritorAsincronoTest {
+    @TempDir
+    Path directorio;
+
+    private final ReentrantReadWriteLock cerrojo = new ReentrantReadWriteLock();
+    private final Map<Long, Tarea> pendientes = new LinkedHashMap<>();
+    private final Map<Long, Tarea> completadas = new LinkedHashMap<>();
+    private long siguienteId = 1;
+
+    private Collection<Tarea> instantanea() {
+        cerrojo.readLock().lock();
+        try {
+            return List.copyOf(pendientes.values());
+        } finally {
+            cerrojo.readLock().unlock();
+        }
+    }
+
+    private static List<String> resumen(Collection<Tarea> tareas) {
+        return tareas.stream().sorted((a, b) -> Long.compare(a.getId(), b.getId()))
+                .map(t -> t.getId() + ":" + t.getTitulo() + ":" + t.isCompletada()).collect(Collectors.toList());
+    }
+
+    // Compacta cada pocos registros para que las completadas y las reaperturas caigan a menudo en mitad de una
+    // compactación
+    @Test
+    void lasCompactacionesNoPierdenCompletadasNiReaperturas() throws Exception {
+        String ruta = directorio.resolve("tareas.json").toString();
+        FileManager fileManager = new FileManager(ruta, 5);
+        EscritorAsincrono escritor = new EscritorAsincrono(fileManager, 1, this::instantanea, cerrojo.readLock());
+        Random aleatorio = new Random(8);
+        for (int i = 0; i < 3000; i++) {
+            cambiar(escritor, aleatorio, i);
+            if (i % 500 == 0) {
+                escritor.flush();
+            }
+        }
+        escritor.cerrar();
+
+        FileManager recargado = new FileManager(ruta, 5);
+        assertEquals(resumen(pendientes.values()), resumen(recargado.cargarTareas()));
+        assertEquals(resumen(completadas.values()), resumen(recargado.cargarCompletadas()));
+    }
+
+    // Un error de escritura no puede perder el lote: lo que no llegó al disco se reintenta en el siguiente
+    @Test
+    void unErrorDeEscrituraNoPierdeElLote() throws Exception {
+        String ruta = directorio.resolve("tareas.tbin").toString();
+        FileManagerConFallos fileManager = new FileManagerConFallos(ruta, new Random(5));
+        EscritorAsincrono escritor = new EscritorAsincrono(fileManager, 1, this::instantanea, cerrojo.readLock());
+        Random aleatorio = new Random(13);
+        int errores = 0;
+        for (int i = 0; i < 3000; i++) {
+            cambiar(escritor, aleatorio, i);
+            if (i % 100 == 0) {
+                try {
+                    escritor.flush();
+                } catch (FilePersistenceException e) {
+                    errores++;
+                }
+            }
+        }
+        fileManager.fallar = false;
+        try {
+            escritor.flush(); // Reintenta lo que quedó en la cola; puede avisar todavía de un error anterior
+        } catch (FilePersistenceException e) {
+            errores++;
+        }
+        escritor.cerrar();
+
+        assertTrue(errores > 0, "No se llegó a inyectar ningún error");
+        FileManager recargado = new FileManager(ruta, 5);
+        assertEquals(resumen(pendientes.values()), resumen(recargado.cargarTareas()));
+        assertEquals(resumen(completadas.values()), resumen(recargado.cargarCompletadas()));
+    }
+
+    // Falla una de cada diez escrituras antes de tocar el disco
+    private static final class FileManagerConFallos extends FileManager {
+        private final Random aleatorio;
+        volatile boolean fallar = true;
+
+        FileManagerConFallos(String ruta, Random aleatorio) {
+            super(ruta, 5);
+            this.aleatorio = aleatorio;
+        }
+
+        private void quizaFallar() throws FilePersistenceException {
+            if (fallar && aleatorio.nextInt(10) == 0) {
+                throw new FilePersistenceException("Fallo inyectado.", new IOException("Disco lleno"));
+            }
+        }
+
+        @Override
+        public void anexarAlDiario(Collection<String> lineas) throws FilePersistenceException {
+            quizaFallar();
+            super.anexarAlDiario(lineas);
+        }
+
+        @Override
+        public void anexarAlArchivoCompletadas(Collection<String> lineas) throws FilePersistenceException {
+            quizaFallar();
+            super.anexarAlArchivoCompletadas(lineas);
+        }
+
+        @Override
+        public void guardarTareas(Collection<Tarea> tareas) throws FilePersistenceException {
+            quizaFallar();
+            super.guardarTareas(tareas);
+        }
+    }
+
+    // Una operación al azar, en memoria bajo el cerrojo de escritura y encolada como en TareaController
+    private void cambiar(EscritorAsincrono escritor, Random aleatorio, int i) throws InvalidDataException {
+        cerrojo.writeLock().lock();
+        try {
+            int operacion = aleatorio.nextInt(10);
+            if (operacion < 3 || pendientes.isEmpty()) {
+                Tarea nueva = Tarea.restaurar(siguienteId++, "t" + i, "d", 20000, Prioridad.BAJA, false);
+                pendientes.put(nueva.getId(), nueva);
+                escritor.registrarCambio(RegistroDiario.agregar(nueva));
+            } else if (operacion < 5) {
+                Tarea pendiente = elegir(pendientes, aleatorio);
+                Tarea editada = pendiente.editada("e" + i, null, null, Prioridad.ALTA);
+                pendientes.put(editada.getId(), editada);
+                escritor.registrarCambio(RegistroDiario.editar(editada));
+            } else if (operacion < 8) {
+                Tarea completada = pendientes.remove(elegir(pendientes, aleatorio).getId()).conEstado(true);
+                completadas.put(completada.getId(), completada);
+                escritor.registrarCambio(RegistroDiario.eliminar(completada.getId()));
+                escritor.archivarCompletada(completada);
+            } else if (!completadas.isEmpty() && operacion < 9) {
+                Tarea reabierta = completadas.remove(elegir(completadas, aleatorio).getId()).conEstado(false);
+                pendientes.put(reabierta.getId(), reabierta);
+                escritor.registrarCambio(RegistroDiario.agregar(reabierta));
+                escritor.reabrirCompletada(reabierta.getId());
+            } else if (!completadas.isEmpty()) {
+                long id = elegir(completadas, aleatorio).getId();
+                completadas.remove(id);
+                escritor.eliminarDelArchivo(id);
+            }
+        } finally {
+            cerrojo.writeLock().unlock();
+        }
+    }
+
+    @Test
+    void guardarInstantaneaDescartaElDiario() throws Exception {
+        String ruta = directorio.resolve("tareas.tbin").toString();
+        FileManager fileManager = new FileManager(ruta);
+        EscritorAsincrono escritor = new EscritorAsincrono(fileManager, 1, this::instantanea, cerrojo.readLock());
+        cerrojo.writeLock().lock();
+        try {
+            for (long id = 1; id <= 10; id++) {
+                Tarea tarea = Tarea.restaurar(id, "t" + id, "d", Tarea.SIN_FECHA, Prioridad.MEDIA, false);
+                pendientes.put(id, tarea);
+                escritor.registrarCambio(RegistroDiario.agregar(tarea));
+            }
+            escritor.guardarInstantanea();
+        } finally {
+            cerrojo.writeLock().unlock();
+        }
+        escritor.cerrar();
+
+        assertFalse(Files.exists(Path.of(ruta + ".log")));
+        assertEquals(resumen(pendientes.values()), resumen(new FileManager(ruta).cargarTareas()));
+    }
+
+    private static Tarea elegir(Map<Long, Tarea> tareas, Random aleatorio) {
+        return new ArrayList<>(tareas.values()).get(aleatorio.nextInt(tareas.size()));
+    }
+}
@@ -0,0 +1,166 @@
+package util;
+
+import exceptions.FilePersistenceException;
+import model.Prioridad;
+import model.Tarea;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+// Diario de cambios y recuperación de compactaciones cortadas, con los dos formatos de instantánea
+class FileManagerTest {
+    @TempDir
+    Path directorio;
+
+    private static Tarea tarea(long id, String titulo) {
+        return Tarea.restaurar(id, titulo, "desc " + titulo, 20000, Prioridad.MEDIA, false);
+    }
+
+    // Id y título de cada tarea, en orden: basta para ver qué registros se aplicaron y dónde
+    private static List<String> resumen(List<Tarea> tareas) {
+        return tareas.stream().map(t -> t.getId() + ":" + t.getTitulo()).collect(Collectors.toList());
+    }
+
+    private FileManager abrir(String extension) {
+        return new FileManager(directorio.resolve("tareas" + extension).toString());
+    }
+
+    private static void anotar(FileManager fileManager, RegistroDiario... registros) throws FilePersistenceException {
+        List<String> lineas = new ArrayList<>();
+        for (RegistroDiario registro : registros) {
+            lineas.add(fileManager.serializar(registro));
+        }
+        fileManager.anexarAlDiario(lineas);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {".json", CodecBinario.EXTENSION})
+    void reproduceElDiarioPorId(String extension) throws Exception {
+        FileManager fileManager = abrir(extension);
+        fileManager.guardarTareas(List.of(tarea(1, "uno"), tarea(2, "dos"), tarea(3, "tres")));
+        anotar(fileManager,
+                RegistroDiario.editar(tarea(2, "dos editada")),
+                RegistroDiario.eliminar(1),
+                RegistroDiario.agregar(tarea(4, "cuatro")),
+                RegistroDiario.eliminar(99)); // Borrar una que no existe no es un error
+        fileManager.cerrar();
+
+        List<Tarea> cargadas = abrir(extension).cargarTareas();
+        // Editar conserva la posición; las altas van al final
+        assertEquals(List.of("2:dos editada", "3:tres", "4:cuatro"), resumen(cargadas));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {".json", CodecBinario.EXTENSION})
+    void descartaLaUltimaLineaIncompletaDelDiario(String extension) throws Exception {
+        FileManager fileManager = abrir(extension);
+        fileManager.guardarTareas(List.of(tarea(1, "uno")));
+        anotar(fileManager, RegistroDiario.agregar(tarea(2, "dos")));
+        fileManager.cerrar();
+        Path diario = directorio.resolve("tareas" + extension + ".log");
+        Files.writeString(diario, "{\"operacion\":\"AGREGAR\",\"id\":3,\"tar", StandardOpenOption.APPEND);
+
+        FileManager recuperado = abrir(extension);
+        assertEquals(List.of("1:uno", "2:dos"), resumen(recuperado.cargarTareas()));
+        // Lo recuperado se consolida en la instantánea, así que lo que se anexe después no va tras la línea rota
+        assertFalse(Files.exists(diario));
+        anotar(recuperado, RegistroDiario.agregar(tarea(3, "tres")));
+        recuperado.cerrar();
+        assertEquals(List.of("1:uno", "2:dos", "3:tres"), resumen(abrir(extension).cargarTareas()));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {".json", CodecBinario.EXTENSION})
+    void reproduceDiariosPosicionalesAntiguos(String extension) throws Exception {
+        FileManager fileManager = abrir(extension);
+        fileManager.guardarTareas(List.of(tarea(1, "uno"), tarea(2, "dos")));
+        fileManager.cerrar();
+        Files.write(directorio.resolve("tareas" + extension + ".log"), List.of(
+                "{\"operacion\":\"ELIMINAR\",\"indice\":0}",
+                "{\"operacion\":\"AGREGAR\",\"indice\":0,\"tarea\":{\"id\":5,\"titulo\":\"cinco\",\"descripcion\":\"d\","
+                        + "\"fechaLimite\":\"2025-01-01\",\"prioridad\":\"Alta\",\"completada\":false}}"),
+                StandardCharsets.UTF_8);
+
+        assertEquals(List.of("5:cinco", "2:dos"), resumen(abrir(extension).cargarTareas()));
+    }
+
+    // Corte después de descartar el diario y antes de renombrar: el temporal está entero y es la versión buena
+    @ParameterizedTest
+    @ValueSource(strings = {".json", CodecBinario.EXTENSION})
+    void usaElTemporalCompletoSiLaCompactacionSeCortoTrasVaciarElDiario(String extension) throws Exception {
+        FileManager fileManager = abrir(extension);
+        fileManager.guardarTareas(List.of(tarea(1, "uno")));
+        fileManager.cerrar();
+        escribirTemporal(extension, List.of(tarea(1, "uno"), tarea(2, "dos")));
+
+        assertEquals(List.of("1:uno", "2:dos"), resumen(abrir(extension).cargarTareas()));
+        assertFalse(Files.exists(directorio.resolve("tareas" + extension + ".tmp")));
+    }
+
+    // Un temporal cortado sin diario no puede sustituir a la instantánea, aunque no haya diario que lo delate
+    @ParameterizedTest
+    @ValueSource(strings = {".json", CodecBinario.EXTENSION})
+    void descartaElTemporalCortadoAunqueNoHayaDiario(String extension) throws Exception {
+        FileManager fileManager = abrir(extension);
+        fileManager.guardarTareas(List.of(tarea(1, "uno"), tarea(2, "dos")));
+        fileManager.cerrar();
+        assertFalse(Files.exists(directorio.resolve("tareas" + extension + ".log")));
+        escribirTemporal(extension, List.of(tarea(1, "uno"), tarea(2, "dos"), tarea(3, "tres")));
+        Path temporal = directorio.resolve("tareas" + extension + ".tmp");
+        byte[] completo = Files.readAllBytes(temporal);
+
+        for (int longitud : new int[] {0, 1, completo.length / 2, completo.length - 1}) {
+            Files.write(temporal, Arrays.copyOf(completo, longitud));
+            assertEquals(List.of("1:uno", "2:dos"), resumen(abrir(extension).cargarTareas()), "Corte en " + longitud);
+            assertFalse(Files.exists(temporal));
+        }
+    }
+
+    // Corte mientras se escribía el temporal: el diario sigue ahí y el temporal se ignora
+    @ParameterizedTest
+    @ValueSource(strings = {".json", CodecBinario.EXTENSION})
+    void ignoraElTemporalSiElDiarioSigueExistiendo(String extension) throws Exception {
+        FileManager fileManager = abrir(extension);
+        fileManager.guardarTareas(List.of(tarea(1, "uno")));
+        anotar(fileManager, RegistroDiario.agregar(tarea(2, "dos")));
+        fileManager.cerrar();
+        escribirTemporal(extension, List.of(tarea(9, "a medias")));
+
+        assertEquals(List.of("1:uno", "2:dos"), resumen(abrir(extension).cargarTareas()));
+        assertFalse(Files.exists(directorio.resolve("tareas" + extension + ".tmp")));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {".json", CodecBinario.EXTENSION})
+    void recorrerTareasAplicaElDiario(String extension) throws Exception {
+        FileManager fileManager = abrir(extension);
+        fileManager.guardarTareas(List.of(tarea(1, "uno"), tarea(2, "dos")));
+        anotar(fileManager, RegistroDiario.eliminar(1), RegistroDiario.editar(tarea(2, "dos editada")));
+        fileManager.cerrar();
+
+        List<Tarea> recorridas = new ArrayList<>();
+        abrir(extension).recorrerTareas(recorridas::add);
+        assertEquals(List.of("2:dos editada"), resumen(recorridas));
+    }
+
+    // Escribe tareas.<extensión>.tmp con el mismo códec que la instantánea
+    private void escribirTemporal(String extension, List<Tarea> tareas) throws FilePersistenceException, IOException {
+        FileManager otro = new FileManager(directorio.resolve("otra" + extension).toString());
+        otro.guardarTareas(tareas);
+        otro.cerrar();
+        Files.move(directorio.resolve("otra" + extension), directorio.resolve("tareas" + extension + ".tmp"));
+    }
+}
@@ -0,0 +1,162 @@
+package util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Se compara con un HashMap tras cada operación. Las claves se eligen para que choquen en las ramas: comparten
+// los bits bajos y solo se distinguen en los altos (incluido el signo), así que se separan varios niveles más abajo.
+class MapaPersistenteTest {
+    private static final long[] CLAVES = claves();
+
+    private static long[] claves() {
+        List<Long> claves = new ArrayList<>();
+        for (long bajos : new long[] {0, 1, 31, 32, 33, 1025}) {
+            for (int alto : new int[] {-1, 5, 10, 35, 55, 60, 62, 63}) {
+                claves.add(alto < 0 ? bajos : bajos | (1L << alto));
+            }
+        }
+        claves.add(-1L);
+        claves.add(Long.MIN_VALUE);
+        claves.add(Long.MAX_VALUE);
+        return claves.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    private static Map<Long, String> contenido(MapaPersistente<String> mapa) {
+        Map<Long, String> contenido = new HashMap<>();
+        mapa.recorrer((clave, valor) -> assertNull(contenido.put(clave, valor), "Clave repetida: " + clave));
+        return contenido;
+    }
+
+    private static void comprobar(Map<Long, String> esperado, MapaPersistente<String> mapa) {
+        assertEquals(esperado, contenido(mapa));
+        assertEquals(esperado.size(), mapa.tamano());
+        for (long clave : CLAVES) {
+            assertEquals(esperado.get(clave), mapa.obtener(clave), "Clave " + clave);
+        }
+    }
+
+    @Test
+    void conYSinSeComportanComoUnMapaYNoTocanLasVersionesAnteriores() {
+        Random aleatorio = new Random(17);
+        List<MapaPersistente<String>> versiones = new ArrayList<>();
+        List<Map<Long, String>> esperadas = new ArrayList<>();
+        MapaPersistente<String> mapa = MapaPersistente.vacio();
+        Map<Long, String> esperado = new HashMap<>();
+        for (int i = 0; i < 5000; i++) {
+            long clave = CLAVES[aleatorio.nextInt(CLAVES.length)];
+            if (aleatorio.nextInt(3) == 0) {
+                mapa = mapa.sin(clave);
+                esperado.remove(clave);
+            } else {
+                String valor = "v" + i;
+                mapa = mapa.con(clave, valor);
+                esperado.put(clave, valor);
+            }
+            comprobar(esperado, mapa);
+            if (i % 50 == 0) {
+                versiones.add(mapa);
+                esperadas.add(new HashMap<>(esperado));
+            }
+        }
+        for (int i = 0; i < versiones.size(); i++) {
+            comprobar(esperadas.get(i), versiones.get(i));
+        }
+    }
+
+    @Test
+    void vaciarloDevuelveElMapaVacio() {
+        MapaPersistente<String> mapa = MapaPersistente.vacio();
+        for (long clave : CLAVES) {
+            mapa = mapa.con(clave, "x");
+        }
+        for (long clave : CLAVES) {
+            mapa = mapa.sin(clave);
+        }
+        assertTrue(mapa.estaVacio());
+        assertSame(MapaPersistente.vacio(), mapa);
+    }
+
+    @Test
+    void losCambiosSinEfectoDevuelvenElMismoMapa() {
+        String valor = "uno";
+        MapaPersistente<String> mapa = MapaPersistente.<String>vacio().con(1, valor).con(1 | (1L << 40), "otro");
+        assertSame(mapa, mapa.con(1, valor));
+        assertSame(mapa, mapa.sin(2));
+        assertSame(mapa, mapa.sin(1 | (1L << 41))); // Misma rama que dos claves existentes, pero no está
+        assertThrows(IllegalArgumentException.class, () -> mapa.con(3, null));
+    }
+
+    @Test
+    void desdeEquivaleAUnaSerieDeCon() {
+        Random aleatorio = new Random(3);
+        for (int ronda = 0; ronda < 200; ronda++) {
+            List<long[]> pares = new ArrayList<>();
+            MapaPersistente<String> esperado = MapaPersistente.vacio();
+            int cantidad = aleatorio.nextInt(40);
+            for (int i = 0; i < cantidad; i++) {
+                long clave = CLAVES[aleatorio.nextInt(CLAVES.length)]; // Con repetidas: gana la última
+                pares.add(new long[] {clave, i});
+                esperado = esperado.con(clave, "v" + i);
+            }
+            List<String> valores = new ArrayList<>();
+            Map<String, Long> claveDe = new HashMap<>();
+            for (long[] par : pares) {
+                valores.add("v" + par[1]);
+                claveDe.put("v" + par[1], par[0]);
+            }
+            MapaPersistente<String> construido = MapaPersistente.desde(valores, claveDe::get);
+            comprobar(contenido(esperado), construido);
+        }
+    }
+
+    @Test
+    void diferenciasDaExactamenteLasClavesQueCambiaron() {
+        Random aleatorio = new Random(21);
+        List<MapaPersistente<String>> versiones = new ArrayList<>();
+        MapaPersistente<String> mapa = MapaPersistente.vacio();
+        for (int i = 0; i < 400; i++) {
+            long clave = CLAVES[aleatorio.nextInt(CLAVES.length)];
+            mapa = aleatorio.nextInt(3) == 0 ? mapa.sin(clave) : mapa.con(clave, "v" + i);
+            versiones.add(mapa);
+        }
+        // Una reconstrucción con desde no comparte nodos con las demás versiones: se compara entera
+        List<String> valores = new ArrayList<>(contenido(mapa).values());
+        Map<String, Long> claveDe = new HashMap<>();
+        contenido(mapa).forEach((clave, valor) -> claveDe.put(valor, clave));
+        versiones.add(MapaPersistente.desde(valores, claveDe::get));
+
+        for (int i = 0; i < 300; i++) {
+            MapaPersistente<String> antes = versiones.get(aleatorio.nextInt(versiones.size()));
+            MapaPersistente<String> despues = versiones.get(aleatorio.nextInt(versiones.size()));
+            Map<Long, String> a = contenido(antes);
+            Map<Long, String> b = contenido(despues);
+            Map<Long, String[]> esperadas = new TreeMap<>();
+            for (long clave : CLAVES) {
+                if (!Objects.equals(a.get(clave), b.get(clave))) {
+                    esperadas.put(clave, new String[] {a.get(clave), b.get(clave)});
+                }
+            }
+            Map<Long, String[]> obtenidas = new TreeMap<>();
+            MapaPersistente.diferencias(antes, despues, (clave, valorAntes, valorDespues) ->
+                    assertNull(obtenidas.put(clave, new String[] {valorAntes, valorDespues}), "Clave repetida: " + clave));
+            assertEquals(esperadas.keySet(), obtenidas.keySet());
+            esperadas.forEach((clave, par) -> {
+                assertEquals(par[0], obtenidas.get(clave)[0]);
+                assertEquals(par[1], obtenidas.get(clave)[1]);
+            });
+        }
+    }
+}